@@ -0,0 +1,46 @@
+package com.fr3ts0n.androbd.plugin;
+
+import java.util.Locale;
+
+/**
+ * Generator of benchmark test data
+ */
+public class BenchmarkData
+{
+    /**
+     * Create CSV encoded data list
+     * (mnemonic;description;min;max;units, one line per data item)
+     *
+     * @param items Number of data items
+     * @return CSV encoded data list
+     */
+    public static String createDataList(int items)
+    {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < items; i++)
+        {
+            result.append(String.format(Locale.ROOT,
+                                        "%s;Measured value #%d of engine control unit with a long description;%d;%d;km/h\n",
+                                        getKey(i), i, 0, 100 + i));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param index Index of data item
+     * @return Key (mnemonic) of data item
+     */
+    public static String getKey(int index)
+    {
+        return String.format(Locale.ROOT, "SERVICE_01_PID_%04X", index);
+    }
+
+    /**
+     * @param index Index of data item
+     * @return Numeric test value of data item
+     */
+    public static double getValue(int index)
+    {
+        return 12.5 + index * 0.25;
+    }
+}
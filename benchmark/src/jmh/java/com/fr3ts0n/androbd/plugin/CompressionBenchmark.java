@@ -0,0 +1,171 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * Compressed encoding of DATALIST / DATA requests
+ * <p>
+ * Compares CPU cost and IPC payload with compression on / off:
+ * - dataList:      complete data list (no dictionary)
+ * - dataListDelta: data list with 10% modified items (previous version as dictionary)
+ * - batch:         batch of keyed updates with textual values (data list as dictionary)
+ * The payload counters report the estimated IPC bytes of all encoded requests,
+ * bytes / messages is the average payload per request.
+ * Marshalling of the payload by the binder is not included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompressionBenchmark
+{
+    /** number of data items within data list */
+    @Param({"100", "500"})
+    public int items;
+
+    /** compression enabled */
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    /** number of updates per batch */
+    private static final int BATCH_SIZE = 32;
+
+    /**
+     * IPC payload of encoded requests
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload
+    {
+        /** estimated payload bytes */
+        public long bytes;
+        /** number of encoded requests */
+        public long messages;
+    }
+
+    private byte[] dictionary;
+    private Intent dataListIntent;
+    private int dataListBytes;
+    private Intent deltaIntent;
+    private int deltaBytes;
+    private byte[] deltaDictionary;
+    private Intent batchIntent;
+    private int batchBytes;
+    private Bundle encodedDataList;
+    private Bundle encodedBatch;
+
+    @Setup
+    public void setup()
+    {
+        String csvData = BenchmarkData.createDataList(items);
+        DataList dataList = new DataList();
+        dataList.update(csvData);
+        dictionary = dataList.getDictionary();
+
+        dataListIntent = new Intent(Plugin.DATALIST);
+        dataListIntent.putExtra(Plugin.EXTRA_DATA, csvData);
+        dataListBytes = PluginMetrics.sizeOf(csvData);
+
+        // modify range of every 10th data item
+        deltaDictionary = dictionary;
+        StringBuilder modified = new StringBuilder();
+        for (int i = 0; i < items; i++)
+        {
+            modified.append(String.format(Locale.ROOT,
+                                          "%s;Measured value #%d of engine control unit with a long description;%d;%d;km/h\n",
+                                          BenchmarkData.getKey(i), i, 0, 100 + i + (i % 10 == 0 ? 1 : 0)));
+        }
+        DataList.Delta delta = dataList.update(modified.toString());
+        deltaIntent = new Intent(Plugin.DATALIST);
+        deltaIntent.putExtra(Plugin.EXTRA_DATA, delta.changedCsv);
+        deltaIntent.putExtra(Plugin.EXTRA_DATALIST_REMOVED, delta.removed);
+        deltaBytes = PluginMetrics.sizeOf(delta.changedCsv);
+
+        DataBatch batch = new DataBatch(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            batch.add(BenchmarkData.getKey(i % items), String.valueOf(BenchmarkData.getValue(i)), i);
+        }
+        batchIntent = new Intent(Plugin.DATA);
+        batch.writeTo(batchIntent, false);
+        batchBytes = PluginMetrics.sizeOf(batch);
+
+        Intent intent = DataCompression.deflate(dataListIntent, null, DataList.NO_VERSION);
+        encodedDataList = (intent != null ? intent : dataListIntent).getExtras();
+        intent = DataCompression.deflate(batchIntent, dictionary, 1);
+        encodedBatch = (intent != null ? intent : batchIntent).getExtras();
+    }
+
+    @Benchmark
+    public Intent encodeDataList(Payload payload)
+    {
+        return encode(dataListIntent, dataListBytes, null, payload);
+    }
+
+    @Benchmark
+    public Intent encodeDataListDelta(Payload payload)
+    {
+        return encode(deltaIntent, deltaBytes, deltaDictionary, payload);
+    }
+
+    @Benchmark
+    public Intent encodeBatch(Payload payload)
+    {
+        return encode(batchIntent, batchBytes, dictionary, payload);
+    }
+
+    @Benchmark
+    public Bundle decodeDataList() throws DataFormatException
+    {
+        Bundle data = new Bundle(compressed ? encodedDataList : dataListIntent.getExtras());
+        DataCompression.inflate(data, null);
+        return data;
+    }
+
+    @Benchmark
+    public Bundle decodeBatch() throws DataFormatException
+    {
+        Bundle data = new Bundle(compressed ? encodedBatch : batchIntent.getExtras());
+        DataCompression.inflate(data, dictionary);
+        return data;
+    }
+
+    /**
+     * Encode a request as it would be sent with current compression setting
+     *
+     * @param intent     Request intent
+     * @param bytes      Payload bytes (estimated) of uncompressed request
+     * @param dictionary Compression dictionary
+     * @param payload    Counters of IPC payload
+     * @return encoded request intent
+     */
+    private Intent encode(Intent intent, int bytes, byte[] dictionary, Payload payload)
+    {
+        if (compressed)
+        {
+            Intent result = DataCompression.deflate(intent, dictionary, 1);
+            if (result != null)
+            {
+                bytes = DataCompression.compressedSize(intent, result, bytes);
+                intent = result;
+            }
+        }
+        payload.bytes += bytes;
+        payload.messages++;
+        return intent;
+    }
+}
@@ -0,0 +1,158 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding / decoding of DATA messages
+ * <p>
+ * - legacy: one key=value string per update
+ * - typed:  batch of parallel arrays (with keys or with key IDs)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataEncodingBenchmark
+{
+    /** number of updates per benchmark operation */
+    @Param({"1", "32"})
+    public int updates;
+
+    private String[] keys;
+    private double[] values;
+    private String[] legacyData;
+    private DataDictionary dictionary;
+    private Bundle typedData;
+    private Bundle indexedData;
+    private final DataBatch batch = new DataBatch();
+    private final DataBatch receivedBatch = new DataBatch();
+
+    @Setup
+    public void setup()
+    {
+        dictionary = new DataDictionary();
+        dictionary.registerAll(BenchmarkData.createDataList(updates));
+
+        keys = new String[updates];
+        values = new double[updates];
+        legacyData = new String[updates];
+        DataBatch data = new DataBatch(updates);
+        for (int i = 0; i < updates; i++)
+        {
+            keys[i] = BenchmarkData.getKey(i);
+            values[i] = BenchmarkData.getValue(i);
+            legacyData[i] = keys[i] + "=" + String.valueOf(values[i]);
+            data.add(dictionary.getId(keys[i]), keys[i], values[i], i);
+        }
+
+        Intent intent = new Intent(Plugin.DATA);
+        data.writeTo(intent, false);
+        typedData = intent.getExtras();
+        intent = new Intent(Plugin.DATA);
+        data.writeTo(intent, true);
+        indexedData = intent.getExtras();
+    }
+
+    @Benchmark
+    public void legacyEncode(Blackhole bh)
+    {
+        for (int i = 0; i < updates; i++)
+        {
+            Intent intent = new Intent(Plugin.DATA);
+            intent.putExtra(Plugin.EXTRA_DATA, keys[i] + "=" + String.valueOf(values[i]));
+            bh.consume(intent);
+        }
+    }
+
+    @Benchmark
+    public void legacyEncodeFormat(Blackhole bh)
+    {
+        for (int i = 0; i < updates; i++)
+        {
+            Intent intent = new Intent(Plugin.DATA);
+            intent.putExtra(Plugin.EXTRA_DATA, String.format("%s=%s", keys[i], values[i]));
+            bh.consume(intent);
+        }
+    }
+
+    @Benchmark
+    public void legacyDecodeSplit(Blackhole bh)
+    {
+        for (int i = 0; i < updates; i++)
+        {
+            String[] params = legacyData[i].split("=");
+            bh.consume(params[0]);
+            bh.consume(params[1]);
+        }
+    }
+
+    @Benchmark
+    public void legacyDecodeIndexOf(Blackhole bh)
+    {
+        for (int i = 0; i < updates; i++)
+        {
+            String dataStr = legacyData[i];
+            int separator = dataStr.indexOf('=');
+            bh.consume(dataStr.substring(0, separator));
+            bh.consume(dataStr.substring(separator + 1));
+        }
+    }
+
+    @Benchmark
+    public void typedEncode(Blackhole bh)
+    {
+        batch.clear();
+        for (int i = 0; i < updates; i++)
+        {
+            batch.add(keys[i], values[i], i);
+        }
+        Intent intent = new Intent(Plugin.DATA);
+        batch.writeTo(intent, false);
+        bh.consume(intent);
+    }
+
+    @Benchmark
+    public void indexedEncode(Blackhole bh)
+    {
+        batch.clear();
+        for (int i = 0; i < updates; i++)
+        {
+            batch.add(dictionary.getId(keys[i]), keys[i], values[i], i);
+        }
+        Intent intent = new Intent(Plugin.DATA);
+        batch.writeTo(intent, true);
+        bh.consume(intent);
+    }
+
+    @Benchmark
+    public void typedDecode(Blackhole bh)
+    {
+        DataBatch result = DataBatch.readFrom(typedData, dictionary, receivedBatch);
+        for (int i = 0; i < result.size(); i++)
+        {
+            bh.consume(result.getNumber(i));
+        }
+    }
+
+    @Benchmark
+    public void indexedDecode(Blackhole bh)
+    {
+        DataBatch result = DataBatch.readFrom(indexedData, dictionary, receivedBatch);
+        for (int i = 0; i < result.size(); i++)
+        {
+            bh.consume(result.getNumber(i));
+        }
+    }
+}
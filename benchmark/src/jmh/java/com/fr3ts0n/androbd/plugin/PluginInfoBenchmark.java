@@ -0,0 +1,56 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bundle round trip of PluginInfo (IDENTIFY request / response)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PluginInfoBenchmark
+{
+    private PluginInfo info;
+    private Bundle bundle;
+
+    @Setup
+    public void setup()
+    {
+        info = new PluginInfo("Benchmark",
+                              Plugin.class,
+                              "Benchmark plugin with a reasonably long description text",
+                              "Copyright (C) 2026 by fr3ts0n",
+                              "GPLV3+",
+                              "https://github.com/fr3ts0n/AndrOBD-libplugin");
+        info.subscriptions = new String[] { BenchmarkData.getKey(0), BenchmarkData.getKey(1) };
+        bundle = info.toBundle();
+    }
+
+    @Benchmark
+    public Bundle toBundle()
+    {
+        return info.toBundle();
+    }
+
+    @Benchmark
+    public PluginInfo fromBundle()
+    {
+        return new PluginInfo(bundle);
+    }
+
+    @Benchmark
+    public PluginInfo roundTrip()
+    {
+        return new PluginInfo(info.toBundle());
+    }
+}
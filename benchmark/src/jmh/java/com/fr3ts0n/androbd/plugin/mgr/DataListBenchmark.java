@@ -0,0 +1,72 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.BenchmarkData;
+import com.fr3ts0n.androbd.plugin.DataDictionary;
+import com.fr3ts0n.androbd.plugin.DataItemList;
+import com.fr3ts0n.androbd.plugin.DataList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of CSV encoded DATALIST messages
+ * (host side ID assignment / deadbands, plugin side ID definition,
+ *  parsing into data item descriptors)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataListBenchmark
+{
+    /** number of data items within data list */
+    @Param({"100", "500"})
+    public int items;
+
+    private String csvData;
+    private int[] dataIds;
+    private DataItemList dataItems;
+
+    @Setup
+    public void setup()
+    {
+        csvData = BenchmarkData.createDataList(items);
+        dataIds = new DataDictionary().registerAll(csvData);
+        dataItems = DataItemList.parse(csvData, DataList.NO_VERSION);
+    }
+
+    @Benchmark
+    public int[] registerAll()
+    {
+        return new DataDictionary().registerAll(csvData);
+    }
+
+    @Benchmark
+    public DataDictionary defineAll()
+    {
+        DataDictionary dictionary = new DataDictionary();
+        dictionary.defineAll(csvData, dataIds);
+        return dictionary;
+    }
+
+    @Benchmark
+    public DataItemList parseDataItems()
+    {
+        return DataItemList.parse(csvData, DataList.NO_VERSION);
+    }
+
+    @Benchmark
+    public ChangeFilter changeFilterDataList()
+    {
+        ChangeFilter filter = new ChangeFilter();
+        filter.setDataList(dataItems);
+        return filter;
+    }
+}
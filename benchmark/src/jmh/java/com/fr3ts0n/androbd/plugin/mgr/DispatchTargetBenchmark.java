@@ -0,0 +1,113 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.BenchmarkData;
+import com.fr3ts0n.androbd.plugin.Plugin;
+import com.fr3ts0n.androbd.plugin.PluginInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of DATA targets per data update
+ * <p>
+ * - pluginList: iteration of all plugins with enabled / feature checks
+ *               (as formerly done via the plugin list adapter)
+ * - snapshot:   lookup within immutable snapshot of dispatch targets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchTargetBenchmark
+{
+    /** number of identified plugins */
+    @Param({"4", "16"})
+    public int plugins;
+
+    private final List<PluginInfo> pluginList = new ArrayList<>();
+    private SubscriptionIndex index;
+    private String key;
+
+    @Setup
+    public void setup()
+    {
+        for (int i = 0; i < plugins; i++)
+        {
+            PluginInfo info = new PluginInfo("Plugin" + i,
+                                             Plugin.class,
+                                             "Benchmark plugin " + i,
+                                             "", "", "");
+            info.packageName = "com.fr3ts0n.androbd.plugin.benchmark" + i;
+            info.className = info.packageName + ".Plugin";
+            info.features = PluginInfo.FEATURE_DATA | PluginInfo.FEATURE_DATA_BATCH;
+            // every 4th plugin is disabled, every 2nd one is subscribed to a few items only
+            info.enabled = (i % 4) != 3;
+            if ((i % 2) == 1)
+            {
+                info.subscriptions = new String[] { BenchmarkData.getKey(0), BenchmarkData.getKey(i) };
+            }
+            pluginList.add(info);
+        }
+        index = new SubscriptionIndex(pluginList);
+        key = BenchmarkData.getKey(0);
+    }
+
+    @Benchmark
+    public int pluginList()
+    {
+        int result = 0;
+        for (int i = 0; i < pluginList.size(); i++)
+        {
+            PluginInfo plugin = pluginList.get(i);
+            if (plugin.enabled
+                && (plugin.features & PluginInfo.FEATURE_DATA) != 0
+                && isSubscribed(plugin, key))
+            {
+                result += plugin.features;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int snapshot()
+    {
+        int result = 0;
+        for (DispatchTarget target : index.getTargets(key))
+        {
+            result += target.features;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public SubscriptionIndex snapshotRebuild()
+    {
+        return new SubscriptionIndex(pluginList);
+    }
+
+    private static boolean isSubscribed(PluginInfo plugin, String key)
+    {
+        if (plugin.subscriptions == null)
+        {
+            return true;
+        }
+        for (String subscription : plugin.subscriptions)
+        {
+            if (subscription.equals(key))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,28 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.IBinder;
+
+/**
+ * JVM shim of Android Service for benchmarks (no lifecycle)
+ */
+public abstract class Service extends Context
+{
+    public static final int START_STICKY = 1;
+
+    public void onCreate()
+    {
+    }
+
+    public void onDestroy()
+    {
+    }
+
+    public int onStartCommand(Intent intent, int flags, int startId)
+    {
+        return START_STICKY;
+    }
+
+    public abstract IBinder onBind(Intent intent);
+}
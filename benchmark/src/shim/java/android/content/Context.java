@@ -0,0 +1,40 @@
+package android.content;
+
+import android.content.res.Resources;
+
+/**
+ * JVM shim of Android Context for benchmarks (no functionality)
+ */
+public abstract class Context
+{
+    public static final String POWER_SERVICE = "power";
+
+    public Object getSystemService(String name)
+    {
+        return null;
+    }
+
+    public Context getApplicationContext()
+    {
+        return this;
+    }
+
+    public String getPackageName()
+    {
+        return getClass().getPackage().getName();
+    }
+
+    public Resources getResources()
+    {
+        return new Resources();
+    }
+
+    public String getString(int resId)
+    {
+        return "";
+    }
+
+    public void sendBroadcast(Intent intent)
+    {
+    }
+}
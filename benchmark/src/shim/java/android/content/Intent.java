@@ -0,0 +1,188 @@
+package android.content;
+
+import android.os.Bundle;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JVM shim of Android Intent for benchmarks
+ * (action, categories, component and extras only)
+ */
+public class Intent
+{
+    private String action;
+    private final Set<String> categories = new HashSet<>();
+    private String packageName;
+    private String className;
+    private Bundle extras;
+
+    public Intent()
+    {
+    }
+
+    public Intent(String action)
+    {
+        this.action = action;
+    }
+
+    public Intent(Intent other)
+    {
+        action = other.action;
+        categories.addAll(other.categories);
+        packageName = other.packageName;
+        className = other.className;
+        extras = other.extras != null ? new Bundle(other.extras) : null;
+    }
+
+    public String getAction()
+    {
+        return action;
+    }
+
+    public Intent setAction(String action)
+    {
+        this.action = action;
+        return this;
+    }
+
+    public Intent addCategory(String category)
+    {
+        categories.add(category);
+        return this;
+    }
+
+    public Set<String> getCategories()
+    {
+        return categories;
+    }
+
+    public boolean hasCategory(String category)
+    {
+        return categories.contains(category);
+    }
+
+    public Intent setClassName(String packageName, String className)
+    {
+        this.packageName = packageName;
+        this.className = className;
+        return this;
+    }
+
+    public String getPackage()
+    {
+        return packageName;
+    }
+
+    public String getClassName()
+    {
+        return className;
+    }
+
+    /** @return copy of extras (as on Android) */
+    public Bundle getExtras()
+    {
+        return extras != null ? new Bundle(extras) : null;
+    }
+
+    public Intent putExtras(Bundle values)
+    {
+        extras().putAll(values);
+        return this;
+    }
+
+    public Intent putExtra(String name, String value)
+    {
+        extras().putString(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, String[] value)
+    {
+        extras().putStringArray(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, int value)
+    {
+        extras().putInt(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, int[] value)
+    {
+        extras().putIntArray(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, long value)
+    {
+        extras().putLong(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, long[] value)
+    {
+        extras().putLongArray(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, double[] value)
+    {
+        extras().putDoubleArray(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, byte[] value)
+    {
+        extras().putByteArray(name, value);
+        return this;
+    }
+
+    public String getStringExtra(String name)
+    {
+        return extras != null ? extras.getString(name) : null;
+    }
+
+    public String[] getStringArrayExtra(String name)
+    {
+        return extras != null ? extras.getStringArray(name) : null;
+    }
+
+    public int[] getIntArrayExtra(String name)
+    {
+        return extras != null ? extras.getIntArray(name) : null;
+    }
+
+    public long[] getLongArrayExtra(String name)
+    {
+        return extras != null ? extras.getLongArray(name) : null;
+    }
+
+    public double[] getDoubleArrayExtra(String name)
+    {
+        return extras != null ? extras.getDoubleArray(name) : null;
+    }
+
+    public byte[] getByteArrayExtra(String name)
+    {
+        return extras != null ? extras.getByteArray(name) : null;
+    }
+
+    public void removeExtra(String name)
+    {
+        if (extras != null)
+        {
+            extras.remove(name);
+        }
+    }
+
+    private Bundle extras()
+    {
+        if (extras == null)
+        {
+            extras = new Bundle();
+        }
+        return extras;
+    }
+}
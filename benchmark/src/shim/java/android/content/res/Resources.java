@@ -0,0 +1,12 @@
+package android.content.res;
+
+/**
+ * JVM shim of Android Resources for benchmarks (no functionality)
+ */
+public class Resources
+{
+    public int getIdentifier(String name, String defType, String defPackage)
+    {
+        return 0;
+    }
+}
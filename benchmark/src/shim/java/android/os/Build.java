@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * JVM shim of Android Build for benchmarks
+ * (reports the most recent SDK version)
+ */
+public class Build
+{
+    public static class VERSION_CODES
+    {
+        public static final int O_MR1 = 27;
+    }
+
+    public static class VERSION
+    {
+        public static final int SDK_INT = 36;
+    }
+}
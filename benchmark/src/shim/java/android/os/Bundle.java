@@ -0,0 +1,159 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM shim of Android Bundle for benchmarks
+ * <p>
+ * Map based key/value container with the subset of typed accessors
+ * which is used by the plugin library. Parceling costs are not simulated.
+ */
+public class Bundle
+{
+    private final Map<String, Object> values;
+
+    public Bundle()
+    {
+        values = new HashMap<>();
+    }
+
+    public Bundle(Bundle other)
+    {
+        values = new HashMap<>(other.values);
+    }
+
+    public void putAll(Bundle other)
+    {
+        values.putAll(other.values);
+    }
+
+    public int size()
+    {
+        return values.size();
+    }
+
+    public boolean containsKey(String key)
+    {
+        return values.containsKey(key);
+    }
+
+    public void remove(String key)
+    {
+        values.remove(key);
+    }
+
+    public void putString(String key, String value)
+    {
+        values.put(key, value);
+    }
+
+    public void putStringArray(String key, String[] value)
+    {
+        values.put(key, value);
+    }
+
+    public void putInt(String key, int value)
+    {
+        values.put(key, value);
+    }
+
+    public void putIntArray(String key, int[] value)
+    {
+        values.put(key, value);
+    }
+
+    public void putLong(String key, long value)
+    {
+        values.put(key, value);
+    }
+
+    public void putLongArray(String key, long[] value)
+    {
+        values.put(key, value);
+    }
+
+    public void putDoubleArray(String key, double[] value)
+    {
+        values.put(key, value);
+    }
+
+    public void putByteArray(String key, byte[] value)
+    {
+        values.put(key, value);
+    }
+
+    public void putParcelable(String key, Parcelable value)
+    {
+        values.put(key, value);
+    }
+
+    public Object get(String key)
+    {
+        return values.get(key);
+    }
+
+    public String getString(String key)
+    {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public String[] getStringArray(String key)
+    {
+        Object value = values.get(key);
+        return value instanceof String[] ? (String[]) value : null;
+    }
+
+    public int getInt(String key)
+    {
+        return getInt(key, 0);
+    }
+
+    public int getInt(String key, int defaultValue)
+    {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public int[] getIntArray(String key)
+    {
+        Object value = values.get(key);
+        return value instanceof int[] ? (int[]) value : null;
+    }
+
+    public long getLong(String key)
+    {
+        return getLong(key, 0);
+    }
+
+    public long getLong(String key, long defaultValue)
+    {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    public long[] getLongArray(String key)
+    {
+        Object value = values.get(key);
+        return value instanceof long[] ? (long[]) value : null;
+    }
+
+    public double[] getDoubleArray(String key)
+    {
+        Object value = values.get(key);
+        return value instanceof double[] ? (double[]) value : null;
+    }
+
+    public byte[] getByteArray(String key)
+    {
+        Object value = values.get(key);
+        return value instanceof byte[] ? (byte[]) value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T getParcelable(String key)
+    {
+        return (T) values.get(key);
+    }
+}
@@ -0,0 +1,38 @@
+package android.os;
+
+/**
+ * JVM shim of Android Handler for benchmarks (callbacks are never executed)
+ */
+public class Handler
+{
+    public interface Callback
+    {
+        boolean handleMessage(Message msg);
+    }
+
+    public Handler()
+    {
+    }
+
+    public Handler(Looper looper)
+    {
+    }
+
+    public Handler(Looper looper, Callback callback)
+    {
+    }
+
+    public boolean post(Runnable r)
+    {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable r, long delayMillis)
+    {
+        return true;
+    }
+
+    public void removeCallbacks(Runnable r)
+    {
+    }
+}
@@ -0,0 +1,8 @@
+package android.os;
+
+/**
+ * JVM shim of Android IBinder for benchmarks
+ */
+public interface IBinder
+{
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * JVM shim of Android Looper for benchmarks
+ */
+public class Looper
+{
+    private static final Looper mainLooper = new Looper();
+
+    public static Looper getMainLooper()
+    {
+        return mainLooper;
+    }
+}
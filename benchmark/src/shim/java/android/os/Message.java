@@ -0,0 +1,31 @@
+package android.os;
+
+/**
+ * JVM shim of Android Message for benchmarks
+ */
+public class Message
+{
+    public int what;
+    private Bundle data;
+
+    public static Message obtain(Handler h, int what)
+    {
+        Message msg = new Message();
+        msg.what = what;
+        return msg;
+    }
+
+    public Bundle getData()
+    {
+        if (data == null)
+        {
+            data = new Bundle();
+        }
+        return data;
+    }
+
+    public void setData(Bundle data)
+    {
+        this.data = data;
+    }
+}
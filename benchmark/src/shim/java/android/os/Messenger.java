@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * JVM shim of Android Messenger for benchmarks (no transport)
+ */
+public class Messenger
+{
+    public Messenger(Handler target)
+    {
+    }
+
+    public Messenger(IBinder target)
+    {
+    }
+
+    public IBinder getBinder()
+    {
+        return null;
+    }
+
+    public void send(Message message)
+    {
+    }
+}
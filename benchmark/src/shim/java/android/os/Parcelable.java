@@ -0,0 +1,8 @@
+package android.os;
+
+/**
+ * JVM shim of Android Parcelable for benchmarks
+ */
+public interface Parcelable
+{
+}
@@ -0,0 +1,38 @@
+package android.os;
+
+/**
+ * JVM shim of Android PowerManager for benchmarks (no functionality)
+ */
+public class PowerManager
+{
+    public static final int PARTIAL_WAKE_LOCK = 1;
+
+    public class WakeLock
+    {
+        public void acquire()
+        {
+        }
+
+        public void acquire(long timeout)
+        {
+        }
+
+        public void release()
+        {
+        }
+
+        public boolean isHeld()
+        {
+            return false;
+        }
+
+        public void setReferenceCounted(boolean value)
+        {
+        }
+    }
+
+    public WakeLock newWakeLock(int levelAndFlags, String tag)
+    {
+        return new WakeLock();
+    }
+}
@@ -0,0 +1,58 @@
+package android.os;
+
+import android.system.ErrnoException;
+import android.system.OsConstants;
+
+import java.nio.ByteBuffer;
+
+/**
+ * JVM shim of Android SharedMemory for benchmarks (heap backed)
+ * Protection applies to subsequent mappings only (as on Android).
+ */
+public final class SharedMemory implements Parcelable
+{
+    private final ByteBuffer buffer;
+    private int protection = OsConstants.PROT_READ | OsConstants.PROT_WRITE;
+
+    private SharedMemory(int size)
+    {
+        buffer = ByteBuffer.allocateDirect(size);
+    }
+
+    public static SharedMemory create(String name, int size) throws ErrnoException
+    {
+        return new SharedMemory(size);
+    }
+
+    public ByteBuffer mapReadWrite() throws ErrnoException
+    {
+        if ((protection & OsConstants.PROT_WRITE) == 0)
+        {
+            throw new ErrnoException("mmap", OsConstants.EACCES);
+        }
+        return buffer.duplicate();
+    }
+
+    public ByteBuffer mapReadOnly() throws ErrnoException
+    {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public boolean setProtect(int prot)
+    {
+        if ((prot & ~protection) != 0)
+        {
+            throw new IllegalArgumentException("Protection can only be restricted");
+        }
+        protection = prot;
+        return true;
+    }
+
+    public static void unmap(ByteBuffer buffer)
+    {
+    }
+
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,12 @@
+package android.system;
+
+/**
+ * JVM shim of Android ErrnoException for benchmarks
+ */
+public final class ErrnoException extends Exception
+{
+    public ErrnoException(String functionName, int errno)
+    {
+        super(functionName + ": " + errno);
+    }
+}
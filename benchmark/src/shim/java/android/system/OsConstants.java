@@ -0,0 +1,17 @@
+package android.system;
+
+/**
+ * JVM shim of Android OsConstants for benchmarks
+ */
+public final class OsConstants
+{
+    public static final int PROT_NONE = 0;
+    public static final int PROT_READ = 1;
+    public static final int PROT_WRITE = 2;
+
+    public static final int EACCES = 13;
+
+    private OsConstants()
+    {
+    }
+}
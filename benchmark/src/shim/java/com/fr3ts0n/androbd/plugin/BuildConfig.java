@@ -0,0 +1,10 @@
+package com.fr3ts0n.androbd.plugin;
+
+/**
+ * JVM shim of generated library build configuration for benchmarks
+ * (release configuration)
+ */
+public final class BuildConfig
+{
+    public static final boolean DEBUG = false;
+}
@@ -0,0 +1,119 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the compression of textual request extras
+ */
+public class DataCompressionTest
+{
+    /**
+     * Create data list CSV with specified number of data items
+     */
+    static String dataList(int items)
+    {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < items; i++)
+        {
+            csv.append("ITEM_").append(i).append(";Data item ").append(i).append(";0;rpm\n");
+        }
+        return csv.toString();
+    }
+
+    @Test
+    public void dataListIsRestored()
+    {
+        String csv = dataList(100);
+        byte[] dictionary = DataCompression.dictionaryOf(csv);
+        Intent intent = new Intent(Plugin.DATALIST);
+        intent.putExtra(Plugin.EXTRA_DATA, csv);
+
+        Intent compressed = DataCompression.deflate(intent, dictionary, 1);
+        assertNotNull(compressed);
+        Bundle data = compressed.getExtras();
+        assertTrue(DataCompression.isCompressed(data));
+        try
+        {
+            DataCompression.inflate(data, dictionary);
+        }
+        catch (DataFormatException e)
+        {
+            fail(e.getMessage());
+        }
+        assertEquals(csv, data.getString(Plugin.EXTRA_DATA));
+    }
+
+    /**
+     * A tiny compressed block which inflates to more than
+     * {@link DataCompression#MAX_INFLATED_SIZE} is rejected
+     */
+    @Test
+    public void deflateBombIsRejected()
+    {
+        byte[] bomb = compress(new byte[4 * DataCompression.MAX_INFLATED_SIZE]);
+        assertTrue(bomb.length < 16 * 1024);
+        Bundle data = new Bundle();
+        data.putByteArray(Plugin.EXTRA_DEFLATED, bomb);
+        try
+        {
+            DataCompression.inflate(data, null);
+            fail("deflate bomb accepted");
+        }
+        catch (DataFormatException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * A compressed block with invalid string lengths is rejected
+     * without allocating the announced size
+     */
+    @Test
+    public void invalidLengthIsRejected()
+    {
+        // TYPE_STRING, name "data", length Integer.MAX_VALUE, no content
+        byte[] encoded = { 0, 0, 4, 'd', 'a', 't', 'a', 0x7f, -1, -1, -1 };
+        Bundle data = new Bundle();
+        data.putByteArray(Plugin.EXTRA_DEFLATED, compress(encoded));
+        try
+        {
+            DataCompression.inflate(data, null);
+            fail("invalid length accepted");
+        }
+        catch (DataFormatException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Deflate raw data without dictionary
+     */
+    private static byte[] compress(byte[] raw)
+    {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished())
+        {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+}
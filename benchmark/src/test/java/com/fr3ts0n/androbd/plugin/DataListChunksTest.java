@@ -0,0 +1,174 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the chunked transfer of large DATALIST requests
+ */
+public class DataListChunksTest
+{
+    private static final String HOST = "host";
+    /** max. CSV length of chunks within tests */
+    private static final int CHUNK_LENGTH = 1000;
+
+    /**
+     * Create DATALIST request intent of the host
+     */
+    private static Intent dataListIntent(String csv)
+    {
+        Intent intent = new Intent(Plugin.DATALIST);
+        intent.putExtra(Plugin.EXTRA_DATA, csv);
+        intent.putExtra(Plugin.EXTRA_DATA_IDS, new int[] { 1, 2, 3 });
+        intent.putExtra(Plugin.EXTRA_DATALIST_VERSION, 7);
+        intent.putExtra(Plugin.EXTRA_DATA_SOURCE, HOST);
+        return intent;
+    }
+
+    @Test
+    public void smallListIsNotSplit()
+    {
+        Intent intent = dataListIntent(DataCompressionTest.dataList(2));
+        Intent[] chunks = DataListChunks.split(intent, CHUNK_LENGTH);
+        assertEquals(1, chunks.length);
+        assertFalse(DataListChunks.isChunk(chunks[0].getExtras()));
+    }
+
+    /**
+     * Chunks are split at line boundaries and re-assembled in order of
+     * their index, regardless of the order they are received in
+     */
+    @Test
+    public void outOfOrderChunksAreReassembled()
+    {
+        String csv = DataCompressionTest.dataList(100);
+        Intent[] chunks = DataListChunks.split(dataListIntent(csv), CHUNK_LENGTH);
+        assertTrue(chunks.length > 2);
+        for (Intent chunk : chunks)
+        {
+            String part = chunk.getStringExtra(Plugin.EXTRA_DATA);
+            assertTrue(part.length() <= CHUNK_LENGTH);
+            assertTrue(part.endsWith("\n"));
+        }
+
+        DataListChunks receiver = new DataListChunks();
+        Bundle result = null;
+        for (int i = chunks.length - 1; i >= 0; i--)
+        {
+            assertNull(result);
+            result = receiver.add(HOST, chunks[i].getExtras(), 0);
+        }
+        assertNotNull(result);
+        assertFalse(receiver.isPending());
+        assertFalse(DataListChunks.isChunk(result));
+        assertEquals(csv, result.getString(Plugin.EXTRA_DATA));
+        assertArrayEquals(new int[] { 1, 2, 3 }, result.getIntArray(Plugin.EXTRA_DATA_IDS));
+        assertEquals(7, result.getInt(Plugin.EXTRA_DATALIST_VERSION));
+    }
+
+    /**
+     * A transfer with a missing chunk is dropped after {@link DataListChunks#TIMEOUT}
+     */
+    @Test
+    public void incompleteTransferExpires()
+    {
+        Intent[] chunks = DataListChunks.split(dataListIntent(DataCompressionTest.dataList(100)),
+                                               CHUNK_LENGTH);
+        DataListChunks receiver = new DataListChunks();
+        long start = 1000;
+        // last chunk is lost
+        for (int i = 0; i < chunks.length - 1; i++)
+        {
+            assertNull(receiver.add(HOST, chunks[i].getExtras(), start + i));
+        }
+        assertTrue(receiver.isPending(HOST));
+        assertFalse(receiver.isPending("other"));
+
+        assertTrue(receiver.expire(start + DataListChunks.TIMEOUT - 1).isEmpty());
+        assertTrue(receiver.isPending(HOST));
+        List<Bundle> dropped = receiver.expire(start + DataListChunks.TIMEOUT);
+        assertEquals(1, dropped.size());
+        // source is retained to request the list again
+        assertEquals(HOST, dropped.get(0).getString(Plugin.EXTRA_DATA_SOURCE));
+        assertFalse(receiver.isPending());
+
+        // late chunk starts a new transfer, which is never completed
+        assertNull(receiver.add(HOST, chunks[chunks.length - 1].getExtras(),
+                                start + DataListChunks.TIMEOUT));
+        assertTrue(receiver.isPending(HOST));
+    }
+
+    /**
+     * Chunks are compressed individually, and inflated before re-assembly
+     */
+    @Test
+    public void compressedChunksAreReassembled()
+    {
+        String csv = DataCompressionTest.dataList(200);
+        byte[] dictionary = DataCompression.dictionaryOf(csv);
+        Intent[] chunks = DataListChunks.split(dataListIntent(csv), CHUNK_LENGTH);
+
+        DataListChunks receiver = new DataListChunks();
+        Bundle result = null;
+        // even indices first, odd ones afterwards
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int i = pass; i < chunks.length; i += 2)
+            {
+                Intent compressed = DataCompression.deflate(chunks[i], dictionary, 7);
+                assertNotNull(compressed);
+                Bundle data = compressed.getExtras();
+                assertTrue(DataListChunks.isChunk(data));
+                assertNull(data.getString(Plugin.EXTRA_DATA));
+                try
+                {
+                    DataCompression.inflate(data, dictionary);
+                }
+                catch (DataFormatException e)
+                {
+                    fail(e.getMessage());
+                }
+                assertNull(result);
+                result = receiver.add(HOST, data, 0);
+            }
+        }
+        assertNotNull(result);
+        assertEquals(csv, result.getString(Plugin.EXTRA_DATA));
+        assertFalse(result.containsKey(Plugin.EXTRA_DEFLATED));
+    }
+
+    /**
+     * Plugin delivers the complete list once all compressed chunks are received
+     */
+    @Test
+    public void pluginReceivesChunkedList()
+    {
+        String csv = DataCompressionTest.dataList(2000);
+        assertTrue(csv.length() > DataListChunks.MAX_CHUNK_LENGTH);
+        Intent[] chunks = DataListChunks.split(dataListIntent(csv), DataListChunks.MAX_CHUNK_LENGTH);
+
+        PluginReceiveTest.RecordingPlugin plugin = new PluginReceiveTest.RecordingPlugin();
+        for (int i = chunks.length - 1; i >= 0; i--)
+        {
+            assertEquals(0, plugin.dataLists.size());
+            Intent compressed = DataCompression.deflate(chunks[i], null, 0);
+            PluginReceiveTest.receive(plugin, Plugin.MSG_DATALIST,
+                                      (compressed != null ? compressed : chunks[i]).getExtras());
+        }
+        assertEquals(1, plugin.dataLists.size());
+        assertEquals(csv, plugin.dataLists.get(0));
+    }
+}
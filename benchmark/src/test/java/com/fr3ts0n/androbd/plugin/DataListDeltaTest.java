@@ -0,0 +1,124 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of incremental DATALIST updates (deltas) between host and plugin
+ */
+public class DataListDeltaTest
+{
+    private static final String LIST_1 = "RPM;Engine speed;0;rpm\nSPEED;Vehicle speed;0;km/h\n";
+    private static final String LIST_2 = "RPM;Engine speed;0;1/min\nTEMP;Coolant temp;0;C\n";
+
+    /**
+     * Create DATALIST request data of a delta
+     */
+    private static Bundle deltaList(DataList.Delta delta)
+    {
+        Bundle data = new Bundle();
+        data.putString(Plugin.EXTRA_DATA, delta.changedCsv);
+        data.putStringArray(Plugin.EXTRA_DATALIST_REMOVED, delta.removed);
+        data.putInt(Plugin.EXTRA_DATALIST_VERSION, delta.version);
+        data.putInt(Plugin.EXTRA_DATALIST_BASE_VERSION, delta.baseVersion);
+        data.putString(Plugin.EXTRA_DATA_SOURCE, "host");
+        return data;
+    }
+
+    /**
+     * Create DATALIST request data of a complete versioned list
+     */
+    private static Bundle fullList(String csv, int version)
+    {
+        Bundle data = new Bundle();
+        data.putString(Plugin.EXTRA_DATA, csv);
+        data.putInt(Plugin.EXTRA_DATALIST_VERSION, version);
+        data.putString(Plugin.EXTRA_DATA_SOURCE, "host");
+        return data;
+    }
+
+    @Test
+    public void deltaContainsChangesOnly()
+    {
+        DataList sent = new DataList();
+        DataList.Delta delta = sent.update(LIST_1);
+        assertEquals(DataList.NO_VERSION, delta.baseVersion);
+        assertEquals(1, delta.version);
+
+        delta = sent.update(LIST_2);
+        assertEquals(1, delta.baseVersion);
+        assertEquals(2, delta.version);
+        assertEquals("RPM;Engine speed;0;1/min\nTEMP;Coolant temp;0;C\n", delta.changedCsv);
+        assertEquals(1, delta.removed.length);
+        assertEquals("SPEED", delta.removed[0]);
+        // unchanged content keeps the version
+        assertNull(sent.update(LIST_2));
+        assertEquals(2, sent.getVersion());
+    }
+
+    @Test
+    public void deltaIsApplied()
+    {
+        DataList sent = new DataList();
+        sent.update(LIST_1);
+        DataList.Delta delta = sent.update(LIST_2);
+
+        PluginReceiveTest.RecordingPlugin plugin = new PluginReceiveTest.RecordingPlugin();
+        PluginReceiveTest.receive(plugin, Plugin.MSG_DATALIST, fullList(LIST_1, 1));
+        PluginReceiveTest.receive(plugin, Plugin.MSG_DATALIST, deltaList(delta));
+
+        // receiver gets the merged list
+        assertEquals(2, plugin.dataLists.size());
+        assertEquals(sent.toCsv(), plugin.dataLists.get(1));
+        assertEquals(0, plugin.resyncs());
+    }
+
+    /**
+     * A delta which is not based on the known version (i.e. missed intermediate
+     * delta, or re-created plugin) is rejected and the complete list is requested
+     */
+    @Test
+    public void versionGapRequestsResync()
+    {
+        DataList sent = new DataList();
+        sent.update(LIST_1);
+        sent.update(LIST_2);
+        DataList.Delta delta = sent.update(LIST_1);
+        assertEquals(2, delta.baseVersion);
+
+        PluginReceiveTest.RecordingPlugin plugin = new PluginReceiveTest.RecordingPlugin();
+        PluginReceiveTest.receive(plugin, Plugin.MSG_DATALIST, fullList(LIST_1, 1));
+        PluginReceiveTest.receive(plugin, Plugin.MSG_DATALIST, deltaList(delta));
+        assertEquals(1, plugin.dataLists.size());
+        assertEquals(1, plugin.resyncs());
+
+        // plugin without any list rejects deltas as well
+        plugin = new PluginReceiveTest.RecordingPlugin();
+        PluginReceiveTest.receive(plugin, Plugin.MSG_DATALIST, deltaList(delta));
+        assertEquals(0, plugin.dataLists.size());
+        assertEquals(1, plugin.resyncs());
+
+        // complete list recovers
+        PluginReceiveTest.receive(plugin, Plugin.MSG_DATALIST, fullList(sent.toCsv(), sent.getVersion()));
+        assertEquals(sent.toCsv(), plugin.dataLists.get(0));
+    }
+
+    @Test
+    public void applyRequiresMatchingBaseVersion()
+    {
+        DataList received = new DataList();
+        assertFalse(received.apply(1, 2, LIST_2, null));
+        received.setAll(LIST_1, 1);
+        assertFalse(received.apply(2, 3, LIST_2, null));
+        assertEquals(1, received.getVersion());
+        assertTrue(received.apply(1, 2, LIST_2, new String[] { "SPEED" }));
+        assertEquals(2, received.getVersion());
+        assertEquals(2, received.size());
+    }
+}
@@ -0,0 +1,201 @@
+package com.fr3ts0n.androbd.plugin;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the data ring buffer (producer / reader protocol)
+ */
+public class DataRingBufferTest
+{
+    /**
+     * Collects all read records
+     */
+    private static class Records implements DataRingBuffer.RecordHandler
+    {
+        final List<Integer> ids = new ArrayList<>();
+        final List<Long> times = new ArrayList<>();
+        final List<Double> values = new ArrayList<>();
+
+        @Override
+        public void onRecord(int id, long time, double value)
+        {
+            ids.add(id);
+            times.add(time);
+            values.add(value);
+        }
+    }
+
+    private static DataRingBuffer createRing(int capacity)
+    {
+        return DataRingBuffer.create(ByteBuffer.allocateDirect(DataRingBuffer.getBufferSize(capacity)),
+                                     capacity);
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOf2()
+    {
+        assertEquals(8, createRing(5).getCapacity());
+        assertEquals(1, createRing(1).getCapacity());
+        assertEquals(DataRingBuffer.HEADER_SIZE + 16 * DataRingBuffer.RECORD_SIZE,
+                     DataRingBuffer.getBufferSize(9));
+    }
+
+    @Test
+    public void recordsAreReadInOrderOfWriting()
+    {
+        DataRingBuffer ring = createRing(8);
+        DataRingBuffer.Reader reader = ring.newReader();
+        ring.write(1, 100, 1.5);
+        ring.write(2, 101, -2.5);
+        ring.write(1, 102, 3.0);
+
+        Records records = new Records();
+        assertEquals(3, reader.drain(records));
+        assertEquals("[1, 2, 1]", records.ids.toString());
+        assertEquals("[100, 101, 102]", records.times.toString());
+        assertEquals("[1.5, -2.5, 3.0]", records.values.toString());
+        assertEquals(0, reader.getLostRecords());
+
+        // nothing new to read
+        assertEquals(0, reader.drain(records));
+    }
+
+    @Test
+    public void newReaderStartsAtWritePosition()
+    {
+        DataRingBuffer ring = createRing(8);
+        ring.write(1, 100, 1.0);
+        DataRingBuffer.Reader reader = ring.newReader();
+        ring.write(2, 101, 2.0);
+
+        Records records = new Records();
+        assertEquals(1, reader.drain(records));
+        assertEquals("[2]", records.ids.toString());
+    }
+
+    @Test
+    public void overrunSkipsOverwrittenRecords()
+    {
+        DataRingBuffer ring = createRing(4);
+        DataRingBuffer.Reader reader = ring.newReader();
+        for (int i = 0; i < 10; i++)
+        {
+            ring.write(i, i, i);
+        }
+
+        Records records = new Records();
+        assertEquals(4, reader.drain(records));
+        assertEquals("[6, 7, 8, 9]", records.ids.toString());
+        assertEquals(6, reader.getLostRecords());
+    }
+
+    @Test
+    public void readersAreIndependent()
+    {
+        DataRingBuffer ring = createRing(8);
+        DataRingBuffer.Reader first = ring.newReader();
+        DataRingBuffer.Reader second = ring.newReader();
+        ring.write(1, 100, 1.0);
+
+        assertEquals(1, first.drain(new Records()));
+        ring.write(2, 101, 2.0);
+        assertEquals(1, first.drain(new Records()));
+        assertEquals(2, second.drain(new Records()));
+    }
+
+    @Test
+    public void consumerAttachesToReadOnlyBuffer()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(DataRingBuffer.getBufferSize(8));
+        DataRingBuffer producer = DataRingBuffer.create(buffer, 8);
+        DataRingBuffer consumer = DataRingBuffer.attach(buffer.asReadOnlyBuffer());
+        DataRingBuffer.Reader reader = consumer.newReader();
+        assertEquals(8, consumer.getCapacity());
+
+        producer.write(7, 100, 42.0);
+        Records records = new Records();
+        assertEquals(1, reader.drain(records));
+        assertEquals("[42.0]", records.values.toString());
+    }
+
+    @Test
+    public void attachRejectsUninitializedBuffer()
+    {
+        try
+        {
+            DataRingBuffer.attach(ByteBuffer.allocateDirect(DataRingBuffer.getBufferSize(8)));
+            fail("uninitialized buffer accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * A reader running concurrently with the producer must only see complete
+     * records (all fields written with the same sequence), in order of writing.
+     */
+    @Test
+    public void concurrentReaderSeesCompleteRecordsOnly() throws InterruptedException
+    {
+        final int count = 2000000;
+        final DataRingBuffer ring = createRing(64);
+        final DataRingBuffer.Reader reader = ring.newReader();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> error = new AtomicReference<>();
+        final long[] read = new long[1];
+
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                DataRingBuffer.RecordHandler handler = new DataRingBuffer.RecordHandler()
+                {
+                    long lastTime = -1;
+
+                    @Override
+                    public void onRecord(int id, long time, double value)
+                    {
+                        if (id != (int) time || value != time * 0.5 || time <= lastTime)
+                        {
+                            error.compareAndSet(null, "record " + id + "/" + time + "/" + value
+                                                      + " after " + lastTime);
+                        }
+                        lastTime = time;
+                    }
+                };
+                boolean finished;
+                do
+                {
+                    finished = done.get();
+                    read[0] += reader.drain(handler);
+                }
+                while (!finished);
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++)
+        {
+            ring.write(i, i, i * 0.5);
+        }
+        done.set(true);
+        consumer.join();
+
+        assertNull(error.get());
+        assertEquals(count, read[0] + reader.getLostRecords());
+        assertTrue(read[0] > 0);
+    }
+}
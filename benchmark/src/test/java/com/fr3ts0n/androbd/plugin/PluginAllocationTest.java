@@ -0,0 +1,145 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Message;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocation test of the plugin receive path of typed DATA requests
+ * <p>
+ * Steady state reception of a DATA batch must not allocate any objects
+ * beyond the transferred request data.
+ */
+public class PluginAllocationTest
+{
+    /** number of data items per DATA request */
+    private static final int ITEMS = 32;
+    /** number of DATA requests per measurement */
+    private static final int MESSAGES = 5000;
+    /** tolerated allocation [bytes] per measurement (i.e. lazily initialized JVM internals) */
+    private static final long TOLERANCE = 4096;
+
+    /**
+     * Plugin which consumes numeric updates
+     */
+    static class ReceivingPlugin
+            extends Plugin
+            implements Plugin.NumericDataReceiver
+    {
+        long received;
+        double sum;
+
+        @Override
+        public PluginInfo getPluginInfo()
+        {
+            return null;
+        }
+
+        @Override
+        public void onDataListUpdate(String csvString)
+        {
+        }
+
+        @Override
+        public void onDataUpdate(String key, String value)
+        {
+        }
+
+        @Override
+        public void onDataUpdate(String key, double value, long time)
+        {
+            received++;
+            sum += value;
+        }
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, -1 if not supported
+     */
+    private static long allocatedBytes()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+        {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        return threads.isThreadAllocatedMemorySupported()
+               ? threads.getThreadAllocatedBytes(Thread.currentThread().getId())
+               : -1;
+    }
+
+    /**
+     * Create DATA messages of a typed batch with increasing sequence numbers
+     */
+    private static Message[] createDataMessages(DataDictionary dictionary, int count)
+    {
+        Message[] result = new Message[count];
+        long now = System.currentTimeMillis();
+        for (int n = 0; n < count; n++)
+        {
+            DataBatch batch = new DataBatch(ITEMS);
+            for (int i = 0; i < ITEMS; i++)
+            {
+                batch.add(i, dictionary.getKey(i), n + i * 0.5, now);
+            }
+            Intent intent = new Intent(Plugin.DATA);
+            batch.writeTo(intent, true);
+            intent.putExtra(Plugin.EXTRA_DATA_SOURCE, "host");
+            intent.putExtra(Plugin.EXTRA_DATA_SEQUENCE, (long) n);
+            result[n] = Message.obtain(null, Plugin.MSG_DATA);
+            result[n].setData(intent.getExtras());
+        }
+        return result;
+    }
+
+    @Test
+    public void typedDataIsReceivedWithoutAllocation()
+    {
+        Assume.assumeTrue(allocatedBytes() >= 0);
+
+        ReceivingPlugin plugin = new ReceivingPlugin();
+
+        // data list with IDs
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < ITEMS; i++)
+        {
+            csv.append("KEY_").append(i).append(";Item ").append(i).append(";0;unit\n");
+        }
+        DataDictionary dictionary = new DataDictionary();
+        int[] ids = dictionary.registerAll(csv.toString());
+        Bundle dataList = new Bundle();
+        dataList.putString(Plugin.EXTRA_DATA, csv.toString());
+        dataList.putIntArray(Plugin.EXTRA_DATA_IDS, ids);
+        dataList.putString(Plugin.EXTRA_DATA_SOURCE, "host");
+        Message listMessage = Message.obtain(null, Plugin.MSG_DATALIST);
+        listMessage.setData(dataList);
+        assertTrue(plugin.handleMessage(listMessage));
+
+        // warm up (JIT compilation, lazy initialization of monitors / metrics)
+        Message[] messages = createDataMessages(dictionary, 5 * MESSAGES);
+        for (int n = 0; n < 4 * MESSAGES; n++)
+        {
+            plugin.handleMessage(messages[n]);
+        }
+
+        long before = allocatedBytes();
+        for (int n = 4 * MESSAGES; n < messages.length; n++)
+        {
+            plugin.handleMessage(messages[n]);
+        }
+        long allocated = allocatedBytes() - before;
+
+        assertEquals((long) messages.length * ITEMS, plugin.received);
+        assertTrue("allocated " + allocated + " bytes for " + MESSAGES + " DATA requests",
+                   allocated < TOLERANCE);
+    }
+}
@@ -0,0 +1,192 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Message;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the plugin receive path of DATALIST / DATA requests
+ */
+public class PluginReceiveTest
+{
+    /** class name of sending host */
+    private static final String HOST = "host";
+
+    /**
+     * Plugin which records received updates and sent broadcasts
+     */
+    static class RecordingPlugin
+            extends Plugin
+            implements Plugin.NumericDataReceiver
+    {
+        final List<String> dataLists = new ArrayList<>();
+        final List<String> updates = new ArrayList<>();
+        final List<Intent> broadcasts = new ArrayList<>();
+
+        @Override
+        public PluginInfo getPluginInfo()
+        {
+            return new PluginInfo("test", RecordingPlugin.class, "", "", "", "");
+        }
+
+        @Override
+        public void sendBroadcast(Intent intent)
+        {
+            broadcasts.add(intent);
+        }
+
+        @Override
+        public void onDataListUpdate(String csvString)
+        {
+            dataLists.add(csvString);
+        }
+
+        @Override
+        public void onDataUpdate(String key, String value)
+        {
+            updates.add(key + "=" + value);
+        }
+
+        @Override
+        public void onDataUpdate(String key, double value, long time)
+        {
+            updates.add(key + "=" + value);
+        }
+
+        /**
+         * @return number of sent RESYNC requests
+         */
+        int resyncs()
+        {
+            int result = 0;
+            for (Intent intent : broadcasts)
+            {
+                if (RESYNC.equals(intent.getAction()))
+                {
+                    result++;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Deliver request data to the plugin via bound transport
+     */
+    static void receive(Plugin plugin, int what, Bundle data)
+    {
+        Message msg = Message.obtain(null, what);
+        msg.setData(data);
+        plugin.handleMessage(msg);
+    }
+
+    /**
+     * Create DATALIST request data of the host with data key IDs
+     */
+    static Bundle dataList(String csv, DataDictionary dictionary)
+    {
+        Bundle data = new Bundle();
+        data.putString(Plugin.EXTRA_DATA, csv);
+        data.putIntArray(Plugin.EXTRA_DATA_IDS, dictionary.registerAll(csv));
+        data.putString(Plugin.EXTRA_DATA_SOURCE, HOST);
+        return data;
+    }
+
+    /**
+     * Create DATA request data of the host which transfers IDs instead of keys
+     */
+    static Bundle indexedData(DataDictionary dictionary, String key, double value)
+    {
+        DataBatch batch = new DataBatch(1);
+        batch.add(dictionary.getId(key), key, value, 0);
+        Intent intent = new Intent(Plugin.DATA);
+        batch.writeTo(intent, true);
+        intent.putExtra(Plugin.EXTRA_DATA_SOURCE, HOST);
+        return intent.getExtras();
+    }
+
+    /**
+     * A plugin which lost it's data key IDs (i.e. re-created after it was killed)
+     * reports ID only updates and requests the data list once until it is received.
+     */
+    @Test
+    public void unknownIdsRequestResync()
+    {
+        DataDictionary hostDictionary = new DataDictionary();
+        String csv = "RPM;Engine speed;0;rpm\nSPEED;Vehicle speed;0;km/h\n";
+        Bundle list = dataList(csv, hostDictionary);
+
+        // new plugin instance never got the data list
+        RecordingPlugin plugin = new RecordingPlugin();
+        receive(plugin, Plugin.MSG_DATA, indexedData(hostDictionary, "RPM", 800));
+        receive(plugin, Plugin.MSG_DATA, indexedData(hostDictionary, "SPEED", 50));
+        assertEquals(0, plugin.updates.size());
+        assertEquals(1, plugin.resyncs());
+        assertEquals(HOST, plugin.broadcasts.get(0).getStringExtra(Plugin.EXTRA_DATA_SOURCE));
+        assertEquals(2, plugin.getMetrics().getTotal(PluginMetrics.Action.DATA,
+                                                     PluginMetrics.Counter.DROPPED));
+
+        // data list resolves the IDs
+        receive(plugin, Plugin.MSG_DATALIST, list);
+        receive(plugin, Plugin.MSG_DATA, indexedData(hostDictionary, "RPM", 900));
+        assertEquals("[RPM=900.0]", plugin.updates.toString());
+        assertEquals(1, plugin.resyncs());
+    }
+
+    /**
+     * Plugin which only supports textual data updates
+     */
+    static class LegacyPlugin
+            extends Plugin
+            implements Plugin.DataReceiver
+    {
+        final List<String> updates = new ArrayList<>();
+
+        @Override
+        public PluginInfo getPluginInfo()
+        {
+            return new PluginInfo("legacy", LegacyPlugin.class, "", "", "", "");
+        }
+
+        @Override
+        public void onDataListUpdate(String csvString)
+        {
+        }
+
+        @Override
+        public void onDataUpdate(String key, String value)
+        {
+            updates.add(key + "=" + value);
+        }
+    }
+
+    /**
+     * Numeric updates reach receivers without numeric support formatted
+     * with DataBatch.formatNumber (integral values without fraction digits)
+     */
+    @Test
+    public void numericUpdatesAreFormattedForLegacyReceivers()
+    {
+        DataBatch batch = new DataBatch();
+        batch.add("RPM", 12, 0);
+        batch.add("TEMP", -40, 0);
+        batch.add("VOLT", 12.5, 0);
+        batch.add("GEAR", "N", 0);
+        Intent intent = new Intent(Plugin.DATA);
+        batch.writeTo(intent, false);
+        intent.putExtra(Plugin.EXTRA_DATA_SOURCE, HOST);
+
+        LegacyPlugin plugin = new LegacyPlugin();
+        receive(plugin, Plugin.MSG_DATA, intent.getExtras());
+        assertEquals("[RPM=12, TEMP=-40, VOLT=12.5, GEAR=N]", plugin.updates.toString());
+        assertEquals("1.0E20", DataBatch.formatNumber(1e20));
+        assertEquals("NaN", DataBatch.formatNumber(Double.NaN));
+    }
+}
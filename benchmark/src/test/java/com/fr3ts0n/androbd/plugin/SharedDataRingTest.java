@@ -0,0 +1,58 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the shared memory data ring
+ */
+public class SharedDataRingTest
+{
+    @Test
+    public void consumerReadsRecordsOfProducer()
+    {
+        SharedDataRing producer = SharedDataRing.create("test", 16);
+        assertNotNull(producer);
+        SharedDataRing consumer = SharedDataRing.attach(producer.getMemory());
+        assertNotNull(consumer);
+        DataRingBuffer.Reader reader = consumer.getRing().newReader();
+
+        producer.getRing().write(3, 100, 12.5);
+        final double[] value = new double[1];
+        assertEquals(1, reader.drain(new DataRingBuffer.RecordHandler()
+        {
+            @Override
+            public void onRecord(int id, long time, double v)
+            {
+                value[0] = v;
+            }
+        }));
+        assertEquals(12.5, value[0], 0);
+    }
+
+    @Test
+    public void sharedMemoryIsReadOnlyForConsumers()
+    {
+        SharedDataRing producer = SharedDataRing.create("test", 16);
+        assertNotNull(producer);
+        try
+        {
+            ((SharedMemory) producer.getMemory()).mapReadWrite();
+            fail("shared memory may be mapped writable");
+        }
+        catch (ErrnoException e)
+        {
+            // expected
+        }
+
+        // producer still writes via it's own mapping
+        producer.getRing().write(1, 100, 1.0);
+        assertEquals(1, producer.getRing().getWriteSequence());
+    }
+}
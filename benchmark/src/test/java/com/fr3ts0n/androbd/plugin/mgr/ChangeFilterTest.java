@@ -0,0 +1,83 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the change-only filter of data updates
+ */
+public class ChangeFilterTest
+{
+    private final ChangeFilter filter = new ChangeFilter();
+
+    @Before
+    public void setUp()
+    {
+        filter.configure(true, 0, 0);
+        filter.setDeadband("RPM", 10);
+        assertTrue(filter.accept("RPM", null, 800, 0));
+        assertTrue(filter.accept("GEAR", "N", Double.NaN, 0));
+    }
+
+    @Test
+    public void unchangedValuesAreSuppressed()
+    {
+        assertFalse(filter.accept("RPM", null, 805, 1));
+        assertTrue(filter.accept("RPM", null, 811, 2));
+        assertFalse(filter.accept("GEAR", "N", Double.NaN, 3));
+        assertTrue(filter.accept("GEAR", "1", Double.NaN, 4));
+        // numeric text is subject to the deadband
+        filter.setDeadband("SPEED", 1);
+        assertTrue(filter.accept("SPEED", "50", Double.NaN, 5));
+        assertFalse(filter.accept("SPEED", "50.5", Double.NaN, 6));
+        assertTrue(filter.accept("SPEED", "52", Double.NaN, 7));
+    }
+
+    /**
+     * A single restarted plugin gets the next update of every data item,
+     * all other plugins still get changes only
+     */
+    @Test
+    public void snapshotIsLimitedToSinglePlugin()
+    {
+        filter.reset("restarted");
+        assertTrue(filter.isSnapshotPending());
+
+        assertFalse(filter.accept("RPM", null, 800, 1));
+        assertTrue(filter.acceptSnapshot("restarted", "RPM"));
+        assertFalse(filter.acceptSnapshot("other", "RPM"));
+        // each data item is part of the snapshot once
+        assertFalse(filter.accept("RPM", null, 801, 2));
+        assertFalse(filter.acceptSnapshot("restarted", "RPM"));
+
+        // changed value is delivered to all plugins, which completes the snapshot
+        assertTrue(filter.accept("GEAR", "1", Double.NaN, 3));
+        assertFalse(filter.isSnapshotPending());
+        assertFalse(filter.accept("GEAR", "1", Double.NaN, 4));
+    }
+
+    @Test
+    public void snapshotCompletesWithAllDataItems()
+    {
+        filter.reset("restarted");
+        assertFalse(filter.accept("RPM", null, 800, 1));
+        assertTrue(filter.acceptSnapshot("restarted", "RPM"));
+        assertTrue(filter.isSnapshotPending());
+        assertFalse(filter.accept("GEAR", "N", Double.NaN, 2));
+        assertTrue(filter.acceptSnapshot("restarted", "GEAR"));
+        assertFalse(filter.isSnapshotPending());
+    }
+
+    @Test
+    public void globalResetDeliversToAllPlugins()
+    {
+        filter.reset("restarted");
+        filter.reset();
+        assertFalse(filter.isSnapshotPending());
+        assertTrue(filter.accept("RPM", null, 800, 1));
+        assertTrue(filter.accept("GEAR", "N", Double.NaN, 2));
+    }
+}
@@ -0,0 +1,294 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.PluginMetrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the asynchronous dispatch engine and exchange of engines
+ */
+public class DispatchEngineTest
+{
+    /**
+     * Records dispatched updates as "key=value",
+     * optionally blocks the worker at the first update until released
+     */
+    private static class Recorder implements DispatchEngine.Target
+    {
+        final List<String> dispatched = new ArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release;
+
+        Recorder(boolean blocking)
+        {
+            release = new CountDownLatch(blocking ? 1 : 0);
+        }
+
+        @Override
+        public void dispatchDataUpdate(String key, String text, double number, long time)
+        {
+            entered.countDown();
+            await(release);
+            // let callers get ahead of the worker
+            Thread.yield();
+            record(key + "=" + (text != null ? text : String.valueOf((long) number)));
+        }
+
+        synchronized void record(String entry)
+        {
+            dispatched.add(entry);
+        }
+
+        synchronized String get()
+        {
+            return dispatched.toString();
+        }
+
+        /**
+         * Control task which records it's execution
+         */
+        Runnable task(final String name)
+        {
+            return new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    record(name);
+                }
+            };
+        }
+    }
+
+    private final PluginMetrics metrics = new PluginMetrics();
+    private DispatchEngine engine;
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Start engine with a worker which is blocked at the first update "a=1"
+     */
+    private Recorder startBlocked(int capacity, DispatchEngine.OverflowPolicy policy)
+    {
+        Recorder recorder = new Recorder(true);
+        engine = new DispatchEngine(capacity, policy, recorder, metrics);
+        engine.start();
+        assertTrue(engine.post("a", null, 1, 0));
+        await(recorder.entered);
+        return recorder;
+    }
+
+    /**
+     * Start a thread which posts a data update
+     */
+    private Thread postAsync(final String key, final double number, final AtomicReference<Boolean> result)
+    {
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                result.set(engine.post(key, null, number, 0));
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Wait until thread is blocked (waiting)
+     */
+    private static void awaitBlocked(Thread thread) throws InterruptedException
+    {
+        for (int i = 0; i < 1000 && thread.getState() != Thread.State.WAITING; i++)
+        {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (engine != null)
+        {
+            engine.stop();
+        }
+    }
+
+    @Test
+    public void blockPolicyBlocksCallerUntilSpace() throws InterruptedException
+    {
+        Recorder recorder = startBlocked(2, DispatchEngine.OverflowPolicy.BLOCK);
+        assertTrue(engine.post("a", null, 2, 0));
+        assertTrue(engine.post("a", null, 3, 0));
+
+        AtomicReference<Boolean> result = new AtomicReference<>();
+        Thread caller = postAsync("a", 4, result);
+        awaitBlocked(caller);
+
+        recorder.release.countDown();
+        caller.join();
+        engine.stop();
+        assertEquals(Boolean.TRUE, result.get());
+        assertEquals("[a=1, a=2, a=3, a=4]", recorder.get());
+        assertEquals(0, engine.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestPolicyDropsOldestUpdate()
+    {
+        Recorder recorder = startBlocked(2, DispatchEngine.OverflowPolicy.DROP_OLDEST);
+        assertTrue(engine.post("a", null, 2, 0));
+        assertTrue(engine.post("b", null, 1, 0));
+        assertTrue(engine.post("a", null, 3, 0));
+
+        recorder.release.countDown();
+        engine.stop();
+        assertEquals("[a=1, b=1, a=3]", recorder.get());
+        assertEquals(1, engine.getDroppedCount());
+        assertEquals(1, metrics.getTotal(PluginMetrics.Action.DATA, PluginMetrics.Counter.DROPPED));
+    }
+
+    @Test
+    public void conflatePolicyReplacesQueuedUpdateOfSameKey()
+    {
+        Recorder recorder = startBlocked(2, DispatchEngine.OverflowPolicy.CONFLATE);
+        assertTrue(engine.post("a", null, 2, 0));
+        assertTrue(engine.post("b", null, 1, 0));
+        // replaces a=2 at it's queue position
+        assertTrue(engine.post("a", null, 3, 0));
+        // no queued update of c, so oldest update (a=3) is dropped
+        assertTrue(engine.post("c", null, 1, 0));
+
+        recorder.release.countDown();
+        engine.stop();
+        assertEquals("[a=1, b=1, c=1]", recorder.get());
+        assertEquals(1, engine.getConflatedCount());
+        assertEquals(1, engine.getDroppedCount());
+    }
+
+    @Test
+    public void controlTasksAreNeverDropped()
+    {
+        Recorder recorder = startBlocked(1, DispatchEngine.OverflowPolicy.DROP_OLDEST);
+        assertTrue(engine.post(recorder.task("list")));
+        assertTrue(engine.post("a", null, 2, 0));
+        assertTrue(engine.post("a", null, 3, 0));
+
+        recorder.release.countDown();
+        engine.stop();
+        assertEquals("[a=1, list, a=3]", recorder.get());
+    }
+
+    @Test
+    public void postAfterStopIsRejected()
+    {
+        Recorder recorder = new Recorder(false);
+        engine = new DispatchEngine(4, DispatchEngine.OverflowPolicy.BLOCK, recorder, metrics);
+        engine.start();
+        assertTrue(engine.post("a", null, 1, 0));
+        engine.stop();
+
+        assertFalse(engine.isRunning());
+        assertFalse(engine.post("a", null, 2, 0));
+        assertFalse(engine.post(recorder.task("list")));
+        assertEquals("[a=1]", recorder.get());
+    }
+
+    @Test
+    public void blockedCallerIsRejectedOnStop() throws InterruptedException
+    {
+        final Recorder recorder = startBlocked(1, DispatchEngine.OverflowPolicy.BLOCK);
+        assertTrue(engine.post("a", null, 2, 0));
+        AtomicReference<Boolean> result = new AtomicReference<>();
+        Thread caller = postAsync("a", 3, result);
+        awaitBlocked(caller);
+
+        // stop waits for the blocked worker, but wakes up the blocked caller
+        Thread stopper = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                engine.stop();
+            }
+        });
+        stopper.start();
+        caller.join();
+        assertEquals(Boolean.FALSE, result.get());
+
+        recorder.release.countDown();
+        stopper.join();
+        assertEquals("[a=1, a=2]", recorder.get());
+        assertEquals(0, engine.getDroppedCount());
+    }
+
+    /**
+     * Updates and control tasks of a single caller are dispatched completely
+     * and in order while the dispatch engine gets exchanged concurrently
+     */
+    @Test
+    public void exchangeOfEnginePreservesOrder() throws InterruptedException
+    {
+        final int count = 20000;
+        final Recorder recorder = new Recorder(false);
+        final Dispatcher dispatcher = new Dispatcher(recorder, metrics);
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Thread producer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    if (i % 100 == 0)
+                        dispatcher.post(recorder.task("k=" + i));
+                    else
+                        dispatcher.post("k", null, i, 0);
+                }
+                done.set(true);
+            }
+        });
+        producer.start();
+
+        int[] capacities = { 64, 0, 1, 256 };
+        for (int i = 0; !done.get(); i++)
+        {
+            dispatcher.setEngine(capacities[i % capacities.length],
+                                 DispatchEngine.OverflowPolicy.BLOCK);
+        }
+        producer.join();
+        dispatcher.setEngine(0, DispatchEngine.OverflowPolicy.BLOCK);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            expected.add("k=" + i);
+        }
+        assertEquals(expected.toString(), recorder.get());
+    }
+}
@@ -0,0 +1,353 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * Batch of data updates
+ * <p>
+ * Collects multiple data updates to be transferred within
+ * a single DATA message, instead of one message per update.
+ * <p>
+ * Each update is either numeric or textual:
+ * - Numeric values are transferred as primitive double without any formatting
+ * - Textual values are transferred as string, numeric value is NaN
+ */
+public class DataBatch
+{
+    /** default initial capacity of a batch */
+    static final int DEFAULT_CAPACITY = 16;
+    /** max. magnitude of numeric values which are formatted as integral values */
+    private static final double MAX_INTEGRAL = 1e15;
+
+    /** IDs of collected updates ({@link DataDictionary#NO_ID} if unknown) */
+    private int[] ids;
+    /** keys of collected updates */
+    private String[] keys;
+    /** textual values of collected updates (null for numeric updates) */
+    private String[] texts;
+    /** numeric values of collected updates (NaN for textual updates) */
+    private double[] numbers;
+    /** timestamps [ms] of collected updates */
+    private long[] times;
+    /** number of collected updates */
+    private int size = 0;
+    /** number of received updates which were skipped due to unknown IDs */
+    private int unresolved = 0;
+
+    /**
+     * Construct batch with default capacity
+     */
+    public DataBatch()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct batch with specified initial capacity
+     *
+     * @param capacity initial number of updates to be held without re-allocation
+     */
+    public DataBatch(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        ids = new int[capacity];
+        keys = new String[capacity];
+        texts = new String[capacity];
+        numbers = new double[capacity];
+        times = new long[capacity];
+    }
+
+    /**
+     * Add a textual data update to the batch
+     *
+     * @param key Key of data change
+     * @param value New value of data change
+     * @param time Timestamp [ms] of data change
+     */
+    public void add(String key, String value, long time)
+    {
+        add(DataDictionary.NO_ID, key, value, time);
+    }
+
+    /**
+     * Add a textual data update with known key ID to the batch
+     *
+     * @param id ID of data item ({@link DataDictionary#NO_ID} if unknown)
+     * @param key Key of data change
+     * @param value New value of data change
+     * @param time Timestamp [ms] of data change
+     */
+    public void add(int id, String key, String value, long time)
+    {
+        int index = append(id, key, time);
+        texts[index] = value;
+        numbers[index] = Double.NaN;
+    }
+
+    /**
+     * Add a numeric data update to the batch
+     *
+     * @param key Key of data change
+     * @param value New value of data change
+     * @param time Timestamp [ms] of data change
+     */
+    public void add(String key, double value, long time)
+    {
+        add(DataDictionary.NO_ID, key, value, time);
+    }
+
+    /**
+     * Add a numeric data update with known key ID to the batch
+     *
+     * @param id ID of data item ({@link DataDictionary#NO_ID} if unknown)
+     * @param key Key of data change
+     * @param value New value of data change
+     * @param time Timestamp [ms] of data change
+     */
+    public void add(int id, String key, double value, long time)
+    {
+        int index = append(id, key, time);
+        texts[index] = null;
+        numbers[index] = value;
+    }
+
+    /**
+     * Append a new entry to the batch
+     *
+     * @param id ID of data item
+     * @param key Key of data change
+     * @param time Timestamp [ms] of data change
+     * @return index of new entry
+     */
+    private int append(int id, String key, long time)
+    {
+        if (size == keys.length)
+        {
+            int capacity = keys.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        ids[size] = id;
+        keys[size] = key;
+        times[size] = time;
+        return size++;
+    }
+
+    /**
+     * @return number of updates in this batch
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return true if batch does not contain any updates
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Remove all updates from batch (capacity is retained)
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(texts, 0, size, null);
+        size = 0;
+        unresolved = 0;
+    }
+
+    /**
+     * Get number of received updates which were skipped, because their
+     * ID could not be resolved (see {@link #readFrom(Bundle, DataDictionary, DataBatch)})
+     * This indicates that the data list of the sender is not known (anymore).
+     *
+     * @return number of skipped updates
+     */
+    public int getUnresolvedCount()
+    {
+        return unresolved;
+    }
+
+    /**
+     * @param index index of update within batch
+     * @return ID of update at specified index ({@link DataDictionary#NO_ID} if unknown)
+     */
+    public int getId(int index)
+    {
+        return ids[index];
+    }
+
+    /**
+     * @param index index of update within batch
+     * @return key of update at specified index
+     */
+    public String getKey(int index)
+    {
+        return keys[index];
+    }
+
+    /**
+     * @param index index of update within batch
+     * @return true if update at specified index is numeric
+     */
+    public boolean isNumeric(int index)
+    {
+        return texts[index] == null;
+    }
+
+    /**
+     * @param index index of update within batch
+     * @return numeric value of update at specified index (NaN for textual updates)
+     */
+    public double getNumber(int index)
+    {
+        return numbers[index];
+    }
+
+    /**
+     * Get value of update as string
+     * Numeric values are converted with {@link #formatNumber(double)}
+     *
+     * @param index index of update within batch
+     * @return value of update at specified index
+     */
+    public String getValue(int index)
+    {
+        return texts[index] != null ? texts[index] : formatNumber(numbers[index]);
+    }
+
+    /**
+     * Format a numeric value for receivers which only support textual values
+     * <p>
+     * Integral values are formatted without fraction digits (i.e. "12" rather
+     * than "12.0"), as they are usually provided as text. All other values are
+     * formatted as with {@link String#valueOf(double)}.
+     *
+     * @param value numeric value
+     * @return textual value
+     */
+    public static String formatNumber(double value)
+    {
+        return value == Math.rint(value) && Math.abs(value) < MAX_INTEGRAL
+               ? Long.toString((long) value)
+               : String.valueOf(value);
+    }
+
+    /**
+     * @param index index of update within batch
+     * @return timestamp [ms] of update at specified index
+     */
+    public long getTime(int index)
+    {
+        return times[index];
+    }
+
+    /**
+     * Attach batch content to a DATA intent
+     *
+     * @param intent Intent to attach batch data to
+     * @param withIds Transfer IDs instead of keys for all updates with known ID
+     */
+    public void writeTo(Intent intent, boolean withIds)
+    {
+        String[] keyData = Arrays.copyOf(keys, size);
+        if (withIds)
+        {
+            // keys are only required for updates without known ID
+            for (int i = 0; i < size; i++)
+            {
+                if (ids[i] != DataDictionary.NO_ID)
+                {
+                    keyData[i] = null;
+                }
+            }
+            intent.putExtra(Plugin.EXTRA_DATA_IDS, Arrays.copyOf(ids, size));
+        }
+        intent.putExtra(Plugin.EXTRA_DATA_KEYS, keyData);
+        intent.putExtra(Plugin.EXTRA_DATA_VALUES, Arrays.copyOf(texts, size));
+        intent.putExtra(Plugin.EXTRA_DATA_NUMBERS, Arrays.copyOf(numbers, size));
+        intent.putExtra(Plugin.EXTRA_DATA_TIMES, Arrays.copyOf(times, size));
+    }
+
+    /**
+     * Read batch content from a DATA intent
+     *
+     * @param intent Intent to read batch data from
+     * @param dictionary Dictionary to resolve keys of transferred IDs
+     * @return batch of received updates, or null if intent does not contain a batch
+     */
+    public static DataBatch readFrom(Intent intent, DataDictionary dictionary)
+    {
+        Bundle extras = intent.getExtras();
+        return extras != null ? readFrom(extras, dictionary, null) : null;
+    }
+
+    /**
+     * Read batch content from DATA request data
+     * (intent extras / message data)
+     * <p>
+     * Updates with IDs which can't be resolved are skipped and
+     * counted (see {@link #getUnresolvedCount()}).
+     *
+     * @param data Request data to read batch data from
+     * @param dictionary Dictionary to resolve keys of transferred IDs
+     * @param result Batch to be (cleared and) re-used for received updates,
+     *               or null to allocate a new batch
+     * @return batch of received updates, or null if data does not contain a batch
+     */
+    public static DataBatch readFrom(Bundle data, DataDictionary dictionary, DataBatch result)
+    {
+        int[] ids = data.getIntArray(Plugin.EXTRA_DATA_IDS);
+        String[] keys = data.getStringArray(Plugin.EXTRA_DATA_KEYS);
+        String[] texts = data.getStringArray(Plugin.EXTRA_DATA_VALUES);
+        double[] numbers = data.getDoubleArray(Plugin.EXTRA_DATA_NUMBERS);
+        long[] times = data.getLongArray(Plugin.EXTRA_DATA_TIMES);
+        if (keys == null || texts == null || numbers == null || times == null)
+        {
+            return null;
+        }
+
+        if (result == null)
+            result = new DataBatch(keys.length);
+        else
+            result.clear();
+
+        int count = Math.min(Math.min(keys.length, texts.length),
+                             Math.min(numbers.length, times.length));
+        for (int i = 0; i < count; i++)
+        {
+            int id = (ids != null && i < ids.length) ? ids[i] : DataDictionary.NO_ID;
+            String key = keys[i];
+            if (key == null)
+            {
+                key = dictionary.getKey(id);
+                // skip updates which can't be resolved
+                if (key == null)
+                {
+                    result.unresolved++;
+                    continue;
+                }
+            }
+            else if (id == DataDictionary.NO_ID)
+            {
+                id = dictionary.getId(key);
+            }
+
+            if (texts[i] != null)
+                result.add(id, key, texts[i], times[i]);
+            else
+                result.add(id, key, numbers[i], times[i]);
+        }
+        return result;
+    }
+}
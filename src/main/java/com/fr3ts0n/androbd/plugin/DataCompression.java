@@ -0,0 +1,398 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed encoding of DATALIST / DATA requests
+ * <p>
+ * All textual extras of a request (CSV data, keys, values, removed items) are
+ * deflated into a single {@link Plugin#EXTRA_DEFLATED} block. A data list which
+ * is known to sender and receiver may be used as preset dictionary, which
+ * makes mnemonics, units and descriptions cheap to transfer
+ * (see {@link Plugin#EXTRA_DICTIONARY_VERSION}).
+ * Numeric arrays (IDs, numbers, timestamps) are transferred unchanged.
+ */
+public final class DataCompression
+{
+    /** Min. size [bytes] of textual extras to be compressed */
+    public static final int MIN_SIZE = 512;
+    /** Max. size [bytes] of preset dictionary (size of deflate window) */
+    static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+    /**
+     * Max. size [bytes] of inflated textual extras
+     * (size of binder transaction buffer, uncompressed requests can't be larger either).
+     * Larger compressed blocks are rejected, so a tiny malicious block can't exhaust the heap.
+     */
+    public static final int MAX_INFLATED_SIZE = 1024 * 1024;
+
+    /** textual extras which are compressed */
+    private static final String[] TEXT_EXTRAS =
+    {
+        Plugin.EXTRA_DATA,
+        Plugin.EXTRA_DATA_KEYS,
+        Plugin.EXTRA_DATA_VALUES,
+        Plugin.EXTRA_DATALIST_REMOVED,
+    };
+
+    /** entry types of compressed block */
+    private static final int TYPE_STRING = 0;
+    private static final int TYPE_STRING_ARRAY = 1;
+
+    /** character set of compressed text */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private DataCompression()
+    {
+    }
+
+    /**
+     * Create preset dictionary from a CSV data list
+     *
+     * @param csvData CSV encoded data list
+     * @return preset dictionary (tail of data list within deflate window)
+     */
+    public static byte[] dictionaryOf(String csvData)
+    {
+        byte[] data = csvData.getBytes(UTF_8);
+        return data.length <= MAX_DICTIONARY_SIZE
+               ? data
+               : Arrays.copyOfRange(data, data.length - MAX_DICTIONARY_SIZE, data.length);
+    }
+
+    /**
+     * Check if request data is compressed
+     *
+     * @param data Request data (intent extras / message data)
+     * @return true if request data contains a compressed block
+     */
+    public static boolean isCompressed(Bundle data)
+    {
+        return data.getByteArray(Plugin.EXTRA_DEFLATED) != null;
+    }
+
+    /**
+     * Estimate size of all textual extras
+     *
+     * @param data Request data (intent extras / message data)
+     * @return estimated payload bytes of textual extras
+     */
+    public static int textSize(Bundle data)
+    {
+        int result = 0;
+        for (String name : TEXT_EXTRAS)
+        {
+            Object value = data.get(name);
+            if (value instanceof String)
+            {
+                result += PluginMetrics.sizeOf((String) value);
+            }
+            else if (value instanceof String[])
+            {
+                for (String item : (String[]) value)
+                {
+                    result += PluginMetrics.sizeOf(item);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimate payload size of a compressed request
+     *
+     * @param original   Original request intent
+     * @param compressed Compressed copy of request intent
+     * @param bytes      Payload bytes (estimated) of original request
+     * @return payload bytes (estimated) of compressed request
+     */
+    public static int compressedSize(Intent original, Intent compressed, int bytes)
+    {
+        return bytes
+               - textSize(original.getExtras())
+               + compressed.getByteArrayExtra(Plugin.EXTRA_DEFLATED).length;
+    }
+
+    /**
+     * Create compressed copy of a request intent
+     *
+     * @param intent            Request intent to be compressed
+     * @param dictionary        Preset dictionary (null = no dictionary)
+     * @param dictionaryVersion Version of data list the dictionary was created from
+     * @return compressed copy of request intent, or null if request is
+     *         too small / too large or compression is not beneficial
+     */
+    public static Intent deflate(Intent intent, byte[] dictionary, int dictionaryVersion)
+    {
+        Bundle data = intent.getExtras();
+        int size = data != null ? textSize(data) : 0;
+        if (size < MIN_SIZE)
+        {
+            return null;
+        }
+
+        byte[] block;
+        try
+        {
+            byte[] encoded = encode(data);
+            // receiver would reject it
+            if (encoded.length > MAX_INFLATED_SIZE)
+            {
+                return null;
+            }
+            block = deflate(encoded, dictionary);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        if (block.length >= size)
+        {
+            return null;
+        }
+
+        Intent result = new Intent(intent);
+        for (String name : TEXT_EXTRAS)
+        {
+            result.removeExtra(name);
+        }
+        result.putExtra(Plugin.EXTRA_DEFLATED, block);
+        if (dictionary != null)
+        {
+            result.putExtra(Plugin.EXTRA_DICTIONARY_VERSION, dictionaryVersion);
+        }
+        return result;
+    }
+
+    /**
+     * Restore textual extras of compressed request data (in place)
+     *
+     * @param data       Compressed request data (intent extras / message data)
+     * @param dictionary Preset dictionary (as announced with {@link Plugin#EXTRA_DICTIONARY_VERSION})
+     * @throws DataFormatException if the compressed block is invalid,
+     *                             the dictionary does not match, or the
+     *                             inflated size exceeds {@link #MAX_INFLATED_SIZE}
+     */
+    public static void inflate(Bundle data, byte[] dictionary)
+        throws DataFormatException
+    {
+        byte[] block = data.getByteArray(Plugin.EXTRA_DEFLATED);
+        if (block == null)
+        {
+            return;
+        }
+
+        try
+        {
+            decode(inflate(block, dictionary), data);
+        }
+        catch (IOException e)
+        {
+            throw new DataFormatException(e.getMessage());
+        }
+        data.remove(Plugin.EXTRA_DEFLATED);
+        data.remove(Plugin.EXTRA_DICTIONARY_VERSION);
+    }
+
+    /**
+     * Serialize textual extras
+     *
+     * @param data Request data
+     * @return serialized textual extras
+     */
+    private static byte[] encode(Bundle data) throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        for (String name : TEXT_EXTRAS)
+        {
+            Object value = data.get(name);
+            if (value instanceof String)
+            {
+                out.writeByte(TYPE_STRING);
+                out.writeUTF(name);
+                writeString(out, (String) value);
+            }
+            else if (value instanceof String[])
+            {
+                String[] values = (String[]) value;
+                out.writeByte(TYPE_STRING_ARRAY);
+                out.writeUTF(name);
+                out.writeInt(values.length);
+                for (String item : values)
+                {
+                    writeString(out, item);
+                }
+            }
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * De-serialize textual extras
+     *
+     * @param encoded Serialized textual extras
+     * @param data    Request data to restore textual extras into
+     */
+    private static void decode(byte[] encoded, Bundle data) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        while (in.available() > 0)
+        {
+            int type = in.readByte();
+            String name = in.readUTF();
+            switch (type)
+            {
+                case TYPE_STRING:
+                    data.putString(name, readString(in));
+                    break;
+
+                case TYPE_STRING_ARRAY:
+                    // every item takes at least its length field
+                    int count = in.readInt();
+                    if (count < 0 || count > in.available() / 4)
+                    {
+                        throw new IOException("Invalid array length: " + count);
+                    }
+                    String[] values = new String[count];
+                    for (int i = 0; i < values.length; i++)
+                    {
+                        values[i] = readString(in);
+                    }
+                    data.putStringArray(name, values);
+                    break;
+
+                default:
+                    throw new IOException("Invalid entry type: " + type);
+            }
+        }
+    }
+
+    /**
+     * Write a string of any length (null allowed)
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a string as written by {@link #writeString}
+     */
+    private static String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        if (length > in.available())
+        {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Deflate data with optional preset dictionary
+     */
+    private static byte[] deflate(byte[] data, byte[] dictionary)
+    {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try
+        {
+            if (dictionary != null)
+            {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished())
+            {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflate data with optional preset dictionary
+     */
+    private static byte[] inflate(byte[] data, byte[] dictionary)
+        throws DataFormatException
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                (int) Math.min((long) data.length * 4, MAX_INFLATED_SIZE));
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished())
+            {
+                // stop before the heap is exhausted by a deflate bomb
+                int length = inflater.inflate(buffer, 0, Math.min(buffer.length,
+                                                                  MAX_INFLATED_SIZE + 1 - out.size()));
+                if (out.size() + length > MAX_INFLATED_SIZE)
+                {
+                    throw new DataFormatException("Inflated size exceeds " + MAX_INFLATED_SIZE);
+                }
+                if (length == 0)
+                {
+                    if (inflater.needsDictionary())
+                    {
+                        if (dictionary == null)
+                        {
+                            throw new DataFormatException("Missing dictionary");
+                        }
+                        try
+                        {
+                            inflater.setDictionary(dictionary);
+                        }
+                        catch (IllegalArgumentException e)
+                        {
+                            throw new DataFormatException("Dictionary mismatch");
+                        }
+                    }
+                    else if (inflater.needsInput())
+                    {
+                        throw new DataFormatException("Truncated data");
+                    }
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
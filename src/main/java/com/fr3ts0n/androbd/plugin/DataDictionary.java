@@ -0,0 +1,169 @@
+package com.fr3ts0n.androbd.plugin;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of data keys
+ * <p>
+ * Maps data item mnemonics to stable integer IDs and back.
+ * The host assigns IDs when sending the DATALIST, receivers define the
+ * same mapping when receiving it. Subsequent DATA messages only carry
+ * the IDs, which allows array indexed lookup of data items.
+ */
+public class DataDictionary
+{
+    /** ID of keys which are not known within the dictionary */
+    public static final int NO_ID = -1;
+
+    /** IDs by key */
+    private final Map<String, Integer> ids = new HashMap<>();
+    /** keys by ID */
+    private String[] keys = new String[64];
+    /** data item descriptors (CSV lines of DATALIST) by ID */
+    private String[] descriptors = new String[64];
+    /** number of ID slots in use (highest ID + 1) */
+    private int size = 0;
+
+    /**
+     * Register a key and get it's stable ID
+     * If the key is already known, the existing ID is kept and
+     * only the descriptor gets updated.
+     *
+     * @param key Key (mnemonic) of data item
+     * @param descriptor Descriptor (CSV line) of data item
+     * @return ID of registered key
+     */
+    public synchronized int register(String key, String descriptor)
+    {
+        Integer id = ids.get(key);
+        if (id == null)
+        {
+            id = size;
+            define(id, key, descriptor);
+        }
+        else
+        {
+            descriptors[id] = descriptor;
+        }
+        return id;
+    }
+
+    /**
+     * Register all data items of a CSV data list
+     *
+     * @param csvData CSV encoded data list (one line per data item)
+     * @return IDs of all data items in order of CSV lines
+     */
+    public synchronized int[] registerAll(String csvData)
+    {
+        String[] lines = csvData.split("\n");
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i++)
+        {
+            result[i] = register(getMnemonic(lines[i]), lines[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Define mapping of a specific ID to a key
+     *
+     * @param id ID of data item
+     * @param key Key (mnemonic) of data item
+     * @param descriptor Descriptor (CSV line) of data item
+     */
+    public synchronized void define(int id, String key, String descriptor)
+    {
+        if (id >= keys.length)
+        {
+            int capacity = Math.max(keys.length * 2, id + 1);
+            keys = Arrays.copyOf(keys, capacity);
+            descriptors = Arrays.copyOf(descriptors, capacity);
+        }
+        // remove previous mapping of this ID
+        if (keys[id] != null)
+        {
+            ids.remove(keys[id]);
+        }
+        keys[id] = key;
+        descriptors[id] = descriptor;
+        ids.put(key, id);
+        size = Math.max(size, id + 1);
+    }
+
+    /**
+     * Define mappings of all data items of a CSV data list
+     *
+     * @param csvData CSV encoded data list (one line per data item)
+     * @param dataIds IDs of data items in order of CSV lines
+     */
+    public synchronized void defineAll(String csvData, int[] dataIds)
+    {
+        String[] lines = csvData.split("\n");
+        for (int i = 0; i < Math.min(lines.length, dataIds.length); i++)
+        {
+            define(dataIds[i], getMnemonic(lines[i]), lines[i]);
+        }
+    }
+
+    /**
+     * @param key Key (mnemonic) of data item
+     * @return ID of data item, or {@link #NO_ID} if key is unknown
+     */
+    public synchronized int getId(String key)
+    {
+        Integer id = ids.get(key);
+        return id != null ? id : NO_ID;
+    }
+
+    /**
+     * @param id ID of data item
+     * @return Key (mnemonic) of data item, or null if ID is unknown
+     */
+    public synchronized String getKey(int id)
+    {
+        return (id >= 0 && id < size) ? keys[id] : null;
+    }
+
+    /**
+     * @param id ID of data item
+     * @return Descriptor (CSV line) of data item, or null if ID is unknown
+     */
+    public synchronized String getDescriptor(int id)
+    {
+        return (id >= 0 && id < size) ? descriptors[id] : null;
+    }
+
+    /**
+     * @return number of ID slots in use (highest ID + 1)
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Remove all mappings
+     */
+    public synchronized void clear()
+    {
+        ids.clear();
+        Arrays.fill(keys, null);
+        Arrays.fill(descriptors, null);
+        size = 0;
+    }
+
+    /**
+     * Get mnemonic of a CSV data list line
+     *
+     * @param csvLine CSV line of a data item
+     * @return mnemonic field of CSV line
+     */
+    static String getMnemonic(String csvLine)
+    {
+        int end = csvLine.indexOf(';');
+        return end < 0 ? csvLine : csvLine.substring(0, end);
+    }
+}
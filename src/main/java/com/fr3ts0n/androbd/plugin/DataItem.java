@@ -0,0 +1,148 @@
+package com.fr3ts0n.androbd.plugin;
+
+/**
+ * Descriptor of a single data item as announced with DATALIST
+ * <p>
+ * Immutable representation of one CSV line of a data list
+ * (see {@link Plugin.CsvField} for the field order).
+ */
+public final class DataItem
+{
+    /** CSV fields in order of data list line */
+    private static final Plugin.CsvField[] FIELDS = Plugin.CsvField.values();
+
+    /** Position of data item within data list */
+    public final int index;
+    /** Mnemonic (key) of data item */
+    public final String mnemonic;
+    /** Description of data item (null if not provided) */
+    public final String description;
+    /** minimum value (NaN if not numeric / not provided) */
+    public final double min;
+    /** maximum value (NaN if not numeric / not provided) */
+    public final double max;
+    /** measurement units (null if not provided) */
+    public final String units;
+
+    /**
+     * Constructor
+     *
+     * @param index       Position of data item within data list
+     * @param mnemonic    Mnemonic (key) of data item
+     * @param description Description of data item
+     * @param min         minimum value
+     * @param max         maximum value
+     * @param units       measurement units
+     */
+    public DataItem(int index, String mnemonic, String description, double min, double max, String units)
+    {
+        this.index = index;
+        this.mnemonic = mnemonic;
+        this.description = description;
+        this.min = min;
+        this.max = max;
+        this.units = units;
+    }
+
+    /**
+     * @return true if data item has a numeric MIN/MAX range
+     */
+    public boolean hasRange()
+    {
+        return !Double.isNaN(min) && !Double.isNaN(max);
+    }
+
+    /**
+     * Parse a single CSV line of a data list
+     * <p>
+     * Fields are scanned in place, so no intermediate field array is created.
+     *
+     * @param csv   CSV encoded data list
+     * @param start Start position of line within data list
+     * @param end   End position (exclusive) of line within data list
+     * @param index Position of data item within data list
+     * @return Descriptor of data item
+     */
+    static DataItem parse(String csv, int start, int end, int index)
+    {
+        String mnemonic = null;
+        String description = null;
+        String units = null;
+        double min = Double.NaN;
+        double max = Double.NaN;
+
+        int pos = start;
+        for (Plugin.CsvField field : FIELDS)
+        {
+            if (pos > end)
+            {
+                break;
+            }
+            int fieldEnd = csv.indexOf(';', pos);
+            if (fieldEnd < 0 || fieldEnd > end)
+            {
+                fieldEnd = end;
+            }
+            switch (field)
+            {
+                case MNEMONIC:
+                    mnemonic = csv.substring(pos, fieldEnd);
+                    break;
+                case DESCRIPTION:
+                    description = csv.substring(pos, fieldEnd);
+                    break;
+                case MIN:
+                    min = parseNumber(csv, pos, fieldEnd);
+                    break;
+                case MAX:
+                    max = parseNumber(csv, pos, fieldEnd);
+                    break;
+                case UNITS:
+                    units = csv.substring(pos, fieldEnd);
+                    break;
+            }
+            pos = fieldEnd + 1;
+        }
+
+        return new DataItem(index, mnemonic, description, min, max, units);
+    }
+
+    /**
+     * Parse a numeric CSV field
+     *
+     * @param csv   CSV encoded data list
+     * @param start Start position of field
+     * @param end   End position (exclusive) of field
+     * @return numeric value, or NaN if field is not numeric
+     */
+    private static double parseNumber(String csv, int start, int end)
+    {
+        // skip surrounding blanks without creating a trimmed copy first
+        while (start < end && csv.charAt(start) <= ' ')
+        {
+            start++;
+        }
+        while (end > start && csv.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+        if (start == end)
+        {
+            return Double.NaN;
+        }
+        try
+        {
+            return Double.parseDouble(csv.substring(start, end));
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return mnemonic;
+    }
+}
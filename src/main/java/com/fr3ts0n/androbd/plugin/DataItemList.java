@@ -0,0 +1,136 @@
+package com.fr3ts0n.androbd.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed data list
+ * <p>
+ * Immutable list of {@link DataItem} descriptors of a specific data list version.
+ * Data items may be looked up by position or by mnemonic in constant time.
+ */
+public final class DataItemList
+{
+    /** empty data list */
+    public static final DataItemList EMPTY = new DataItemList(DataList.NO_VERSION, "", new ArrayList<DataItem>());
+
+    /** version of data list ({@link DataList#NO_VERSION} if unversioned) */
+    private final int version;
+    /** CSV encoding of data list */
+    private final String csv;
+    /** data items in order of list */
+    private final DataItem[] items;
+    /** data items by mnemonic */
+    private final Map<String, DataItem> byMnemonic;
+
+    /**
+     * Constructor
+     *
+     * @param version Version of data list
+     * @param csv     CSV encoding of data list
+     * @param items   Data items in order of list
+     */
+    private DataItemList(int version, String csv, List<DataItem> items)
+    {
+        this.version = version;
+        this.csv = csv;
+        this.items = items.toArray(new DataItem[0]);
+        byMnemonic = new HashMap<>(this.items.length * 2);
+        for (DataItem item : this.items)
+        {
+            byMnemonic.put(item.mnemonic, item);
+        }
+    }
+
+    /**
+     * Parse CSV encoded data list
+     * <p>
+     * Lines and fields are scanned in place, so no intermediate line / field arrays
+     * are created. Empty lines are skipped.
+     *
+     * @param csvData CSV encoded data list (one line per data item, may be null)
+     * @param version Version of data list ({@link DataList#NO_VERSION} if unversioned)
+     * @return parsed data list
+     */
+    public static DataItemList parse(String csvData, int version)
+    {
+        if (csvData == null)
+        {
+            csvData = "";
+        }
+
+        List<DataItem> items = new ArrayList<>();
+        int length = csvData.length();
+        int start = 0;
+        while (start < length)
+        {
+            int end = csvData.indexOf('\n', start);
+            if (end < 0)
+            {
+                end = length;
+            }
+            // tolerate CR/LF line endings
+            int lineEnd = end > start && csvData.charAt(end - 1) == '\r' ? end - 1 : end;
+            if (lineEnd > start)
+            {
+                items.add(DataItem.parse(csvData, start, lineEnd, items.size()));
+            }
+            start = end + 1;
+        }
+        return new DataItemList(version, csvData, items);
+    }
+
+    /**
+     * @return version of data list ({@link DataList#NO_VERSION} if unversioned)
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return number of data items
+     */
+    public int size()
+    {
+        return items.length;
+    }
+
+    /**
+     * @param index Position of data item
+     * @return Data item at specified position
+     */
+    public DataItem get(int index)
+    {
+        return items[index];
+    }
+
+    /**
+     * @param mnemonic Mnemonic (key) of data item
+     * @return Data item with specified mnemonic, or null if unknown
+     */
+    public DataItem get(String mnemonic)
+    {
+        return byMnemonic.get(mnemonic);
+    }
+
+    /**
+     * @param mnemonic Mnemonic (key) of data item
+     * @return Position of data item, or -1 if unknown
+     */
+    public int indexOf(String mnemonic)
+    {
+        DataItem item = byMnemonic.get(mnemonic);
+        return item != null ? item.index : -1;
+    }
+
+    /**
+     * @return CSV encoding of data list
+     */
+    public String toCsv()
+    {
+        return csv;
+    }
+}
@@ -0,0 +1,223 @@
+package com.fr3ts0n.androbd.plugin;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Monitor of DATA delivery latency and message gaps
+ * <p>
+ * Records the latency [ms] between origin timestamp of data updates
+ * (as set by the sender) and their reception per source and per data key.
+ * Sequence numbers of received DATA messages are checked per source
+ * to detect lost messages.
+ */
+public class DataLatencyMonitor
+{
+    /** Source name of DATA messages without source information */
+    public static final String UNKNOWN_SOURCE = "?";
+
+    /**
+     * Reception statistics of a single source
+     */
+    private static class Source
+    {
+        /** sequence number of last received message (-1 = none) */
+        long lastSequence = -1;
+        /** number of detected gaps */
+        long gaps = 0;
+        /** number of missed messages */
+        long missed = 0;
+        /** number of sequence restarts (i.e. restart of sender) */
+        long restarts = 0;
+        /** latency of all data keys */
+        final LatencyHistogram latency = new LatencyHistogram();
+        /** latency by data key */
+        final Map<String, LatencyHistogram> keyLatency = new HashMap<>();
+    }
+
+    /** statistics by source name */
+    private final Map<String, Source> sources = new HashMap<>();
+
+    /**
+     * Check sequence number of a received DATA message
+     *
+     * @param source   Name of sending component
+     * @param sequence Sequence number of message (negative if unknown)
+     * @return number of messages which were missed since the previous message
+     */
+    public synchronized long onMessage(String source, long sequence)
+    {
+        if (sequence < 0)
+        {
+            return 0;
+        }
+
+        Source src = getSource(source);
+        long missed = 0;
+        if (src.lastSequence >= 0)
+        {
+            if (sequence > src.lastSequence + 1)
+            {
+                missed = sequence - src.lastSequence - 1;
+                src.missed += missed;
+                src.gaps++;
+            }
+            else if (sequence <= src.lastSequence)
+            {
+                // sender has restarted it's sequence
+                src.restarts++;
+            }
+        }
+        src.lastSequence = sequence;
+        return missed;
+    }
+
+    /**
+     * Record delivery latency of a data update
+     *
+     * @param source  Name of sending component
+     * @param key     Key of data item
+     * @param latency Latency [ms] between origin and reception
+     */
+    public synchronized void record(String source, String key, long latency)
+    {
+        Source src = getSource(source);
+        src.latency.record(latency);
+        LatencyHistogram keyLatency = src.keyLatency.get(key);
+        if (keyLatency == null)
+        {
+            keyLatency = new LatencyHistogram();
+            src.keyLatency.put(key, keyLatency);
+        }
+        keyLatency.record(latency);
+    }
+
+    /**
+     * @return Names of all sources with received data (sorted)
+     */
+    public synchronized String[] getSources()
+    {
+        String[] result = sources.keySet().toArray(new String[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @param source Name of source
+     * @return Keys of all data items received from source (sorted)
+     */
+    public synchronized String[] getKeys(String source)
+    {
+        Source src = sources.get(source);
+        if (src == null)
+        {
+            return new String[0];
+        }
+        String[] result = src.keyLatency.keySet().toArray(new String[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @param source Name of source
+     * @return Latency [ms] of all data items received from source (null if unknown)
+     */
+    public synchronized LatencyHistogram getLatency(String source)
+    {
+        Source src = sources.get(source);
+        return src != null ? src.latency : null;
+    }
+
+    /**
+     * @param source Name of source
+     * @param key    Key of data item
+     * @return Latency [ms] of data item received from source (null if unknown)
+     */
+    public synchronized LatencyHistogram getLatency(String source, String key)
+    {
+        Source src = sources.get(source);
+        return src != null ? src.keyLatency.get(key) : null;
+    }
+
+    /**
+     * @param source Name of source
+     * @return number of detected sequence gaps of source
+     */
+    public synchronized long getGapCount(String source)
+    {
+        Source src = sources.get(source);
+        return src != null ? src.gaps : 0;
+    }
+
+    /**
+     * @param source Name of source
+     * @return number of missed messages of source
+     */
+    public synchronized long getMissedCount(String source)
+    {
+        Source src = sources.get(source);
+        return src != null ? src.missed : 0;
+    }
+
+    /**
+     * @param source Name of source
+     * @return number of sequence restarts of source
+     */
+    public synchronized long getRestartCount(String source)
+    {
+        Source src = sources.get(source);
+        return src != null ? src.restarts : 0;
+    }
+
+    /**
+     * Reset all statistics
+     */
+    public synchronized void reset()
+    {
+        sources.clear();
+    }
+
+    /**
+     * Format statistics of all sources (one line per source)
+     */
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder result = new StringBuilder();
+        for (String name : getSources())
+        {
+            Source src = sources.get(name);
+            if (result.length() > 0)
+            {
+                result.append('\n');
+            }
+            result.append(name)
+                  .append(": ").append(src.latency.toString())
+                  .append(" gaps=").append(src.gaps)
+                  .append(" missed=").append(src.missed);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Get (or create) statistics of a source
+     *
+     * @param source Name of source (null = unknown)
+     * @return statistics of source
+     */
+    private Source getSource(String source)
+    {
+        if (source == null)
+        {
+            source = UNKNOWN_SOURCE;
+        }
+        Source src = sources.get(source);
+        if (src == null)
+        {
+            src = new Source();
+            sources.put(source, src);
+        }
+        return src;
+    }
+}
@@ -0,0 +1,258 @@
+package com.fr3ts0n.androbd.plugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned list of data items
+ * <p>
+ * Holds the descriptors (CSV lines) of all data items by mnemonic.
+ * The sender increments the version with every change of the list and
+ * transfers only the changes (delta) against the previous version.
+ * Receivers apply deltas to keep a merged view of the list, a delta
+ * against a different base version requires a full resend (RESYNC).
+ */
+public class DataList
+{
+    /** version of a list which was never received / is unversioned */
+    public static final int NO_VERSION = -1;
+
+    /**
+     * Changes between two versions of a data list
+     */
+    public static class Delta
+    {
+        /** version the delta is based on */
+        public final int baseVersion;
+        /** version after applying the delta */
+        public final int version;
+        /** CSV lines of added / modified data items (empty if none) */
+        public final String changedCsv;
+        /** mnemonics of removed data items */
+        public final String[] removed;
+
+        Delta(int baseVersion, int version, String changedCsv, String[] removed)
+        {
+            this.baseVersion = baseVersion;
+            this.version = version;
+            this.changedCsv = changedCsv;
+            this.removed = removed;
+        }
+    }
+
+    /** descriptors (CSV lines) by mnemonic, in order of list */
+    private final Map<String, String> items = new LinkedHashMap<>();
+    /** current version of list */
+    private int version = NO_VERSION;
+    /** cached CSV encoding of complete list (null if outdated) */
+    private String csv = "";
+    /** cached parsed data items of current version (null if outdated) */
+    private DataItemList parsedItems = DataItemList.EMPTY;
+    /** cached compression dictionary of current version (null if outdated) */
+    private byte[] dictionary = null;
+
+    /**
+     * @return current version of list ({@link #NO_VERSION} if unknown)
+     */
+    public synchronized int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return number of data items within list
+     */
+    public synchronized int size()
+    {
+        return items.size();
+    }
+
+    /**
+     * @param key Mnemonic of data item
+     * @return Descriptor (CSV line) of data item, or null if unknown
+     */
+    public synchronized String getDescriptor(String key)
+    {
+        return items.get(key);
+    }
+
+    /**
+     * @return CSV encoding of complete list (one line per data item)
+     */
+    public synchronized String toCsv()
+    {
+        if (csv == null)
+        {
+            StringBuilder result = new StringBuilder();
+            for (String line : items.values())
+            {
+                result.append(line).append('\n');
+            }
+            csv = result.toString();
+        }
+        return csv;
+    }
+
+    /**
+     * Get parsed data items of current version
+     * The list is parsed only once per version.
+     *
+     * @return parsed data items
+     */
+    public synchronized DataItemList getItems()
+    {
+        if (parsedItems == null)
+        {
+            parsedItems = DataItemList.parse(toCsv(), version);
+        }
+        return parsedItems;
+    }
+
+    /**
+     * Get preset dictionary for compressed requests of current version
+     * (see {@link DataCompression})
+     *
+     * @return compression dictionary
+     */
+    public synchronized byte[] getDictionary()
+    {
+        if (dictionary == null)
+        {
+            dictionary = DataCompression.dictionaryOf(toCsv());
+        }
+        return dictionary;
+    }
+
+    /**
+     * Replace list with new content (sender side)
+     * The version is incremented if the content has changed.
+     *
+     * @param csvData CSV encoded data list (one line per data item)
+     * @return Changes against the previous version, or null if content is unchanged
+     */
+    public synchronized Delta update(String csvData)
+    {
+        Map<String, String> newItems = parse(csvData);
+
+        StringBuilder changed = new StringBuilder();
+        for (Map.Entry<String, String> entry : newItems.entrySet())
+        {
+            if (!entry.getValue().equals(items.get(entry.getKey())))
+            {
+                changed.append(entry.getValue()).append('\n');
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String key : items.keySet())
+        {
+            if (!newItems.containsKey(key))
+            {
+                removed.add(key);
+            }
+        }
+        // a change of the order only does not require a delta
+        if (changed.length() == 0 && removed.isEmpty() && version != NO_VERSION)
+        {
+            return null;
+        }
+
+        int baseVersion = version;
+        items.clear();
+        items.putAll(newItems);
+        version = Math.max(version, 0) + 1;
+        csv = null;
+        parsedItems = null;
+        dictionary = null;
+        return new Delta(baseVersion, version, changed.toString(), removed.toArray(new String[0]));
+    }
+
+    /**
+     * Set complete list content (receiver side)
+     *
+     * @param csvData CSV encoded data list (one line per data item)
+     * @param version Version of list ({@link #NO_VERSION} if unversioned)
+     */
+    public synchronized void setAll(String csvData, int version)
+    {
+        items.clear();
+        items.putAll(parse(csvData));
+        this.version = version;
+        csv = null;
+        parsedItems = null;
+        dictionary = null;
+    }
+
+    /**
+     * Apply delta to list (receiver side)
+     *
+     * @param baseVersion Version the delta is based on
+     * @param version     Version after applying the delta
+     * @param changedCsv  CSV lines of added / modified data items
+     * @param removed     Mnemonics of removed data items (may be null)
+     * @return true if delta was applied,
+     *         false if delta doesn't match current version (full resend required)
+     */
+    public synchronized boolean apply(int baseVersion, int version, String changedCsv, String[] removed)
+    {
+        if (this.version == NO_VERSION || baseVersion != this.version)
+        {
+            return false;
+        }
+
+        if (removed != null)
+        {
+            for (String key : removed)
+            {
+                items.remove(key);
+            }
+        }
+        items.putAll(parse(changedCsv));
+        this.version = version;
+        csv = null;
+        parsedItems = null;
+        dictionary = null;
+        return true;
+    }
+
+    /**
+     * Remove all data items
+     */
+    public synchronized void clear()
+    {
+        items.clear();
+        version = NO_VERSION;
+        csv = "";
+        parsedItems = DataItemList.EMPTY;
+        dictionary = null;
+    }
+
+    /**
+     * Parse CSV data list into descriptors by mnemonic
+     *
+     * @param csvData CSV encoded data list (may be null)
+     * @return descriptors by mnemonic in order of list
+     */
+    private static Map<String, String> parse(String csvData)
+    {
+        Map<String, String> result = new LinkedHashMap<>();
+        int length = csvData != null ? csvData.length() : 0;
+        int start = 0;
+        while (start < length)
+        {
+            int end = csvData.indexOf('\n', start);
+            if (end < 0)
+            {
+                end = length;
+            }
+            if (end > start)
+            {
+                String line = csvData.substring(start, end);
+                result.put(DataDictionary.getMnemonic(line), line);
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,243 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chunked transfer of large DATALIST requests
+ * <p>
+ * Data lists which exceed {@link #MAX_CHUNK_LENGTH} are split into several
+ * DATALIST requests to stay well below the binder transaction limit.
+ * Every chunk carries a transfer ID, it's index and the total number of chunks
+ * ({@link Plugin#EXTRA_CHUNK_ID}, {@link Plugin#EXTRA_CHUNK_INDEX},
+ * {@link Plugin#EXTRA_CHUNK_COUNT}). The receiver collects all chunks of a transfer
+ * per sender and re-assembles the original request. Incomplete transfers
+ * are dropped after {@link #TIMEOUT}.
+ */
+public class DataListChunks
+{
+    /** Max. number of characters of CSV data per chunk */
+    public static final int MAX_CHUNK_LENGTH = 32 * 1024;
+    /** Max. time [ms] between first and last chunk of a transfer */
+    public static final long TIMEOUT = 5000;
+
+    /** ID of next sent transfer */
+    private static final AtomicInteger nextTransferId = new AtomicInteger();
+
+    /**
+     * Chunks of a transfer which is currently being received
+     */
+    private static class Transfer
+    {
+        /** ID of transfer */
+        final int id;
+        /** time [ms] of first received chunk */
+        final long started;
+        /** CSV data of received chunks by index */
+        final String[] parts;
+        /** merged extras of all received chunks */
+        final Bundle extras = new Bundle();
+        /** number of received chunks */
+        int received = 0;
+
+        Transfer(int id, int count, long started)
+        {
+            this.id = id;
+            this.parts = new String[count];
+            this.started = started;
+        }
+    }
+
+    /** transfers currently being received by source */
+    private final Map<String, Transfer> transfers = new HashMap<>();
+
+    /**
+     * Check if request data is a chunk of a chunked transfer
+     *
+     * @param data Request data (intent extras / message data)
+     * @return true if data is a chunk
+     */
+    public static boolean isChunk(Bundle data)
+    {
+        return data.getInt(Plugin.EXTRA_CHUNK_COUNT, 0) > 0;
+    }
+
+    /**
+     * Split a DATALIST request intent into chunks (if required)
+     * <p>
+     * CSV data is preferably split at line boundaries. Data IDs and removed
+     * items are only attached to the first chunk, all other extras are kept
+     * with every chunk.
+     *
+     * @param intent    DATALIST request intent (with class name / categories set)
+     * @param maxLength Max. number of characters of CSV data per chunk
+     * @return chunk intents in order of transfer
+     *         (the original intent if no chunking is required)
+     */
+    public static Intent[] split(Intent intent, int maxLength)
+    {
+        String csvData = intent.getStringExtra(Plugin.EXTRA_DATA);
+        if (csvData == null || csvData.length() <= maxLength)
+        {
+            return new Intent[] { intent };
+        }
+
+        List<String> parts = splitText(csvData, maxLength);
+        int transferId = nextTransferId.getAndIncrement();
+        Intent[] result = new Intent[parts.size()];
+        for (int i = 0; i < result.length; i++)
+        {
+            Intent chunk = new Intent(intent);
+            if (i > 0)
+            {
+                // larger extras are only transferred once
+                chunk.removeExtra(Plugin.EXTRA_DATA_IDS);
+                chunk.removeExtra(Plugin.EXTRA_DATALIST_REMOVED);
+            }
+            chunk.putExtra(Plugin.EXTRA_DATA, parts.get(i));
+            chunk.putExtra(Plugin.EXTRA_CHUNK_ID, transferId);
+            chunk.putExtra(Plugin.EXTRA_CHUNK_INDEX, i);
+            chunk.putExtra(Plugin.EXTRA_CHUNK_COUNT, result.length);
+            result[i] = chunk;
+        }
+        return result;
+    }
+
+    /**
+     * Split text into parts of limited length
+     *
+     * @param text      Text to be split
+     * @param maxLength Max. number of characters per part
+     * @return parts of text in order
+     */
+    static List<String> splitText(String text, int maxLength)
+    {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        while (start < text.length())
+        {
+            int end = Math.min(start + maxLength, text.length());
+            if (end < text.length())
+            {
+                // prefer splitting after complete lines
+                int lineEnd = text.lastIndexOf('\n', end - 1);
+                if (lineEnd >= start)
+                {
+                    end = lineEnd + 1;
+                }
+                else if (Character.isHighSurrogate(text.charAt(end - 1)))
+                {
+                    // never split a surrogate pair
+                    end--;
+                }
+            }
+            result.add(text.substring(start, end));
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Add a received chunk
+     *
+     * @param source Class name of sender (null if unknown)
+     * @param chunk  Received chunk (intent extras / message data)
+     * @param now    Current time [ms]
+     * @return re-assembled request data if transfer is complete, null otherwise
+     */
+    public synchronized Bundle add(String source, Bundle chunk, long now)
+    {
+        int id = chunk.getInt(Plugin.EXTRA_CHUNK_ID);
+        int index = chunk.getInt(Plugin.EXTRA_CHUNK_INDEX);
+        int count = chunk.getInt(Plugin.EXTRA_CHUNK_COUNT);
+        if (index < 0 || index >= count)
+        {
+            return null;
+        }
+
+        // a new transfer replaces an incomplete one of the same sender
+        Transfer transfer = transfers.get(source);
+        if (transfer == null
+            || transfer.id != id
+            || transfer.parts.length != count)
+        {
+            transfer = new Transfer(id, count, now);
+            transfers.put(source, transfer);
+        }
+
+        if (transfer.parts[index] == null)
+        {
+            transfer.received++;
+        }
+        transfer.parts[index] = chunk.getString(Plugin.EXTRA_DATA);
+        chunk.remove(Plugin.EXTRA_DATA);
+        transfer.extras.putAll(chunk);
+        if (transfer.received < count)
+        {
+            return null;
+        }
+
+        // transfer complete
+        transfers.remove(source);
+        StringBuilder csvData = new StringBuilder();
+        for (String part : transfer.parts)
+        {
+            if (part != null)
+            {
+                csvData.append(part);
+            }
+        }
+        Bundle result = transfer.extras;
+        result.remove(Plugin.EXTRA_CHUNK_ID);
+        result.remove(Plugin.EXTRA_CHUNK_INDEX);
+        result.remove(Plugin.EXTRA_CHUNK_COUNT);
+        result.putString(Plugin.EXTRA_DATA, csvData.toString());
+        return result;
+    }
+
+    /**
+     * Drop all transfers which were not completed in time
+     *
+     * @param now Current time [ms]
+     * @return merged extras of all received chunks of dropped transfers
+     */
+    public synchronized List<Bundle> expire(long now)
+    {
+        List<Bundle> result = new ArrayList<>();
+        Iterator<Transfer> it = transfers.values().iterator();
+        while (it.hasNext())
+        {
+            Transfer transfer = it.next();
+            if (now - transfer.started >= TIMEOUT)
+            {
+                result.add(transfer.extras);
+                it.remove();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if any transfer is currently being received
+     */
+    public synchronized boolean isPending()
+    {
+        return !transfers.isEmpty();
+    }
+
+    /**
+     * @param source Class name of sender (null if unknown)
+     * @return true if a transfer of the sender is currently being received
+     */
+    public synchronized boolean isPending(String source)
+    {
+        return transfers.containsKey(source);
+    }
+}
@@ -0,0 +1,311 @@
+package com.fr3ts0n.androbd.plugin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ring buffer of numeric data updates
+ * <p>
+ * Single producer / multi consumer ring buffer of fixed size records
+ * (key ID, timestamp, value) within a {@link ByteBuffer}.
+ * The buffer may be backed by shared memory, to transfer high rate data
+ * without any per-update IPC. Each consumer uses an own {@link Reader}
+ * with an individual read position.
+ * <p>
+ * Buffer layout:
+ * <pre>
+ * Header:  int magic, int capacity, long write sequence, 16 bytes reserved
+ * Records: long stamp, int id, int reserved, long time, double value
+ * </pre>
+ * The stamp of a record holds the sequence number it was written with.
+ * Readers validate the stamp before and after reading a record to detect
+ * records which were overwritten while reading (sequence lock).
+ * <p>
+ * Memory ordering: The buffer is accessed with plain reads / writes, which may
+ * be reordered by compiler and CPU. Producer and readers therefore separate the
+ * stamp and record accesses with full memory fences (see {@link Fence}):
+ * - producer: invalidate stamp, fence, write record, fence, publish stamp,
+ *   fence, publish write sequence
+ * - reader: read write sequence, fence, read stamp, fence, read record,
+ *   fence, re-read stamp
+ * So a reader which sees a matching stamp before and after reading a record
+ * has read the complete record as published by the producer, also if the
+ * buffer is shared with other processes / CPUs.
+ */
+public class DataRingBuffer
+{
+    /** magic number to identify a valid buffer */
+    static final int MAGIC = 0x414f4452;
+
+    /** size of buffer header */
+    static final int HEADER_SIZE = 32;
+    /** size of a single record */
+    public static final int RECORD_SIZE = 32;
+
+    /* header offsets */
+    static final int OFS_MAGIC = 0;
+    static final int OFS_CAPACITY = 4;
+    static final int OFS_WRITE_SEQ = 8;
+
+    /* record offsets */
+    static final int OFS_STAMP = 0;
+    static final int OFS_ID = 8;
+    static final int OFS_TIME = 16;
+    static final int OFS_VALUE = 24;
+
+    /** stamp of a record which is currently being written */
+    static final long STAMP_WRITING = -1;
+
+    /** Buffer holding ring data */
+    private final ByteBuffer buffer;
+    /** Number of records within ring */
+    private final int capacity;
+    /** Mask to calculate record index from sequence */
+    private final int mask;
+    /** Sequence of next record to be written (producer only) */
+    private long writeSeq;
+    /** Memory fence of producer */
+    private final Fence fence = new Fence();
+
+    /**
+     * Full memory fence
+     * <p>
+     * All memory accesses before the fence are ordered before all memory accesses
+     * after the fence. A store of a volatile field followed by a load of the same
+     * field provides this on all architectures (ART / HotSpot emit dmb or stlr + ldar
+     * on ARM, and a locked instruction on x86), and also applies to the plain accesses
+     * of a buffer which is shared with other processes.
+     * (VarHandle fences would require Java 9 / Android 13)
+     */
+    static final class Fence
+    {
+        /** volatile field which is accessed by the fence */
+        private volatile int barrier;
+
+        /**
+         * Apply fence
+         *
+         * @return value of barrier field (to be ignored)
+         */
+        int apply()
+        {
+            barrier = 0;
+            return barrier;
+        }
+    }
+
+    /**
+     * Handler of records read from ring buffer
+     */
+    public interface RecordHandler
+    {
+        /**
+         * Handle a single record
+         *
+         * @param id ID of data item
+         * @param time Timestamp [ms] of data change
+         * @param value New value of data change
+         */
+        void onRecord(int id, long time, double value);
+    }
+
+    /**
+     * Get required buffer size for a ring with specified number of records
+     *
+     * @param capacity Number of records (rounded up to next power of 2)
+     * @return required buffer size in bytes
+     */
+    public static int getBufferSize(int capacity)
+    {
+        return HEADER_SIZE + roundUpPow2(capacity) * RECORD_SIZE;
+    }
+
+    /**
+     * Create a new ring buffer (producer side) and initialize the buffer
+     *
+     * @param buffer Buffer to hold ring data (at least {@link #getBufferSize(int)} bytes)
+     * @param capacity Number of records (rounded up to next power of 2)
+     * @return Ring buffer for writing
+     */
+    public static DataRingBuffer create(ByteBuffer buffer, int capacity)
+    {
+        capacity = roundUpPow2(capacity);
+        if (buffer.capacity() < getBufferSize(capacity))
+        {
+            throw new IllegalArgumentException("Buffer too small for " + capacity + " records");
+        }
+        buffer.putInt(OFS_CAPACITY, capacity);
+        buffer.putLong(OFS_WRITE_SEQ, 0);
+        for (int i = 0; i < capacity; i++)
+        {
+            buffer.putLong(HEADER_SIZE + i * RECORD_SIZE + OFS_STAMP, STAMP_WRITING);
+        }
+        buffer.putInt(OFS_MAGIC, MAGIC);
+        return new DataRingBuffer(buffer, capacity, 0);
+    }
+
+    /**
+     * Attach to an existing, initialized ring buffer (consumer side)
+     *
+     * @param buffer Buffer holding ring data
+     * @return Ring buffer for reading
+     */
+    public static DataRingBuffer attach(ByteBuffer buffer)
+    {
+        if (buffer.getInt(OFS_MAGIC) != MAGIC)
+        {
+            throw new IllegalArgumentException("Buffer is not an initialized ring buffer");
+        }
+        int capacity = buffer.getInt(OFS_CAPACITY);
+        if (capacity <= 0
+            || Integer.bitCount(capacity) != 1
+            || buffer.capacity() < getBufferSize(capacity))
+        {
+            throw new IllegalArgumentException("Invalid ring buffer capacity: " + capacity);
+        }
+        return new DataRingBuffer(buffer, capacity, buffer.getLong(OFS_WRITE_SEQ));
+    }
+
+    private DataRingBuffer(ByteBuffer buffer, int capacity, long writeSeq)
+    {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.writeSeq = writeSeq;
+    }
+
+    /**
+     * @return number of records within ring
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return total number of records written to the ring so far
+     */
+    public long getWriteSequence()
+    {
+        return buffer.getLong(OFS_WRITE_SEQ);
+    }
+
+    /**
+     * Write a record to the ring (producer only)
+     * The oldest record gets overwritten if the ring is full.
+     *
+     * @param id ID of data item
+     * @param time Timestamp [ms] of data change
+     * @param value New value of data change
+     */
+    public void write(int id, long time, double value)
+    {
+        long seq = writeSeq;
+        int offset = HEADER_SIZE + ((int) seq & mask) * RECORD_SIZE;
+        // invalidate record before writing
+        buffer.putLong(offset + OFS_STAMP, STAMP_WRITING);
+        fence.apply();
+        buffer.putInt(offset + OFS_ID, id);
+        buffer.putLong(offset + OFS_TIME, time);
+        buffer.putDouble(offset + OFS_VALUE, value);
+        // publish record, then publish new write position
+        fence.apply();
+        buffer.putLong(offset + OFS_STAMP, seq);
+        writeSeq = seq + 1;
+        fence.apply();
+        buffer.putLong(OFS_WRITE_SEQ, writeSeq);
+    }
+
+    /**
+     * Create a new reader, starting at current write position
+     *
+     * @return new reader of this ring
+     */
+    public Reader newReader()
+    {
+        return new Reader(getWriteSequence());
+    }
+
+    /**
+     * Reader of ring buffer records (one per consumer)
+     */
+    public class Reader
+    {
+        /** Sequence of next record to be read */
+        private long readSeq;
+        /** Number of records which were lost due to overrun */
+        private long lostRecords = 0;
+        /** Memory fence of reader */
+        private final Fence fence = new Fence();
+
+        Reader(long readSeq)
+        {
+            this.readSeq = readSeq;
+        }
+
+        /**
+         * Read all available records
+         *
+         * @param handler Handler of read records
+         * @return number of records handled
+         */
+        public int drain(RecordHandler handler)
+        {
+            int count = 0;
+            long head = getWriteSequence();
+            fence.apply();
+            while (readSeq < head)
+            {
+                // skip records which are already overwritten
+                if (head - readSeq > capacity)
+                {
+                    lostRecords += head - capacity - readSeq;
+                    readSeq = head - capacity;
+                }
+
+                int offset = HEADER_SIZE + ((int) readSeq & mask) * RECORD_SIZE;
+                long stamp = buffer.getLong(offset + OFS_STAMP);
+                fence.apply();
+                int id = buffer.getInt(offset + OFS_ID);
+                long time = buffer.getLong(offset + OFS_TIME);
+                double value = buffer.getDouble(offset + OFS_VALUE);
+                fence.apply();
+                if (stamp != readSeq || buffer.getLong(offset + OFS_STAMP) != readSeq)
+                {
+                    // record was overwritten while reading, re-sync with producer
+                    head = getWriteSequence();
+                    fence.apply();
+                    if (head - readSeq <= capacity)
+                    {
+                        // record is not published yet
+                        break;
+                    }
+                    continue;
+                }
+
+                readSeq++;
+                count++;
+                handler.onRecord(id, time, value);
+            }
+            return count;
+        }
+
+        /**
+         * @return number of records which were lost due to overrun
+         */
+        public long getLostRecords()
+        {
+            return lostRecords;
+        }
+    }
+
+    /**
+     * Round up to next power of 2
+     *
+     * @param value value to be rounded
+     * @return next power of 2 which is greater or equal to value
+     */
+    static int roundUpPow2(int value)
+    {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
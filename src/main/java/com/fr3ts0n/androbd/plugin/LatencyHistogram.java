@@ -0,0 +1,157 @@
+package com.fr3ts0n.androbd.plugin;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Histogram of latency values
+ * <p>
+ * Log-linear bucketed histogram (HdrHistogram style) with fixed memory footprint
+ * and constant recording cost. Each power of 2 range is divided into
+ * {@link #SUB_BUCKETS}/2 linear sub-buckets, which limits the relative error
+ * of reported values to 1/16 (~6%). Values below {@link #SUB_BUCKETS} are exact.
+ */
+public class LatencyHistogram
+{
+    /** number of bits to resolve within each power of 2 range */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** number of linear sub-buckets of lowest range */
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** number of sub-buckets within each higher power of 2 range */
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    /** total number of buckets to cover all positive long values */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS;
+
+    /** counts by bucket */
+    private final long[] counts = new long[BUCKETS];
+    /** total number of recorded values */
+    private long count = 0;
+    /** sum of all recorded values */
+    private long sum = 0;
+    /** min. recorded value */
+    private long min = Long.MAX_VALUE;
+    /** max. recorded value */
+    private long max = 0;
+
+    /**
+     * Record a single value
+     *
+     * @param value Value to be recorded (negative values are recorded as 0)
+     */
+    public synchronized void record(long value)
+    {
+        value = Math.max(value, 0);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public synchronized long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return min. recorded value (0 if no value was recorded)
+     */
+    public synchronized long getMin()
+    {
+        return count > 0 ? min : 0;
+    }
+
+    /**
+     * @return max. recorded value
+     */
+    public synchronized long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * @return mean of all recorded values
+     */
+    public synchronized double getMean()
+    {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * Get value at specified percentile
+     *
+     * @param percentile Percentile [0 .. 100]
+     * @return Highest value which is equivalent to the value at the percentile
+     *         (0 if no value was recorded)
+     */
+    public synchronized long getPercentile(double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long threshold = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            total += counts[i];
+            if (total >= threshold)
+            {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Remove all recorded values
+     */
+    public synchronized void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format(Locale.ROOT, "n=%d p50=%d p99=%d max=%d",
+                             count, getPercentile(50), getPercentile(99), max);
+    }
+
+    /**
+     * @param value Value to get bucket for
+     * @return index of bucket to hold specified value
+     */
+    static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * @param bucket index of bucket
+     * @return highest value which is held by specified bucket
+     */
+    static long highestValueOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int shift = bucket / HALF_SUB_BUCKETS - 1;
+        long subBucket = bucket - shift * HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
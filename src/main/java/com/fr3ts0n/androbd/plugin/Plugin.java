@@ -3,10 +3,24 @@ package com.fr3ts0n.androbd.plugin;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
 import android.os.PowerManager;
 import android.util.Log;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+
 
 /**
  * Abstract AndrOBD plugin
@@ -20,6 +34,8 @@ public abstract class Plugin
     public static final String ACTION      = "com.fr3ts0n.androbd.plugin.ACTION";
     public static final String DATALIST    = "com.fr3ts0n.androbd.plugin.DATALIST";
     public static final String DATA        = "com.fr3ts0n.androbd.plugin.DATA";
+    public static final String SUBSCRIBE   = "com.fr3ts0n.androbd.plugin.SUBSCRIBE";
+    public static final String RESYNC      = "com.fr3ts0n.androbd.plugin.RESYNC";
 
     /** CATEGORIES */
     public static final String REQUEST     = "com.fr3ts0n.androbd.plugin.REQUEST";
@@ -27,15 +43,191 @@ public abstract class Plugin
 
     /** Parameters for DATALIST / DATA (content will be csv encoded) */
     public static final String EXTRA_DATA  = "com.fr3ts0n.androbd.plugin.extra.DATA";
+    /**
+     * Parameters for typed / batched DATA (parallel arrays)
+     * - IDS:     int[] data key IDs as assigned with DATALIST (optional)
+     * - KEYS:    String[] data keys (null for entries with ID)
+     * - VALUES:  String[] textual values (null for numeric values)
+     * - NUMBERS: double[] numeric values (NaN for textual values)
+     * - TIMES:   long[] timestamps [ms]
+     */
+    public static final String EXTRA_DATA_IDS     = "com.fr3ts0n.androbd.plugin.extra.DATA_IDS";
+    public static final String EXTRA_DATA_KEYS    = "com.fr3ts0n.androbd.plugin.extra.DATA_KEYS";
+    public static final String EXTRA_DATA_VALUES  = "com.fr3ts0n.androbd.plugin.extra.DATA_VALUES";
+    public static final String EXTRA_DATA_NUMBERS = "com.fr3ts0n.androbd.plugin.extra.DATA_NUMBERS";
+    public static final String EXTRA_DATA_TIMES   = "com.fr3ts0n.androbd.plugin.extra.DATA_TIMES";
+    /**
+     * Delivery tracking of DATA messages
+     * - SOURCE:   String class name of sending component
+     * - SEQUENCE: long sequence number of message per sender and receiver
+     * Origin timestamps of updates are transferred within {@link #EXTRA_DATA_TIMES}
+     */
+    public static final String EXTRA_DATA_SOURCE   = "com.fr3ts0n.androbd.plugin.extra.DATA_SOURCE";
+    public static final String EXTRA_DATA_SEQUENCE = "com.fr3ts0n.androbd.plugin.extra.DATA_SEQUENCE";
+    /**
+     * Versioned DATALIST (see {@link DataList})
+     * - VERSION:      int version of data list after this message
+     * - BASE_VERSION: int version the delta is based on (only for deltas,
+     *                 {@link #EXTRA_DATA} then contains added / modified items only)
+     * - REMOVED:      String[] mnemonics of removed data items (only for deltas)
+     * The sender of the list is identified with {@link #EXTRA_DATA_SOURCE}
+     */
+    public static final String EXTRA_DATALIST_VERSION      = "com.fr3ts0n.androbd.plugin.extra.DATALIST_VERSION";
+    public static final String EXTRA_DATALIST_BASE_VERSION = "com.fr3ts0n.androbd.plugin.extra.DATALIST_BASE_VERSION";
+    public static final String EXTRA_DATALIST_REMOVED      = "com.fr3ts0n.androbd.plugin.extra.DATALIST_REMOVED";
+    /**
+     * Chunked DATALIST (see {@link DataListChunks})
+     * - ID:    int ID of chunked transfer (per sender)
+     * - INDEX: int index of chunk within transfer
+     * - COUNT: int total number of chunks of transfer
+     * {@link #EXTRA_DATA} then contains the part of the CSV data of this chunk
+     */
+    public static final String EXTRA_CHUNK_ID    = "com.fr3ts0n.androbd.plugin.extra.CHUNK_ID";
+    public static final String EXTRA_CHUNK_INDEX = "com.fr3ts0n.androbd.plugin.extra.CHUNK_INDEX";
+    public static final String EXTRA_CHUNK_COUNT = "com.fr3ts0n.androbd.plugin.extra.CHUNK_COUNT";
+    /**
+     * Compressed DATALIST / DATA (see {@link DataCompression})
+     * - DEFLATED:           byte[] deflated textual extras of request
+     * - DICTIONARY_VERSION: int version of the sender's data list which was used
+     *                       as preset dictionary (absent = no dictionary)
+     */
+    public static final String EXTRA_DEFLATED           = "com.fr3ts0n.androbd.plugin.extra.DEFLATED";
+    public static final String EXTRA_DICTIONARY_VERSION = "com.fr3ts0n.androbd.plugin.extra.DICTIONARY_VERSION";
+
+    /**
+     * Message codes of bound (Messenger) transport.
+     * Message data contains the same extras as the corresponding intent.
+     */
+    public static final int MSG_DATALIST    = 1;
+    public static final int MSG_DATA        = 2;
+    /** Attach to shared memory ring buffer (see {@link #EXTRA_RING_BUFFER}) */
+    public static final int MSG_RING_ATTACH = 3;
+    /** New data available within shared memory ring buffer */
+    public static final int MSG_RING_WAKEUP = 4;
+
+    /** Shared memory region of data ring buffer (Parcelable) */
+    public static final String EXTRA_RING_BUFFER = "com.fr3ts0n.androbd.plugin.extra.RING_BUFFER";
 
     /** The system power manager */
     PowerManager mgr;
-    /** Wake lock to keep service running with screen off */
-    PowerManager.WakeLock wakeLock;
+    /** Wake lock to keep service running with screen off (while there is work to do) */
+    PluginWakeLock wakeLock;
+
+    /** compile time switch for verbose logging of received requests */
+    static final boolean LOG_VERBOSE = BuildConfig.DEBUG;
 
     /** Host application info */
     protected PluginInfo hostInfo;
 
+    /** data receiver interfaces of this plugin (resolved once, null if not implemented) */
+    private final DataReceiver dataReceiver =
+        this instanceof DataReceiver ? (DataReceiver) this : null;
+    private final NumericDataReceiver numericReceiver =
+        this instanceof NumericDataReceiver ? (NumericDataReceiver) this : null;
+    private final IndexedDataReceiver indexedReceiver =
+        this instanceof IndexedDataReceiver ? (IndexedDataReceiver) this : null;
+    private final DataItemReceiver dataItemReceiver =
+        this instanceof DataItemReceiver ? (DataItemReceiver) this : null;
+
+    /** batch of received data updates (re-used with every DATA request) */
+    private final DataBatch receivedBatch = new DataBatch();
+
+    /** metrics of plugin communication */
+    private final PluginMetrics metrics = new PluginMetrics();
+    /** monitor of received DATA latency / gaps */
+    private final DataLatencyMonitor latencyMonitor = new DataLatencyMonitor();
+    /** sequence number of next sent DATA message */
+    private final AtomicLong dataSequence = new AtomicLong();
+
+    /** dictionary of data key IDs as received with DATALIST */
+    protected final DataDictionary dataDictionary = new DataDictionary();
+
+    /** merged data lists as received with DATALIST by source */
+    private final Map<String, DataList> receivedDataLists = new HashMap<>();
+    /** data list as sent with DATALIST */
+    private final DataList sentDataList = new DataList();
+    /** CSV of data list as provided (complete lists are sent unchanged) */
+    private String sentCsv = null;
+
+    /** send compressed requests (if supported by host) */
+    private volatile boolean dataCompression = false;
+
+    /** senders which were asked to re-send their data list (until it is received) */
+    private final Set<String> resyncRequested = new HashSet<>();
+
+    /** re-assembly of chunked DATALIST requests */
+    private final DataListChunks dataListChunks = new DataListChunks();
+
+    /** Handler of requests received via bound service connection */
+    private final Handler mainHandler =
+        new Handler(Looper.getMainLooper(), new Handler.Callback()
+        {
+            @Override
+            public boolean handleMessage(Message msg)
+            {
+                return Plugin.this.handleMessage(msg);
+            }
+        });
+
+    /** Messenger to receive requests via bound service connection */
+    private final Messenger messenger = new Messenger(mainHandler);
+
+    /**
+     * Handler of the thread which delivers requests
+     * (receive state is confined to this thread, so timed receive tasks run on it)
+     */
+    private volatile Handler receiveHandler = mainHandler;
+
+    /** drop chunked DATALIST transfers which did not complete in time */
+    private final Runnable chunkTimeoutTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            for (Bundle dropped : dataListChunks.expire(System.currentTimeMillis()))
+            {
+                Log.w(Plugin.this.toString(), "DATALIST transfer timed out");
+                getMetrics().add(getPeer(dropped.getString(EXTRA_DATA_SOURCE)),
+                                 PluginMetrics.Action.DATALIST, PluginMetrics.Counter.DROPPED, 1);
+                requestResync(dropped);
+            }
+            if (dataListChunks.isPending())
+            {
+                receiveHandler.postDelayed(this, DataListChunks.TIMEOUT);
+            }
+        }
+    };
+
+    /** shared memory data ring buffer (if attached) */
+    private SharedDataRing dataRing;
+    /** reader of shared memory data ring buffer */
+    private DataRingBuffer.Reader dataRingReader;
+
+    /** handler of records read from data ring buffer */
+    private final DataRingBuffer.RecordHandler ringRecordHandler = new DataRingBuffer.RecordHandler()
+    {
+        @Override
+        public void onRecord(int id, long time, double value)
+        {
+            String key = dataDictionary.getKey(id);
+            // data ring contains all data items, filter subscribed ones
+            if (key != null
+                && (subscribedKeys == null || subscribedKeys.contains(key)))
+            {
+                getLatencyMonitor().record(hostInfo != null ? hostInfo.className : null,
+                                           key, System.currentTimeMillis() - time);
+                deliverNumericUpdate(id, key, value, time);
+            }
+        }
+    };
+
+    /** dynamically subscribed data keys (null = all data items) */
+    private String[] dataSubscriptions = null;
+    /** flag if subscriptions were set dynamically (override PluginInfo.subscriptions) */
+    private boolean dynamicSubscriptions = false;
+    /** effective set of subscribed data keys (null = all data items) */
+    private Set<String> subscribedKeys = null;
+
     /** remember if header was sent already */
     protected boolean headerSent = false;
 
@@ -94,6 +286,58 @@ public abstract class Plugin
         void onDataUpdate(String key, String value);
     }
 
+    /**
+     * Plugin supports numeric data updates
+     * <p>
+     * Numeric updates are delivered without any string formatting / parsing.
+     * Textual updates are still delivered via {@link DataReceiver#onDataUpdate(String, String)}
+     */
+    public interface NumericDataReceiver extends DataReceiver
+    {
+        /**
+         * Handle numeric data update.
+         * @param key Key of data change
+         * @param value New value of data change
+         * @param time Timestamp [ms] of data change
+         */
+        void onDataUpdate(String key, double value, long time);
+    }
+
+    /**
+     * Plugin supports ID indexed data updates
+     * <p>
+     * Numeric updates of data items which are known from DATALIST are delivered
+     * with their integer ID (see {@link #getDataDictionary()}) to allow
+     * array indexed handling of data items.
+     * All other updates are delivered via {@link DataReceiver#onDataUpdate(String, String)}
+     */
+    public interface IndexedDataReceiver extends DataReceiver
+    {
+        /**
+         * Handle numeric data update of a data item with known ID.
+         * @param id ID of data item as assigned with DATALIST
+         * @param value New value of data change
+         * @param time Timestamp [ms] of data change
+         */
+        void onDataUpdate(int id, double value, long time);
+    }
+
+    /**
+     * Plugin supports parsed data list updates
+     * <p>
+     * Data lists are delivered as parsed {@link DataItem} descriptors instead of
+     * the CSV string, so {@link DataReceiver#onDataListUpdate(String)} is not called.
+     * The list is parsed once per received version and shared with the plugin.
+     */
+    public interface DataItemReceiver extends DataReceiver
+    {
+        /**
+         * Handle data list update.
+         * @param items Parsed data items of current data list version
+         */
+        void onDataListUpdate(DataItemList items);
+    }
+
     /**
      * Plugin supports data provision interface
      */
@@ -118,22 +362,43 @@ public abstract class Plugin
         void sendDataUpdate(String key, String value);
     }
 
+    /**
+     * Data provider supports numeric data updates
+     * <p>
+     * Numeric updates are transferred without any string formatting / parsing.
+     * Receivers without numeric support get the value formatted with
+     * {@link DataBatch#formatNumber(double)}.
+     */
+    public interface NumericDataProvider extends DataProvider
+    {
+        /**
+         * Send numeric data update to all enabled plugins which support DATA requests
+         *
+         * @param key Key of data change
+         * @param value New value of data change
+         */
+        void sendDataUpdate(String key, double value);
+    }
+
 	@Override
 	public void onCreate()
 	{
 		super.onCreate();
-		/* Aquire wake lock to keep service running even with screen off */
+		/* Wake lock to keep service running even with screen off,
+		 * acquired during data sessions / background work only */
 		mgr = (PowerManager)getSystemService(Context.POWER_SERVICE);
-		wakeLock = mgr.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
-		                           getClass().getSimpleName().concat(":WakeLock"));
-		wakeLock.acquire();
+		wakeLock = new PluginWakeLock(mgr.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
+		                                              getClass().getSimpleName().concat(":WakeLock")),
+		                              mainHandler);
 	}
 
 	@Override
     public void onDestroy()
     {
+        detachDataRing();
+
         /* Release wake lock since service shall be stopped ... */
-        wakeLock.release();
+        wakeLock.close();
 
         super.onDestroy();
     }
@@ -154,61 +419,619 @@ public abstract class Plugin
 
         if (intent != null)
         {
-            final String action = intent.getAction();
-            if(IDENTIFY.equals(action))
+            handleIntent(intent);
+        }
+
+        // ensure plugin lifecycle until stopService() call
+        return result;
+    }
+
+    /**
+     * Handle request message received via bound service connection
+     *
+     * @param msg Message to be handled
+     * @return true if message was handled, false otherwise
+     */
+    protected boolean handleMessage(Message msg)
+    {
+        if (wakeLock != null) wakeLock.onActivity();
+        long start = System.nanoTime();
+        int bytes;
+        switch (msg.what)
+        {
+            case MSG_DATALIST:
+                if (dataReceiver != null)
+                {
+                    bytes = handleDataList(msg.getData());
+                    getMetrics().count(getPeer(msg.getData().getString(EXTRA_DATA_SOURCE)),
+                                       PluginMetrics.Action.DATALIST,
+                                       PluginMetrics.Counter.RECEIVED, bytes, System.nanoTime() - start);
+                }
+                return true;
+
+            case MSG_DATA:
+                if (dataReceiver != null)
+                {
+                    if (LOG_VERBOSE) Log.v(toString(), "<DATA: " + msg);
+                    bytes = handleData(msg.getData());
+                    getMetrics().count(getPeer(msg.getData().getString(EXTRA_DATA_SOURCE)),
+                                       PluginMetrics.Action.DATA,
+                                       PluginMetrics.Counter.RECEIVED, bytes, System.nanoTime() - start);
+                }
+                return true;
+
+            case MSG_RING_ATTACH:
+                attachDataRing(msg.getData());
+                return true;
+
+            case MSG_RING_WAKEUP:
+                drainDataRing();
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Set handler of the thread which delivers requests to {@link #handleIntent}
+     * (default: main thread)
+     * Received data lists / dictionaries are confined to this thread,
+     * so timed receive tasks (i.e. chunk timeouts) are run on it as well.
+     *
+     * @param handler Handler of delivering thread
+     */
+    protected void setReceiveHandler(Handler handler)
+    {
+        Handler previous = receiveHandler;
+        receiveHandler = handler != null ? handler : mainHandler;
+        previous.removeCallbacks(chunkTimeoutTask);
+    }
+
+    /**
+     * Handle plugin request intent
+     *
+     * @param intent Intent to be handled
+     */
+    protected void handleIntent(Intent intent)
+    {
+        final String action = intent.getAction();
+        if (action == null)
+        {
+            return;
+        }
+
+        if (wakeLock != null) wakeLock.onActivity();
+        long start = System.nanoTime();
+        int bytes = 0;
+        switch (action)
+        {
+            case IDENTIFY:
+                if (LOG_VERBOSE) Log.v(toString(), "<IDENTIFY: " + intent);
+                handleIdentify(getApplicationContext(), intent);
+                break;
+
+            case CONFIGURE:
+                if (this instanceof ConfigurationHandler)
+                {
+                    if (LOG_VERBOSE) Log.v(toString(), "<CONFIGURE: " + intent);
+                    ((ConfigurationHandler)this).performConfigure( );
+                }
+                break;
+
+            case ACTION:
+                if (this instanceof ActionHandler)
+                {
+                    if (LOG_VERBOSE) Log.v(toString(), "<ACTION: " + intent);
+                    ((ActionHandler)this).performAction( );
+                }
+                break;
+
+            case DATALIST:
+                if (dataReceiver != null)
+                {
+                    Bundle data = intent.getExtras();
+                    if (data != null)
+                    {
+                        bytes = handleDataList(data);
+                    }
+                }
+                break;
+
+            case RESYNC:
+                // receiver of our data list has lost track of it's version
+                if (intent.hasCategory(REQUEST))
+                {
+                    if (LOG_VERBOSE) Log.v(toString(), "<RESYNC: " + intent);
+                    resendDataList();
+                }
+                break;
+
+            case DATA:
+                if (dataReceiver != null)
+                {
+                    if (LOG_VERBOSE) Log.v(toString(), "<DATA: " + intent);
+                    Bundle data = intent.getExtras();
+                    if (data != null)
+                    {
+                        bytes = handleData(data);
+                    }
+                }
+                break;
+        }
+        getMetrics().count(getPeer(intent.getStringExtra(EXTRA_DATA_SOURCE)),
+                           PluginMetrics.Action.of(action),
+                           PluginMetrics.Counter.RECEIVED, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Handle DATALIST request
+     * <p>
+     * Chunks of a chunked transfer are collected until the transfer is complete.
+     *
+     * @param data Request data (intent extras / message data)
+     * @return payload bytes (estimated) of request
+     */
+    private int handleDataList(Bundle data)
+    {
+        if (!inflateRequest(data))
+        {
+            return 0;
+        }
+        if (!DataListChunks.isChunk(data))
+        {
+            return processDataList(data);
+        }
+
+        int bytes = PluginMetrics.sizeOf(data.getString(EXTRA_DATA));
+        Bundle complete = dataListChunks.add(data.getString(EXTRA_DATA_SOURCE), data,
+                                             System.currentTimeMillis());
+        if (complete != null)
+        {
+            processDataList(complete);
+        }
+        else
+        {
+            receiveHandler.removeCallbacks(chunkTimeoutTask);
+            receiveHandler.postDelayed(chunkTimeoutTask, DataListChunks.TIMEOUT);
+        }
+        return bytes;
+    }
+
+    /**
+     * Process complete DATALIST request
+     * <p>
+     * Versioned deltas are merged into the data list of the sender, so the
+     * data receiver always gets the complete list. If a delta does not match
+     * the known version of the list, a full resend is requested instead.
+     *
+     * @param data Request data (intent extras / message data)
+     * @return payload bytes (estimated) of request
+     */
+    private int processDataList(Bundle data)
+    {
+        String dataStr = data.getString(EXTRA_DATA);
+        int[] dataIds = data.getIntArray(EXTRA_DATA_IDS);
+        int bytes = PluginMetrics.sizeOf(dataStr) + (dataIds != null ? 4 * dataIds.length : 0);
+        if (LOG_VERBOSE) Log.v(toString(), "<DATALIST: " + dataStr);
+
+        String csvString = dataStr;
+        int version = data.getInt(EXTRA_DATALIST_VERSION, DataList.NO_VERSION);
+        DataList list = getReceivedDataList(data.getString(EXTRA_DATA_SOURCE));
+        if (version != DataList.NO_VERSION
+            && data.containsKey(EXTRA_DATALIST_BASE_VERSION))
+        {
+            if (!list.apply(data.getInt(EXTRA_DATALIST_BASE_VERSION), version,
+                            dataStr, data.getStringArray(EXTRA_DATALIST_REMOVED)))
             {
-                Log.v(toString(), "<IDENTIFY: " +  intent);
-                handleIdentify(getApplicationContext(),intent);
+                Log.w(toString(), "DATALIST version mismatch: " + list.getVersion());
+                requestResync(data);
+                return bytes;
             }
+            csvString = list.toCsv();
+        }
+        else
+        {
+            list.setAll(dataStr, version);
+        }
+        resyncRequested.remove(getSourceKey(data));
+
+        if (dataStr != null && dataIds != null)
+        {
+            dataDictionary.defineAll(dataStr, dataIds);
+        }
+        deliverDataList(csvString, list);
+        return bytes;
+    }
+
+    /**
+     * Deliver a received data list to the most specific data receiver interface
+     * <p>
+     * Data items are only parsed if required by the receiver.
+     *
+     * @param csvString CSV data of complete list exactly as received
+     *                  (merged list if a delta was received)
+     * @param list      Merged data list of the sender
+     */
+    protected void deliverDataList(String csvString, DataList list)
+    {
+        if (dataItemReceiver != null)
+        {
+            dataItemReceiver.onDataListUpdate( list.getItems() );
+        }
+        else
+        {
+            dataReceiver.onDataListUpdate( csvString );
+        }
+    }
 
-            if (CONFIGURE.equals(action)
-                && this instanceof ConfigurationHandler)
+    /**
+     * Get parsed data list as most recently received from a sender
+     *
+     * @param source Class name of sender (null if unknown)
+     * @return parsed data items (empty if no data list was received)
+     */
+    public DataItemList getDataItems(String source)
+    {
+        DataList list = receivedDataLists.get(source != null ? source : DataLatencyMonitor.UNKNOWN_SOURCE);
+        return list != null ? list.getItems() : DataItemList.EMPTY;
+    }
+
+    /**
+     * Restore textual extras of a compressed request (in place)
+     * The preset dictionary is taken from the data list of the sender.
+     *
+     * @param data Request data (intent extras / message data)
+     * @return true if request data is usable, false if it could not be decompressed
+     */
+    private boolean inflateRequest(Bundle data)
+    {
+        if (!DataCompression.isCompressed(data))
+        {
+            return true;
+        }
+
+        byte[] dictionary = null;
+        int dictionaryVersion = data.getInt(EXTRA_DICTIONARY_VERSION, DataList.NO_VERSION);
+        if (dictionaryVersion != DataList.NO_VERSION)
+        {
+            DataList list = getReceivedDataList(data.getString(EXTRA_DATA_SOURCE));
+            synchronized (list)
             {
-                Log.v(toString(), "<CONFIGURE: " +  intent);
-                ((ConfigurationHandler)this).performConfigure( );
+                if (list.getVersion() == dictionaryVersion)
+                {
+                    dictionary = list.getDictionary();
+                }
             }
-
-            if (ACTION.equals(action)
-                && this instanceof ActionHandler)
+            if (dictionary == null)
             {
-                Log.v(toString(), "<ACTION: " + intent);
-                ((ActionHandler)this).performAction( );
+                Log.w(toString(), "Compression dictionary unknown: " + dictionaryVersion);
+                // request data list only once: not while it is still being received,
+                // and only with the first chunk of a chunked transfer
+                if (!dataListChunks.isPending(data.getString(EXTRA_DATA_SOURCE))
+                    && data.getInt(EXTRA_CHUNK_INDEX, 0) == 0)
+                {
+                    requestResync(data);
+                }
+                return false;
             }
+        }
 
-            if(DATALIST.equals(action)
-               && this instanceof DataReceiver)
+        try
+        {
+            DataCompression.inflate(data, dictionary);
+            return true;
+        }
+        catch (DataFormatException e)
+        {
+            Log.w(toString(), "Invalid compressed request", e);
+            return false;
+        }
+    }
+
+    /**
+     * Get (or create) merged data list of a sender
+     *
+     * @param source Class name of sender (null if unknown)
+     * @return data list of sender
+     */
+    private DataList getReceivedDataList(String source)
+    {
+        if (source == null)
+        {
+            source = DataLatencyMonitor.UNKNOWN_SOURCE;
+        }
+        DataList list = receivedDataLists.get(source);
+        if (list == null)
+        {
+            list = new DataList();
+            receivedDataLists.put(source, list);
+        }
+        return list;
+    }
+
+    /**
+     * @param data Request data (intent extras / message data)
+     * @return class name of sender of request, or {@link DataLatencyMonitor#UNKNOWN_SOURCE}
+     */
+    private static String getSourceKey(Bundle data)
+    {
+        String source = data.getString(EXTRA_DATA_SOURCE);
+        return source != null ? source : DataLatencyMonitor.UNKNOWN_SOURCE;
+    }
+
+    /**
+     * Request full resend of a data list
+     * (received DATALIST delta does not match the known version)
+     *
+     * @param data Data of DATALIST request which could not be applied
+     */
+    protected void requestResync(Bundle data)
+    {
+        Intent intent = new Intent(RESYNC);
+        intent.addCategory(RESPONSE);
+        intent.putExtra(PluginInfo.Field.CLASS.toString(), getPluginInfo().className);
+        intent.putExtra(EXTRA_DATA_SOURCE, data.getString(EXTRA_DATA_SOURCE));
+        if (LOG_VERBOSE) Log.v(toString(), ">RESYNC: " + intent);
+        sendCountedBroadcast(intent, 0);
+    }
+
+    /**
+     * Handle DATA request
+     * <p>
+     * Typed updates are unpacked into a re-used batch and forwarded
+     * without any formatting / parsing, so steady state reception does not
+     * allocate any objects beyond the transferred request data.
+     *
+     * @param data Request data (intent extras / message data)
+     * @return payload bytes (estimated) of request
+     */
+    private int handleData(Bundle data)
+    {
+        long now = System.currentTimeMillis();
+        DataLatencyMonitor monitor = getLatencyMonitor();
+        String source = data.getString(EXTRA_DATA_SOURCE);
+        // detect lost messages
+        long missed = monitor.onMessage(source, data.getLong(EXTRA_DATA_SEQUENCE, -1));
+        if (missed > 0)
+        {
+            getMetrics().add(source != null ? source : DataLatencyMonitor.UNKNOWN_SOURCE,
+                             PluginMetrics.Action.DATA, PluginMetrics.Counter.DROPPED, missed);
+        }
+        if (!inflateRequest(data))
+        {
+            return 0;
+        }
+
+        int bytes = 0;
+        String dataStr = data.getString(EXTRA_DATA);
+        if (dataStr != null)
+        {
+            // legacy key=value update
+            int separator = dataStr.indexOf('=');
+            if (separator < 0)
             {
-                Log.v(toString(), "<DATALIST: " + intent);
-                String dataStr = intent.getStringExtra(EXTRA_DATA);
-                ((DataReceiver)this).onDataListUpdate( dataStr );
+                Log.w(toString(), "DATA invalid");
+                return 0;
             }
-
-            if(DATA.equals(action)
-               && this instanceof DataReceiver)
+            String key = dataStr.substring(0, separator);
+            long[] times = data.getLongArray(EXTRA_DATA_TIMES);
+            if (times != null && times.length > 0)
             {
-                Log.v(toString(), "<DATA: " + intent);
-                String dataStr = intent.getStringExtra(EXTRA_DATA);
-                if(dataStr != null)
+                monitor.record(source, key, now - times[0]);
+            }
+            dataReceiver.onDataUpdate( key, dataStr.substring(separator + 1) );
+            bytes = PluginMetrics.sizeOf(dataStr);
+        }
+        else if (DataBatch.readFrom(data, dataDictionary, receivedBatch) != null)
+        {
+            bytes = PluginMetrics.sizeOf(receivedBatch);
+            int unresolved = receivedBatch.getUnresolvedCount();
+            if (unresolved > 0)
+            {
+                // data key IDs of sender are unknown (i.e. plugin was restarted meanwhile)
+                Log.w(toString(), "DATA with unknown IDs: " + unresolved);
+                getMetrics().add(getPeer(source), PluginMetrics.Action.DATA,
+                                 PluginMetrics.Counter.DROPPED, unresolved);
+                // request data list only once until it is received
+                if (resyncRequested.add(getSourceKey(data)))
                 {
-                    Log.v(toString(), dataStr);
-                    String[] params = dataStr.split("=");
-                    ((DataReceiver)this).onDataUpdate( params[0], params[1] );
+                    requestResync(data);
+                }
+            }
+            for (int i = 0; i < receivedBatch.size(); i++)
+            {
+                monitor.record(source, receivedBatch.getKey(i), now - receivedBatch.getTime(i));
+            }
+            // unpack batch and forward every single update
+            for (int i = 0; i < receivedBatch.size(); i++)
+            {
+                if (receivedBatch.isNumeric(i))
+                {
+                    deliverNumericUpdate( receivedBatch.getId(i),
+                                          receivedBatch.getKey(i),
+                                          receivedBatch.getNumber(i),
+                                          receivedBatch.getTime(i) );
                 }
                 else
                 {
-                    Log.w(toString(), "DATA empty");
+                    dataReceiver.onDataUpdate( receivedBatch.getKey(i), receivedBatch.getValue(i) );
                 }
             }
+            // release received values
+            receivedBatch.clear();
+        }
+        else
+        {
+            Log.w(toString(), "DATA empty");
         }
+        return bytes;
+    }
 
-        // ensure plugin lifecycle until stopService() call
-        return result;
+    /**
+     * Deliver numeric data update to the most specific data receiver interface
+     *
+     * @param id ID of data item ({@link DataDictionary#NO_ID} if unknown)
+     * @param key Key of data change
+     * @param value New value of data change
+     * @param time Timestamp [ms] of data change
+     */
+    private void deliverNumericUpdate(int id, String key, double value, long time)
+    {
+        if (id != DataDictionary.NO_ID && indexedReceiver != null)
+        {
+            indexedReceiver.onDataUpdate( id, value, time );
+        }
+        else if (numericReceiver != null)
+        {
+            numericReceiver.onDataUpdate( key, value, time );
+        }
+        else if (dataReceiver != null)
+        {
+            dataReceiver.onDataUpdate( key, DataBatch.formatNumber(value) );
+        }
+    }
+
+    /**
+     * Attach to shared memory data ring buffer
+     *
+     * @param data Message data containing shared memory region
+     */
+    private void attachDataRing(Bundle data)
+    {
+        detachDataRing();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1 && data != null)
+        {
+            dataRing = SharedDataRing.attach(data.getParcelable(EXTRA_RING_BUFFER));
+            if (dataRing != null)
+            {
+                // start reading at current write position
+                dataRingReader = dataRing.getRing().newReader();
+                if (LOG_VERBOSE) Log.v(toString(), "<RING_ATTACH: " + dataRing.getRing().getCapacity());
+            }
+        }
+    }
+
+    /**
+     * Detach from shared memory data ring buffer
+     */
+    private void detachDataRing()
+    {
+        if (dataRing != null)
+        {
+            dataRing.close();
+            dataRing = null;
+            dataRingReader = null;
+        }
+    }
+
+    /**
+     * Read all pending data updates from shared memory data ring buffer
+     */
+    private void drainDataRing()
+    {
+        if (dataRingReader != null)
+        {
+            long start = System.nanoTime();
+            long lost = dataRingReader.getLostRecords();
+            int records = dataRingReader.drain(ringRecordHandler);
+            PluginMetrics metrics = getMetrics();
+            String peer = getPeer(null);
+            metrics.count(peer, PluginMetrics.Action.DATA, PluginMetrics.Counter.RECEIVED,
+                          records * DataRingBuffer.RECORD_SIZE, System.nanoTime() - start);
+            metrics.add(peer, PluginMetrics.Action.DATA, PluginMetrics.Counter.DROPPED,
+                        dataRingReader.getLostRecords() - lost);
+        }
     }
 
+    /**
+     * Bind to plugin service
+     *
+     * @param intent Intent which was used to bind to the service
+     * @return Binder of messenger to receive DATALIST / DATA requests
+     */
     @Override
     public IBinder onBind(Intent intent)
     {
-        return null;
+        return messenger.getBinder();
+    }
+
+    /**
+     * Get metrics of plugin communication
+     * (messages sent to / received from host application)
+     *
+     * @return metrics of this plugin
+     */
+    public PluginMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Get wake lock policy of this plugin
+     * <p>
+     * The CPU is kept awake during data sessions with the host. Subclasses which
+     * perform own background work shall hold a reference while doing so:
+     * <pre>
+     * getWakeLock().acquire(timeout);
+     * try { ... } finally { getWakeLock().release(); }
+     * </pre>
+     *
+     * @return wake lock policy (null before service creation)
+     */
+    public PluginWakeLock getWakeLock()
+    {
+        return wakeLock;
+    }
+
+    /**
+     * Get monitor of received DATA latency and lost messages
+     *
+     * @return latency monitor of this plugin
+     */
+    public DataLatencyMonitor getLatencyMonitor()
+    {
+        return latencyMonitor;
+    }
+
+    /**
+     * Send a broadcast and count it within metrics
+     *
+     * @param intent Intent to be broadcast
+     * @param bytes  Payload bytes (estimated) of intent
+     */
+    private void sendCountedBroadcast(Intent intent, int bytes)
+    {
+        long start = System.nanoTime();
+        sendBroadcast(intent);
+        getMetrics().count(getPeer(null), PluginMetrics.Action.of(intent.getAction()),
+                           PluginMetrics.Counter.SENT, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Get name of communication peer to count metrics for
+     *
+     * @param source Class name of sender of a request (null if unknown)
+     * @return sender, class name of host (if known), or {@link PluginMetrics#GLOBAL}
+     */
+    private String getPeer(String source)
+    {
+        if (source != null)
+        {
+            return source;
+        }
+        PluginInfo host = hostInfo;
+        return host != null ? host.className : PluginMetrics.GLOBAL;
+    }
+
+    /**
+     * Get dictionary of data key IDs as received with DATALIST
+     *
+     * @return data dictionary with ID to key / descriptor mapping
+     */
+    public DataDictionary getDataDictionary()
+    {
+        return dataDictionary;
     }
 
     /**
@@ -242,41 +1065,322 @@ public abstract class Plugin
         // remember broadcasting host application
         hostInfo = new PluginInfo(intent.getExtras());
 
+        // announce dynamic subscriptions instead of static ones
+        PluginInfo info = getPluginInfo();
+        Bundle infoBundle = info.toBundle();
+        if (dynamicSubscriptions)
+        {
+            infoBundle.putStringArray(PluginInfo.Field.SUBSCRIPTIONS.toString(), dataSubscriptions);
+        }
+        else
+        {
+            setSubscribedKeys(info.subscriptions);
+        }
+
         // create identify response to broadcast origin
         Intent identifyIntent = new Intent(IDENTIFY);
         identifyIntent.addCategory(RESPONSE);
-        identifyIntent.putExtras(getPluginInfo().toBundle());
+        identifyIntent.putExtras(infoBundle);
         Log.v(toString(), ">IDENTIFY: " + identifyIntent);
-        sendBroadcast(identifyIntent);
+        sendCountedBroadcast(identifyIntent, 0);
+    }
+
+    /**
+     * Subscribe to specific data items
+     *
+     * Only updates of subscribed data items will be sent by the host
+     * (this overrides the subscriptions announced with PluginInfo)
+     *
+     * @param keys Keys of data items to subscribe (null = all data items)
+     */
+    public void subscribe(String... keys)
+    {
+        dataSubscriptions = keys;
+        dynamicSubscriptions = true;
+        setSubscribedKeys(keys);
+
+        Intent intent = new Intent(SUBSCRIBE);
+        intent.addCategory(RESPONSE);
+        intent.putExtra(PluginInfo.Field.CLASS.toString(), getPluginInfo().className);
+        intent.putExtra(EXTRA_DATA_KEYS, keys);
+        if (LOG_VERBOSE) Log.v(toString(), ">SUBSCRIBE: " + intent);
+        int bytes = 0;
+        if (keys != null)
+        {
+            for (String key : keys)
+            {
+                bytes += PluginMetrics.sizeOf(key);
+            }
+        }
+        sendCountedBroadcast(intent, bytes);
     }
 
+    /**
+     * Set effective set of subscribed data keys
+     *
+     * @param keys Keys of subscribed data items (null = all data items)
+     */
+    private void setSubscribedKeys(String[] keys)
+    {
+        subscribedKeys = keys != null ? new HashSet<>(Arrays.asList(keys)) : null;
+    }
+
+    /**
+     * Send data item list to host application
+     * <p>
+     * The complete list is sent once after IDENTIFY, subsequent changes
+     * of the list are sent as delta (if supported by the host).
+     * Complete lists are sent exactly as provided. Unchanged lists are not
+     * sent again, a list with unchanged data items (i.e. changed order) is
+     * only sent to hosts without delta support.
+     *
+     * @param csvData CSV encoded data list
+     */
     public void sendDataList(String csvData)
     {
-        // If plugin is enabled and feature DATA is supported
-        if (!headerSent)
+        synchronized (sentDataList)
         {
-            Intent intent = new Intent(Plugin.DATALIST);
-            intent.addCategory(Plugin.RESPONSE);
+            if (headerSent && csvData.equals(sentCsv))
+            {
+                return;
+            }
+            // a delta may be compressed with the previous version as dictionary
+            byte[] baseDictionary = useCompression() && sentDataList.getVersion() != DataList.NO_VERSION
+                                    ? sentDataList.getDictionary()
+                                    : null;
+            DataList.Delta delta = sentDataList.update(csvData);
+            sentCsv = csvData;
+            if (!headerSent)
+            {
+                sendDataList(null, null);
+            }
+            else if (delta != null)
+            {
+                sendDataList(delta, baseDictionary);
+            }
+            else if (!hostSupportsDataListDelta())
+            {
+                sendDataList(null, null);
+            }
+        }
+    }
 
-            // attach data to intent
-            intent.putExtra(Plugin.EXTRA_DATA, csvData);
-            Log.d(toString(), ">DATALIST: " + intent);
-            sendBroadcast(intent);
-            // remember that header is sent
-            headerSent = true;
+    /**
+     * Re-send complete data item list to host application
+     */
+    private void resendDataList()
+    {
+        synchronized (sentDataList)
+        {
+            if (sentDataList.getVersion() != DataList.NO_VERSION)
+            {
+                sendDataList(null, null);
+            }
         }
     }
 
+    /**
+     * Send current version of data item list to host application
+     *
+     * @param delta          Changes against previous version (null = send complete list)
+     * @param baseDictionary Compression dictionary of previous version (null if unknown)
+     */
+    private void sendDataList(DataList.Delta delta, byte[] baseDictionary)
+    {
+        Intent intent = new Intent(Plugin.DATALIST);
+        intent.addCategory(Plugin.RESPONSE);
+
+        // attach data to intent
+        String dataStr;
+        boolean isDelta = delta != null && hostSupportsDataListDelta();
+        if (isDelta)
+        {
+            dataStr = delta.changedCsv;
+            intent.putExtra(Plugin.EXTRA_DATALIST_BASE_VERSION, delta.baseVersion);
+            intent.putExtra(Plugin.EXTRA_DATALIST_REMOVED, delta.removed);
+        }
+        else
+        {
+            dataStr = sentCsv;
+        }
+        intent.putExtra(Plugin.EXTRA_DATA, dataStr);
+        intent.putExtra(Plugin.EXTRA_DATALIST_VERSION, sentDataList.getVersion());
+        intent.putExtra(Plugin.EXTRA_DATA_SOURCE, getPluginInfo().className);
+        intent.putExtra(PluginInfo.Field.PACKAGE.toString(), getPluginInfo().packageName);
+        if (LOG_VERBOSE) Log.v(toString(), ">DATALIST: " + intent);
+        if (hostSupportsChunkedDataList())
+        {
+            // stay below binder transaction limit with large data lists
+            for (Intent chunk : DataListChunks.split(intent, DataListChunks.MAX_CHUNK_LENGTH))
+            {
+                sendCompressible(chunk, PluginMetrics.sizeOf(chunk.getStringExtra(Plugin.EXTRA_DATA)),
+                                 isDelta ? baseDictionary : null,
+                                 isDelta ? delta.baseVersion : DataList.NO_VERSION);
+            }
+        }
+        else
+        {
+            sendCompressible(intent, PluginMetrics.sizeOf(dataStr),
+                             isDelta ? baseDictionary : null,
+                             isDelta ? delta.baseVersion : DataList.NO_VERSION);
+        }
+        // remember that header is sent
+        headerSent = true;
+    }
+
     public void sendDataUpdate(String key, String value)
     {
+        // If host supports typed data, avoid formatting
+        if (hostSupportsTypedData())
+        {
+            DataBatch batch = new DataBatch(1);
+            batch.add(key, value, System.currentTimeMillis());
+            sendDataBatch(batch);
+            return;
+        }
+
         // If feature DATA is supported
         Intent intent = new Intent(Plugin.DATA);
         intent.addCategory(Plugin.RESPONSE);
 
         // attach data to intent
-        intent.putExtra(Plugin.EXTRA_DATA, String.format("%s=%s", key, value));
-        Log.d(toString(), ">DATA: " + intent);
-        sendBroadcast(intent);
+        String dataStr = key + "=" + value;
+        intent.putExtra(Plugin.EXTRA_DATA, dataStr);
+        intent.putExtra(Plugin.EXTRA_DATA_TIMES, new long[] { System.currentTimeMillis() });
+        putDataTracking(intent);
+        if (LOG_VERBOSE) Log.v(toString(), ">DATA: " + intent);
+        sendCountedBroadcast(intent, PluginMetrics.sizeOf(dataStr));
+    }
+
+    public void sendDataUpdate(String key, double value)
+    {
+        // legacy host only understands textual data
+        if (!hostSupportsTypedData())
+        {
+            sendDataUpdate(key, DataBatch.formatNumber(value));
+            return;
+        }
+
+        DataBatch batch = new DataBatch(1);
+        batch.add(key, value, System.currentTimeMillis());
+        sendDataBatch(batch);
+    }
+
+    /**
+     * Send a batch of data updates to host application
+     *
+     * @param batch Batch of data updates to be sent
+     */
+    protected void sendDataBatch(DataBatch batch)
+    {
+        Intent intent = new Intent(Plugin.DATA);
+        intent.addCategory(Plugin.RESPONSE);
+
+        // attach data to intent
+        batch.writeTo(intent, false);
+        putDataTracking(intent);
+        if (LOG_VERBOSE) Log.v(toString(), ">DATA: " + intent);
+        // current data list is known to the host, so use it as dictionary
+        byte[] dictionary = null;
+        int dictionaryVersion;
+        synchronized (sentDataList)
+        {
+            dictionaryVersion = headerSent ? sentDataList.getVersion() : DataList.NO_VERSION;
+            if (useCompression() && dictionaryVersion != DataList.NO_VERSION)
+            {
+                dictionary = sentDataList.getDictionary();
+            }
+        }
+        sendCompressible(intent, PluginMetrics.sizeOf(batch), dictionary, dictionaryVersion);
+    }
+
+    /**
+     * Send a broadcast, compressed if enabled and supported by the host
+     *
+     * @param intent            Intent to be broadcast
+     * @param bytes             Payload bytes (estimated) of intent
+     * @param dictionary        Compression dictionary (null = no dictionary)
+     * @param dictionaryVersion Version of data list the dictionary was created from
+     */
+    private void sendCompressible(Intent intent, int bytes, byte[] dictionary, int dictionaryVersion)
+    {
+        if (useCompression())
+        {
+            Intent compressed = DataCompression.deflate(intent, dictionary, dictionaryVersion);
+            if (compressed != null)
+            {
+                bytes = DataCompression.compressedSize(intent, compressed, bytes);
+                intent = compressed;
+            }
+        }
+        sendCountedBroadcast(intent, bytes);
+    }
+
+    /**
+     * Enable / disable compressed DATALIST / DATA requests to the host application
+     * <p>
+     * Compression reduces IPC payload of large / repetitive requests at
+     * the cost of CPU time on both sides. It is only used if the host supports it.
+     *
+     * @param enabled true to send compressed requests
+     */
+    public void setDataCompression(boolean enabled)
+    {
+        dataCompression = enabled;
+    }
+
+    /**
+     * @return true if requests to the host shall be compressed
+     */
+    private boolean useCompression()
+    {
+        return dataCompression
+               && hostInfo != null
+               && (hostInfo.features & PluginInfo.FEATURE_DATA_DEFLATE) != 0;
+    }
+
+    /**
+     * Attach source and sequence number to a DATA intent
+     *
+     * @param intent DATA intent to be sent to host
+     */
+    private void putDataTracking(Intent intent)
+    {
+        intent.putExtra(Plugin.EXTRA_DATA_SOURCE, getPluginInfo().className);
+        intent.putExtra(Plugin.EXTRA_DATA_SEQUENCE, dataSequence.getAndIncrement());
+    }
+
+    /**
+     * Check if identified host application supports typed / batched data
+     *
+     * @return true if host supports typed data, false otherwise
+     */
+    protected boolean hostSupportsTypedData()
+    {
+        return hostInfo != null
+               && (hostInfo.features & PluginInfo.FEATURE_DATA_BATCH) != 0;
+    }
+
+    /**
+     * Check if identified host application supports DATALIST deltas
+     *
+     * @return true if host supports DATALIST deltas, false otherwise
+     */
+    protected boolean hostSupportsDataListDelta()
+    {
+        return hostInfo != null
+               && (hostInfo.features & PluginInfo.FEATURE_DATALIST_DELTA) != 0;
+    }
+
+    /**
+     * Check if identified host application supports chunked DATALIST transfer
+     *
+     * @return true if host supports chunked DATALIST, false otherwise
+     */
+    protected boolean hostSupportsChunkedDataList()
+    {
+        return hostInfo != null
+               && (hostInfo.features & PluginInfo.FEATURE_DATALIST_CHUNKS) != 0;
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.fr3ts0n.androbd.plugin;
 
+import android.os.Build;
 import android.os.Bundle;
 
 /**
@@ -20,6 +21,20 @@ public class PluginInfo
     public static final int FEATURE_DATA            = (1 << 2);
     /** Data updates are supported */
     public static final int FEATURE_DATAPROVISION   = (1 << 3);
+    /** Batched, typed DATA messages are supported */
+    public static final int FEATURE_DATA_BATCH      = (1 << 4);
+    /** Integer key IDs within DATALIST / DATA messages are supported */
+    public static final int FEATURE_DATA_IDS        = (1 << 5);
+    /** DATALIST / DATA requests via bound Messenger are supported */
+    public static final int FEATURE_DATA_MESSENGER  = (1 << 6);
+    /** Numeric DATA via shared memory ring buffer is supported */
+    public static final int FEATURE_DATA_RINGBUFFER = (1 << 7);
+    /** Versioned DATALIST deltas are supported */
+    public static final int FEATURE_DATALIST_DELTA  = (1 << 8);
+    /** Chunked transfer of large DATALIST requests is supported */
+    public static final int FEATURE_DATALIST_CHUNKS = (1 << 9);
+    /** Compressed (deflated) DATALIST / DATA requests are supported */
+    public static final int FEATURE_DATA_DEFLATE    = (1 << 10);
     /** NO feature supported */
     public static final int FEATURE_NONE            = 0x00;
     /** ALL features supported */
@@ -38,6 +53,8 @@ public class PluginInfo
         COPYRIGHT,
         LICENSE,
         URL,
+        SUBSCRIPTIONS,
+        UPDATE_INTERVAL,
     }
 
     /** Plugin name */
@@ -58,6 +75,10 @@ public class PluginInfo
     public String url;
     /** enabled */
     public boolean enabled = true;
+    /** Keys of subscribed data items (null = all data items) */
+    public String[] subscriptions = null;
+    /** Min. interval [ms] between data updates of a single data item (0 = unlimited) */
+    public long updateInterval = 0;
 
     public PluginInfo( String _name,
                        Class  _class,
@@ -80,7 +101,16 @@ public class PluginInfo
         if(Plugin.ActionHandler.class.isAssignableFrom(_class))
             features |= FEATURE_ACTION;
         if(Plugin.DataReceiver.class.isAssignableFrom(_class))
-            features |= FEATURE_DATA;
+            features |= FEATURE_DATA
+                        | FEATURE_DATA_BATCH
+                        | FEATURE_DATA_IDS
+                        | FEATURE_DATA_MESSENGER
+                        | FEATURE_DATALIST_DELTA
+                        | FEATURE_DATALIST_CHUNKS
+                        | FEATURE_DATA_DEFLATE;
+        if(Plugin.DataReceiver.class.isAssignableFrom(_class)
+           && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1)
+            features |= FEATURE_DATA_RINGBUFFER;
         if(Plugin.DataProvider.class.isAssignableFrom(_class))
             features |= FEATURE_DATAPROVISION;
     }
@@ -99,6 +129,8 @@ public class PluginInfo
         copyright = bundle.getString(Field.COPYRIGHT.toString());
         license = bundle.getString(Field.LICENSE.toString());
         url = bundle.getString(Field.URL.toString());
+        subscriptions = bundle.getStringArray(Field.SUBSCRIPTIONS.toString());
+        updateInterval = bundle.getLong(Field.UPDATE_INTERVAL.toString(), 0);
     }
 
     /**
@@ -116,6 +148,8 @@ public class PluginInfo
         bundle.putString(Field.COPYRIGHT.toString(), copyright);
         bundle.putString(Field.LICENSE.toString(), license);
         bundle.putString(Field.URL.toString(), url);
+        bundle.putStringArray(Field.SUBSCRIPTIONS.toString(), subscriptions);
+        bundle.putLong(Field.UPDATE_INTERVAL.toString(), updateInterval);
 
         return bundle;
     }
@@ -0,0 +1,346 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runtime metrics of plugin communication
+ * <p>
+ * Counts messages, payload bytes, dispatch time and dropped / conflated updates
+ * per plugin and per action. Counters are striped by thread to keep contention
+ * low, so metrics may stay enabled in production.
+ * Counts which are not related to a specific plugin are kept as {@link #GLOBAL}.
+ */
+public class PluginMetrics
+{
+    /** Plugin name of counts which are not related to a specific plugin */
+    public static final String GLOBAL = "*";
+
+    /** Number of counter stripes (power of 2) */
+    private static final int STRIPES = 4;
+    /** Number of counters per action */
+    private static final int COUNTERS = Counter.values().length;
+    /** Number of counters per stripe */
+    private static final int SLOTS = Action.values().length * COUNTERS;
+
+    /**
+     * Actions of plugin communication
+     */
+    public enum Action
+    {
+        IDENTIFY,
+        DATALIST,
+        DATA,
+        ACTION,
+        CONFIGURE,
+        SUBSCRIBE,
+        RESYNC;
+
+        /**
+         * Get action of an intent action string
+         *
+         * @param intentAction Intent action (i.e. {@link Plugin#DATA})
+         * @return Action, or null if intent action is not counted
+         */
+        public static Action of(String intentAction)
+        {
+            if (intentAction == null)
+            {
+                return null;
+            }
+            switch (intentAction)
+            {
+                case Plugin.IDENTIFY:  return IDENTIFY;
+                case Plugin.DATALIST:  return DATALIST;
+                case Plugin.DATA:      return DATA;
+                case Plugin.ACTION:    return ACTION;
+                case Plugin.CONFIGURE: return CONFIGURE;
+                case Plugin.SUBSCRIBE: return SUBSCRIBE;
+                case Plugin.RESYNC:    return RESYNC;
+                default:               return null;
+            }
+        }
+    }
+
+    /**
+     * Counted metrics
+     */
+    public enum Counter
+    {
+        SENT,           /**< Number of sent messages */
+        RECEIVED,       /**< Number of received messages */
+        BYTES,          /**< Payload bytes (estimated) */
+        DISPATCH_NANOS, /**< Time [ns] spent within dispatching / handling */
+        DROPPED,        /**< Number of dropped updates */
+        CONFLATED,      /**< Number of updates replaced by a newer value */
+        SUPPRESSED,     /**< Number of unchanged updates which were not sent */
+    }
+
+    /** striped counters by plugin name */
+    private final Map<String, AtomicLongArray> counters = new ConcurrentHashMap<>();
+    /** metrics are collected */
+    private volatile boolean enabled = true;
+
+    /** Handler of periodic dump (null if not active) */
+    private Handler dumpHandler;
+    /** Interval [ms] of periodic dump */
+    private long dumpInterval;
+    /** Log tag of periodic dump */
+    private String dumpTag;
+
+    /** periodic dump task */
+    private final Runnable dumpTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            synchronized (PluginMetrics.this)
+            {
+                if (dumpHandler == null)
+                {
+                    return;
+                }
+                Log.i(dumpTag, PluginMetrics.this.toString());
+                dumpHandler.postDelayed(this, dumpInterval);
+            }
+        }
+    };
+
+    /**
+     * @return true if metrics are collected
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enable / disable collection of metrics
+     *
+     * @param enabled true to collect metrics
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Add a value to a counter
+     *
+     * @param plugin  Name of plugin ({@link #GLOBAL} if not plugin specific)
+     * @param action  Action to count for
+     * @param counter Counter to add value to
+     * @param value   Value to be added
+     */
+    public void add(String plugin, Action action, Counter counter, long value)
+    {
+        if (!enabled || action == null)
+        {
+            return;
+        }
+
+        AtomicLongArray slots = counters.get(plugin);
+        if (slots == null)
+        {
+            synchronized (counters)
+            {
+                slots = counters.get(plugin);
+                if (slots == null)
+                {
+                    slots = new AtomicLongArray(STRIPES * SLOTS);
+                    counters.put(plugin, slots);
+                }
+            }
+        }
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        slots.addAndGet(stripe * SLOTS + slot(action, counter), value);
+    }
+
+    /**
+     * Count a single sent / received message
+     *
+     * @param plugin  Name of plugin ({@link #GLOBAL} if not plugin specific)
+     * @param action  Action of message
+     * @param counter {@link Counter#SENT} or {@link Counter#RECEIVED}
+     * @param bytes   Payload bytes (estimated) of message
+     * @param nanos   Time [ns] spent within dispatching / handling the message
+     */
+    public void count(String plugin, Action action, Counter counter, long bytes, long nanos)
+    {
+        add(plugin, action, counter, 1);
+        add(plugin, action, Counter.BYTES, bytes);
+        add(plugin, action, Counter.DISPATCH_NANOS, nanos);
+    }
+
+    /**
+     * Get current value of a counter
+     *
+     * @param plugin  Name of plugin ({@link #GLOBAL} if not plugin specific)
+     * @param action  Action to get count of
+     * @param counter Counter to get value of
+     * @return current value of counter
+     */
+    public long get(String plugin, Action action, Counter counter)
+    {
+        AtomicLongArray slots = counters.get(plugin);
+        if (slots == null)
+        {
+            return 0;
+        }
+        long result = 0;
+        int slot = slot(action, counter);
+        for (int stripe = 0; stripe < STRIPES; stripe++)
+        {
+            result += slots.get(stripe * SLOTS + slot);
+        }
+        return result;
+    }
+
+    /**
+     * Get current value of a counter summed up over all plugins
+     *
+     * @param action  Action to get count of
+     * @param counter Counter to get value of
+     * @return current value of counter for all plugins
+     */
+    public long getTotal(Action action, Counter counter)
+    {
+        long result = 0;
+        for (String plugin : counters.keySet())
+        {
+            result += get(plugin, action, counter);
+        }
+        return result;
+    }
+
+    /**
+     * @return Names of all plugins with counted metrics (sorted)
+     */
+    public String[] getPlugins()
+    {
+        String[] result = counters.keySet().toArray(new String[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Reset all counters
+     */
+    public void reset()
+    {
+        counters.clear();
+    }
+
+    /**
+     * Start periodic dump of all metrics to log
+     *
+     * @param handler  Handler to schedule dumps with
+     * @param interval Interval [ms] between dumps
+     * @param tag      Log tag of dumps
+     */
+    public synchronized void startPeriodicDump(Handler handler, long interval, String tag)
+    {
+        stopPeriodicDump();
+        dumpHandler = handler;
+        dumpInterval = Math.max(interval, 1);
+        dumpTag = tag;
+        dumpHandler.postDelayed(dumpTask, dumpInterval);
+    }
+
+    /**
+     * Stop periodic dump of metrics
+     */
+    public synchronized void stopPeriodicDump()
+    {
+        if (dumpHandler != null)
+        {
+            dumpHandler.removeCallbacks(dumpTask);
+            dumpHandler = null;
+        }
+    }
+
+    /**
+     * Format all non-zero metrics as table
+     * (one line per plugin and action)
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder("plugin;action");
+        for (Counter counter : Counter.values())
+        {
+            result.append(';').append(counter.toString());
+        }
+        for (String plugin : getPlugins())
+        {
+            for (Action action : Action.values())
+            {
+                long[] values = new long[COUNTERS];
+                boolean used = false;
+                for (Counter counter : Counter.values())
+                {
+                    values[counter.ordinal()] = get(plugin, action, counter);
+                    used |= values[counter.ordinal()] != 0;
+                }
+                if (!used)
+                {
+                    continue;
+                }
+                result.append('\n').append(plugin).append(';').append(action.toString());
+                for (long value : values)
+                {
+                    result.append(String.format(Locale.ROOT, ";%d", value));
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Estimate payload size of a string
+     *
+     * @param str String to be estimated (may be null)
+     * @return estimated payload bytes
+     */
+    public static int sizeOf(String str)
+    {
+        return str != null ? 2 * str.length() : 0;
+    }
+
+    /**
+     * Estimate payload size of a data batch
+     *
+     * @param batch Batch to be estimated
+     * @return estimated payload bytes
+     */
+    public static int sizeOf(DataBatch batch)
+    {
+        // id, number, time per entry
+        int result = batch.size() * (4 + 8 + 8);
+        for (int i = 0; i < batch.size(); i++)
+        {
+            result += sizeOf(batch.getKey(i));
+            if (!batch.isNumeric(i))
+            {
+                result += sizeOf(batch.getValue(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param action  Action of counter
+     * @param counter Counter
+     * @return slot of counter within a stripe
+     */
+    private static int slot(Action action, Counter counter)
+    {
+        return action.ordinal() * COUNTERS + counter.ordinal();
+    }
+}
@@ -0,0 +1,226 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Wake lock policy of a plugin service
+ * <p>
+ * The CPU is only kept awake while there is work to do:
+ * - during an active data session, i.e. until {@link #getSessionTimeout()} after
+ *   the last request received from the host (see {@link #onActivity()})
+ * - while background work holds a reference (see {@link #acquire(long)} / {@link #release()})
+ * Every reference expires after it's timeout, so a missing release can't keep
+ * the device awake forever. An idle detector releases the system wake lock as soon
+ * as the session is idle and no reference is held.
+ * <p>
+ * Recording activity is cheap (no system call), the system wake lock is only
+ * renewed by the idle detector.
+ */
+public class PluginWakeLock
+{
+    /** Default time [ms] to stay awake after the last received request */
+    public static final long DEFAULT_SESSION_TIMEOUT = 30 * 1000;
+    /** Default timeout [ms] of a reference (see {@link #acquire()}) */
+    public static final long DEFAULT_HOLD_TIMEOUT = 10 * 60 * 1000;
+    /** Extra time [ms] the system wake lock is held beyond the next idle check */
+    private static final long GRACE_TIME = 1000;
+
+    /** system wake lock (not reference counted) */
+    private final PowerManager.WakeLock wakeLock;
+    /** handler to run idle detection on */
+    private final Handler handler;
+
+    /** time [ms] to stay awake after the last received request */
+    private volatile long sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+    /** time [ms, uptime] of last received request */
+    private volatile long lastActivity = Long.MIN_VALUE;
+
+    /** number of held references */
+    private int refCount = 0;
+    /** time [ms, uptime] all held references expire */
+    private long refDeadline = 0;
+    /** system wake lock is held */
+    private boolean held = false;
+    /** time [ms, uptime] of scheduled idle check (0 = none) */
+    private long checkTime = 0;
+    /** wake lock was closed */
+    private boolean closed = false;
+
+    /**
+     * Idle detection
+     */
+    private final Runnable idleCheckTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            synchronized (PluginWakeLock.this)
+            {
+                checkTime = 0;
+                update(SystemClock.uptimeMillis());
+            }
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param wakeLock System wake lock to be managed
+     * @param handler  Handler to run idle detection on
+     */
+    public PluginWakeLock(PowerManager.WakeLock wakeLock, Handler handler)
+    {
+        this.wakeLock = wakeLock;
+        this.handler = handler;
+        wakeLock.setReferenceCounted(false);
+    }
+
+    /**
+     * @return time [ms] to stay awake after the last received request
+     */
+    public long getSessionTimeout()
+    {
+        return sessionTimeout;
+    }
+
+    /**
+     * Set time to stay awake after the last received request
+     *
+     * @param timeout Time [ms] (0 = don't keep awake for data sessions)
+     */
+    public void setSessionTimeout(long timeout)
+    {
+        sessionTimeout = Math.max(timeout, 0);
+    }
+
+    /**
+     * Record activity of data session (i.e. a received request)
+     * Starts a new data session if the session was idle.
+     */
+    public void onActivity()
+    {
+        long now = SystemClock.uptimeMillis();
+        lastActivity = now;
+        synchronized (this)
+        {
+            // a running session is renewed by the idle detector
+            if (!held)
+            {
+                update(now);
+            }
+        }
+    }
+
+    /**
+     * Acquire a reference with default timeout ({@link #DEFAULT_HOLD_TIMEOUT})
+     */
+    public void acquire()
+    {
+        acquire(DEFAULT_HOLD_TIMEOUT);
+    }
+
+    /**
+     * Acquire a reference to keep the CPU awake for background work
+     * Every call must be balanced by a call to {@link #release()}.
+     *
+     * @param timeout Max. time [ms] to hold the reference
+     */
+    public synchronized void acquire(long timeout)
+    {
+        long now = SystemClock.uptimeMillis();
+        expireReferences(now);
+        refDeadline = refCount > 0
+                      ? Math.max(refDeadline, now + timeout)
+                      : now + timeout;
+        refCount++;
+        update(now);
+    }
+
+    /**
+     * Release a reference
+     */
+    public synchronized void release()
+    {
+        if (refCount > 0)
+        {
+            refCount--;
+            update(SystemClock.uptimeMillis());
+        }
+    }
+
+    /**
+     * @return true if the CPU is currently kept awake
+     */
+    public synchronized boolean isHeld()
+    {
+        return held;
+    }
+
+    /**
+     * Release wake lock and all references permanently (service is destroyed)
+     */
+    public synchronized void close()
+    {
+        closed = true;
+        refCount = 0;
+        handler.removeCallbacks(idleCheckTask);
+        checkTime = 0;
+        if (held)
+        {
+            wakeLock.release();
+            held = false;
+        }
+    }
+
+    /**
+     * Drop all references which were not released in time
+     *
+     * @param now Current time [ms, uptime]
+     */
+    private void expireReferences(long now)
+    {
+        if (refCount > 0 && now >= refDeadline)
+        {
+            Log.w(toString(), "Wake lock references expired: " + refCount);
+            refCount = 0;
+        }
+    }
+
+    /**
+     * Acquire / renew / release system wake lock based on current state
+     *
+     * @param now Current time [ms, uptime]
+     */
+    private void update(long now)
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        expireReferences(now);
+        long deadline = Math.max(lastActivity + sessionTimeout,
+                                 refCount > 0 ? refDeadline : Long.MIN_VALUE);
+        if (deadline > now)
+        {
+            // stay awake until next idle check
+            wakeLock.acquire(deadline - now + GRACE_TIME);
+            held = true;
+            if (checkTime == 0 || checkTime > deadline)
+            {
+                handler.removeCallbacks(idleCheckTask);
+                handler.postDelayed(idleCheckTask, deadline - now);
+                checkTime = deadline;
+            }
+        }
+        else if (held)
+        {
+            // idle
+            wakeLock.release();
+            held = false;
+        }
+    }
+}
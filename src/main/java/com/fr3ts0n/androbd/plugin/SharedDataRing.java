@@ -0,0 +1,130 @@
+package com.fr3ts0n.androbd.plugin;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Parcelable;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Data ring buffer within shared memory
+ * <p>
+ * The host creates the shared memory region and writes data updates into it,
+ * plugins attach to the region (read only) which is transferred as
+ * parcelable within a MSG_RING_ATTACH message.
+ * The region is protected read only after the host has mapped it, so
+ * plugins can't modify the data which is shared with other plugins.
+ * <p>
+ * Shared memory requires Android 8.1 (API 27), check the SDK version
+ * before using this class.
+ */
+@TargetApi(Build.VERSION_CODES.O_MR1)
+public class SharedDataRing
+{
+    /** Shared memory region */
+    private final SharedMemory memory;
+    /** mapping of shared memory region */
+    private final ByteBuffer mapping;
+    /** ring buffer within mapped memory */
+    private final DataRingBuffer ring;
+
+    /**
+     * Create a new shared memory ring (producer side)
+     *
+     * @param name Name of shared memory region (for debugging purposes)
+     * @param capacity Number of records within ring
+     * @return new shared memory ring, or null if creation failed
+     */
+    public static SharedDataRing create(String name, int capacity)
+    {
+        SharedMemory memory = null;
+        try
+        {
+            memory = SharedMemory.create(name, DataRingBuffer.getBufferSize(capacity));
+            ByteBuffer mapping = memory.mapReadWrite();
+            DataRingBuffer ring = DataRingBuffer.create(mapping, capacity);
+            // any further mapping (i.e. by plugins) is read only, own mapping stays writable
+            if (!memory.setProtect(OsConstants.PROT_READ))
+            {
+                Log.e(SharedDataRing.class.getSimpleName(), "Ring protection failed");
+                SharedMemory.unmap(mapping);
+                memory.close();
+                return null;
+            }
+            return new SharedDataRing(memory, mapping, ring);
+        }
+        catch (ErrnoException e)
+        {
+            Log.e(SharedDataRing.class.getSimpleName(), "Ring creation failed", e);
+            if (memory != null)
+            {
+                memory.close();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Attach to a shared memory ring (consumer side)
+     *
+     * @param parcel Shared memory region as received with MSG_RING_ATTACH
+     * @return attached shared memory ring, or null if attaching failed
+     */
+    public static SharedDataRing attach(Parcelable parcel)
+    {
+        if (!(parcel instanceof SharedMemory))
+        {
+            return null;
+        }
+
+        SharedMemory memory = (SharedMemory) parcel;
+        try
+        {
+            ByteBuffer mapping = memory.mapReadOnly();
+            return new SharedDataRing(memory, mapping, DataRingBuffer.attach(mapping));
+        }
+        catch (ErrnoException | IllegalArgumentException e)
+        {
+            Log.e(SharedDataRing.class.getSimpleName(), "Ring attach failed", e);
+            memory.close();
+            return null;
+        }
+    }
+
+    private SharedDataRing(SharedMemory memory, ByteBuffer mapping, DataRingBuffer ring)
+    {
+        this.memory = memory;
+        this.mapping = mapping;
+        this.ring = ring;
+    }
+
+    /**
+     * @return ring buffer within shared memory
+     */
+    public DataRingBuffer getRing()
+    {
+        return ring;
+    }
+
+    /**
+     * @return shared memory region to be transferred to consumers
+     *         (protected read only on producer side)
+     */
+    public Parcelable getMemory()
+    {
+        return memory;
+    }
+
+    /**
+     * Unmap and close shared memory region
+     */
+    public void close()
+    {
+        SharedMemory.unmap(mapping);
+        memory.close();
+    }
+}
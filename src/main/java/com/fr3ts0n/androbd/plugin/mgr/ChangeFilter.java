@@ -0,0 +1,308 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.DataItem;
+import com.fr3ts0n.androbd.plugin.DataItemList;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Change-only filter of data updates
+ * <p>
+ * Keeps the last delivered value of every data item and suppresses updates
+ * which did not change (textual values) or did not leave the deadband
+ * (numeric values). Unchanged values are delivered again after the heartbeat
+ * interval to indicate that the data item is still alive.
+ * <p>
+ * The deadband of a data item is either configured explicitly, or derived
+ * from the MIN/MAX range of the data list. Textual values which represent
+ * numbers (as sent by {@code sendDataUpdate(String, String)}) are compared
+ * against the deadband as well, but still delivered in their textual form.
+ * <p>
+ * A single plugin which lost it's values (i.e. restarted) gets a one-off
+ * snapshot instead: it gets the next update of every data item, even if
+ * the update is suppressed for all other plugins (see {@link #reset(String)}).
+ */
+class ChangeFilter
+{
+    /**
+     * Last delivered value of a single data item
+     */
+    private static class Entry
+    {
+        /** last delivered textual value (null for numeric values) */
+        String text;
+        /** last delivered numeric value (NaN for non-numeric text) */
+        double number;
+        /** time [ms] of last delivery */
+        long time;
+        /** flag if a value was delivered since last reset */
+        boolean valid;
+        /** MIN/MAX range span from data list */
+        double rangeSpan;
+    }
+
+    /** Filter is enabled */
+    private boolean enabled = false;
+    /** Deadband as fraction of MIN/MAX range */
+    private double rangeFraction = 0;
+    /** Heartbeat interval [ms] (0 = no heartbeat) */
+    private long heartbeat = 0;
+    /** Explicitly configured deadbands by data key */
+    private final Map<String, Double> deadbands = new HashMap<>();
+    /** Last delivered values by data key */
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** Number of data items with a delivered value */
+    private int validCount = 0;
+    /** Keys delivered to plugins since their snapshot was requested, by plugin class name */
+    private final Map<String, Set<String>> snapshots = new HashMap<>();
+    /** Number of suppressed updates */
+    private long suppressedCount = 0;
+
+    /**
+     * Configure filter
+     *
+     * @param enabled       Filter is enabled
+     * @param rangeFraction Deadband as fraction of MIN/MAX range of data items
+     * @param heartbeat     Heartbeat interval [ms] (0 = no heartbeat)
+     */
+    synchronized void configure(boolean enabled, double rangeFraction, long heartbeat)
+    {
+        this.enabled = enabled;
+        this.rangeFraction = Math.max(rangeFraction, 0);
+        this.heartbeat = Math.max(heartbeat, 0);
+        reset();
+    }
+
+    /**
+     * Set explicit deadband of a data item
+     *
+     * @param key      Key of data item
+     * @param deadband Deadband of numeric values (negative = derive from range)
+     */
+    synchronized void setDeadband(String key, double deadband)
+    {
+        if (deadband < 0)
+            deadbands.remove(key);
+        else
+            deadbands.put(key, deadband);
+    }
+
+    /**
+     * Derive deadbands from MIN/MAX range of a data list
+     *
+     * @param items Parsed data list
+     */
+    synchronized void setDataList(DataItemList items)
+    {
+        for (int i = 0; i < items.size(); i++)
+        {
+            DataItem item = items.get(i);
+            // no numeric range, no derived deadband
+            if (item.hasRange())
+            {
+                getEntry(item.mnemonic).rangeSpan = Math.abs(item.max - item.min);
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Forget all last delivered values,
+     * so every data item gets delivered with it's next update
+     */
+    synchronized void reset()
+    {
+        for (Entry entry : entries.values())
+        {
+            entry.valid = false;
+        }
+        validCount = 0;
+        // all plugins get all data items anyway
+        snapshots.clear();
+    }
+
+    /**
+     * Request a one-off snapshot for a single plugin,
+     * so it gets every data item with it's next update
+     * (other plugins are not affected)
+     *
+     * @param target Class name of plugin
+     */
+    synchronized void reset(String target)
+    {
+        if (enabled && validCount > 0)
+        {
+            snapshots.put(target, new HashSet<String>());
+        }
+    }
+
+    /**
+     * @return true if any plugin waits for it's snapshot
+     */
+    synchronized boolean isSnapshotPending()
+    {
+        return !snapshots.isEmpty();
+    }
+
+    /**
+     * Check if an update which was suppressed (see {@link #accept}) shall be
+     * delivered to a plugin, since it is part of the plugin's snapshot
+     *
+     * @param target Class name of plugin
+     * @param key    Key of data change
+     * @return true if update shall be delivered to the plugin
+     */
+    synchronized boolean acceptSnapshot(String target, String key)
+    {
+        Set<String> delivered = snapshots.get(target);
+        if (delivered == null || !delivered.add(key))
+        {
+            return false;
+        }
+        if (delivered.size() >= validCount)
+        {
+            // every data item was delivered to the plugin
+            snapshots.remove(target);
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of suppressed updates
+     */
+    synchronized long getSuppressedCount()
+    {
+        return suppressedCount;
+    }
+
+    /**
+     * Check if a data update shall be delivered
+     *
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     * @param time   Timestamp [ms] of data change
+     * @return true if update shall be delivered, false if it shall be suppressed
+     */
+    synchronized boolean accept(String key, String text, double number, long time)
+    {
+        if (!enabled)
+        {
+            return true;
+        }
+
+        Entry entry = getEntry(key);
+        Double deadband = deadbands.get(key);
+        double band = deadband != null ? deadband : entry.rangeSpan * rangeFraction;
+        if (text != null)
+        {
+            // numeric text is subject to the deadband as well
+            number = band > 0 ? parseNumber(text) : Double.NaN;
+        }
+
+        boolean changed;
+        if (!entry.valid
+            || (heartbeat > 0 && time - entry.time >= heartbeat))
+        {
+            changed = true;
+        }
+        else if (text != null || entry.text != null)
+        {
+            // textual values are only compared numerically if both are numbers
+            changed = text == null
+                      || entry.text == null
+                      || (!text.equals(entry.text)
+                          && (Double.isNaN(number)
+                              || Double.isNaN(entry.number)
+                              || Math.abs(number - entry.number) > band));
+        }
+        else
+        {
+            changed = Math.abs(number - entry.number) > band
+                      || (Double.isNaN(number) != Double.isNaN(entry.number));
+        }
+
+        if (changed)
+        {
+            entry.text = text;
+            entry.number = number;
+            entry.time = time;
+            if (!entry.valid)
+            {
+                entry.valid = true;
+                validCount++;
+            }
+            // update is delivered to all plugins, so it is part of their snapshot
+            if (!snapshots.isEmpty())
+            {
+                Iterator<Set<String>> it = snapshots.values().iterator();
+                while (it.hasNext())
+                {
+                    Set<String> delivered = it.next();
+                    delivered.add(key);
+                    if (delivered.size() >= validCount)
+                    {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        else
+        {
+            suppressedCount++;
+        }
+        return changed;
+    }
+
+    /**
+     * Parse numeric value of a textual data value
+     *
+     * @param text Textual data value
+     * @return numeric value, NaN if text is not a plain number
+     */
+    private static double parseNumber(String text)
+    {
+        int len = text.length();
+        if (len == 0)
+        {
+            return Double.NaN;
+        }
+        // avoid exceptions for obviously non-numeric text
+        char first = text.charAt(0);
+        char last = text.charAt(len - 1);
+        if (!(Character.isDigit(first) || first == '-' || first == '+' || first == '.')
+            || !(Character.isDigit(last) || last == '.'))
+        {
+            return Double.NaN;
+        }
+        try
+        {
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Get (or create) entry of a data item
+     *
+     * @param key Key of data item
+     * @return Entry of data item
+     */
+    private Entry getEntry(String key)
+    {
+        Entry entry = entries.get(key);
+        if (entry == null)
+        {
+            entry = new Entry();
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+}
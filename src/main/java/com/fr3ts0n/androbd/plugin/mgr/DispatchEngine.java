@@ -0,0 +1,379 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import android.util.Log;
+
+import com.fr3ts0n.androbd.plugin.PluginMetrics;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Asynchronous dispatch engine
+ * <p>
+ * Decouples the caller (i.e. OBD communication / UI thread) from plugin fan-out.
+ * Data updates and control tasks are queued and executed by a single worker
+ * thread in FIFO order, which preserves the order of updates per data key.
+ * <p>
+ * The number of queued data updates is bounded. If the queue is full,
+ * the selected overflow policy is applied. Control tasks (i.e. data list updates)
+ * are never dropped.
+ * <p>
+ * Once the engine is stopped, all tasks which were queued before are still
+ * processed, but new tasks are rejected, so the caller has to dispatch them
+ * elsewhere (see {@link Dispatcher}).
+ */
+class DispatchEngine
+{
+    /**
+     * Handling of new data updates if the queue is full
+     */
+    enum OverflowPolicy
+    {
+        /** Block caller until queue has space */
+        BLOCK,
+        /** Drop oldest queued data update */
+        DROP_OLDEST,
+        /** Replace queued update of same data key, drop oldest if there is none */
+        CONFLATE,
+    }
+
+    /**
+     * Executor of queued data updates
+     */
+    interface Target
+    {
+        /**
+         * Dispatch data update to plugins
+         *
+         * @param key    Key of data change
+         * @param text   New textual value of data change (null for numeric update)
+         * @param number New numeric value of data change (if text is null)
+         * @param time   Timestamp [ms] of data change
+         */
+        void dispatchDataUpdate(String key, String text, double number, long time);
+    }
+
+    /**
+     * Queued task (either data update or control task)
+     */
+    private static class Task
+    {
+        String key;
+        String text;
+        double number;
+        long time;
+        Runnable runnable;
+    }
+
+    /** Max. number of queued data updates */
+    private final int capacity;
+    /** Overflow policy */
+    private final OverflowPolicy policy;
+    /** Executor of data updates */
+    private final Target target;
+    /** Metrics to count dropped / conflated updates */
+    private final PluginMetrics metrics;
+    /** Task queue */
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    /** Queued data updates by data key (for conflation) */
+    private final Map<String, Task> queuedUpdates = new HashMap<>();
+    /** Number of queued data updates */
+    private int queuedCount = 0;
+    /** Number of dropped data updates */
+    private long droppedCount = 0;
+    /** Number of conflated data updates */
+    private long conflatedCount = 0;
+    /** Engine is running */
+    private boolean running = false;
+    /** Worker thread */
+    private Thread worker;
+
+    /**
+     * Constructor
+     *
+     * @param capacity Max. number of queued data updates
+     * @param policy   Overflow policy
+     * @param target   Executor of data updates
+     * @param metrics  Metrics to count dropped / conflated updates
+     */
+    DispatchEngine(int capacity, OverflowPolicy policy, Target target, PluginMetrics metrics)
+    {
+        this.capacity = Math.max(capacity, 1);
+        this.policy = policy;
+        this.target = target;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Start worker thread
+     */
+    synchronized void start()
+    {
+        if (!running)
+        {
+            running = true;
+            worker = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    processTasks();
+                }
+            }, getClass().getSimpleName());
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stop worker thread after all queued tasks are processed
+     * (returns after all queued tasks are processed, unless called by the worker itself)
+     */
+    void stop()
+    {
+        Thread thread;
+        synchronized (this)
+        {
+            running = false;
+            notifyAll();
+            thread = worker;
+        }
+
+        if (thread != null && thread != Thread.currentThread())
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return true if engine accepts new tasks
+     */
+    synchronized boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * @return true if the calling thread is the worker thread of this engine
+     */
+    synchronized boolean isWorker()
+    {
+        return worker == Thread.currentThread();
+    }
+
+    /**
+     * @return Number of dropped data updates
+     */
+    synchronized long getDroppedCount()
+    {
+        return droppedCount;
+    }
+
+    /**
+     * @return Number of conflated data updates
+     */
+    synchronized long getConflatedCount()
+    {
+        return conflatedCount;
+    }
+
+    /**
+     * Queue a control task
+     *
+     * @param runnable Task to be executed by worker
+     * @return true if task was queued, false if engine is not running
+     */
+    synchronized boolean post(Runnable runnable)
+    {
+        if (!running)
+        {
+            return false;
+        }
+        Task task = new Task();
+        task.runnable = runnable;
+        queue.addLast(task);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Queue a data update
+     *
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     * @param time   Timestamp [ms] of data change
+     * @return true if update was queued (or dropped by overflow policy),
+     *         false if engine is not running
+     */
+    synchronized boolean post(String key, String text, double number, long time)
+    {
+        if (!running)
+        {
+            return false;
+        }
+        if (queuedCount >= capacity)
+        {
+            switch (policy)
+            {
+                case BLOCK:
+                    while (running && queuedCount >= capacity)
+                    {
+                        try
+                        {
+                            wait();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                            countDropped();
+                            return true;
+                        }
+                    }
+                    // engine was stopped while waiting
+                    if (!running)
+                    {
+                        return false;
+                    }
+                    break;
+
+                case CONFLATE:
+                    Task queued = queuedUpdates.get(key);
+                    if (queued != null)
+                    {
+                        // replace queued value, keep queue position
+                        queued.text = text;
+                        queued.number = number;
+                        queued.time = time;
+                        conflatedCount++;
+                        metrics.add(PluginMetrics.GLOBAL, PluginMetrics.Action.DATA,
+                                    PluginMetrics.Counter.CONFLATED, 1);
+                        return true;
+                    }
+                    dropOldest();
+                    break;
+
+                case DROP_OLDEST:
+                    dropOldest();
+                    break;
+            }
+        }
+
+        Task task = new Task();
+        task.key = key;
+        task.text = text;
+        task.number = number;
+        task.time = time;
+        queue.addLast(task);
+        queuedUpdates.put(key, task);
+        queuedCount++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Drop oldest queued data update
+     */
+    private void dropOldest()
+    {
+        Iterator<Task> it = queue.iterator();
+        while (it.hasNext())
+        {
+            Task task = it.next();
+            if (task.runnable == null)
+            {
+                it.remove();
+                removeQueuedUpdate(task);
+                countDropped();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count a dropped data update
+     */
+    private void countDropped()
+    {
+        droppedCount++;
+        metrics.add(PluginMetrics.GLOBAL, PluginMetrics.Action.DATA, PluginMetrics.Counter.DROPPED, 1);
+    }
+
+    /**
+     * Remove data update from queued updates
+     *
+     * @param task data update task
+     */
+    private void removeQueuedUpdate(Task task)
+    {
+        queuedCount--;
+        if (queuedUpdates.get(task.key) == task)
+        {
+            queuedUpdates.remove(task.key);
+        }
+    }
+
+    /**
+     * Get next task to be processed (blocking)
+     *
+     * @return next task, or null if engine is stopped and queue is empty
+     */
+    private synchronized Task take()
+    {
+        while (queue.isEmpty())
+        {
+            if (!running)
+            {
+                return null;
+            }
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                return null;
+            }
+        }
+
+        Task task = queue.pollFirst();
+        if (task.runnable == null)
+        {
+            removeQueuedUpdate(task);
+            // wake up blocked callers
+            notifyAll();
+        }
+        return task;
+    }
+
+    /**
+     * Worker loop: process tasks until stopped
+     */
+    private void processTasks()
+    {
+        Task task;
+        while ((task = take()) != null)
+        {
+            try
+            {
+                if (task.runnable != null)
+                    task.runnable.run();
+                else
+                    target.dispatchDataUpdate(task.key, task.text, task.number, task.time);
+            }
+            catch (RuntimeException e)
+            {
+                Log.e(getClass().getSimpleName(), "Dispatch failed", e);
+            }
+        }
+    }
+}
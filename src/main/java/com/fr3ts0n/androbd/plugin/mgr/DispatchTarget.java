@@ -0,0 +1,75 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.PluginInfo;
+
+import java.util.Arrays;
+
+/**
+ * Resolved dispatch target of DATALIST / DATA requests
+ * <p>
+ * Immutable snapshot of the delivery relevant properties of an enabled plugin.
+ * Targets are re-created whenever the plugin list changes, so they may be
+ * used from any thread without synchronisation, even while the plugin
+ * manager UI modifies the underlying {@link PluginInfo}.
+ */
+final class DispatchTarget
+{
+    /** package name of plugin component */
+    final String packageName;
+    /** class name of plugin component */
+    final String className;
+    /** supported features of plugin */
+    final int features;
+    /** keys of subscribed data items (null = all data items) */
+    final String[] subscriptions;
+    /** min. update interval [ms] of data items (0 = unlimited) */
+    final long updateInterval;
+
+    /**
+     * Constructor
+     *
+     * @param plugin Plugin info to take snapshot of
+     */
+    DispatchTarget(PluginInfo plugin)
+    {
+        packageName = plugin.packageName;
+        className = plugin.className;
+        features = plugin.features;
+        subscriptions = plugin.subscriptions != null
+                        ? plugin.subscriptions.clone()
+                        : null;
+        updateInterval = plugin.updateInterval;
+    }
+
+    /**
+     * Check if a feature is supported by the plugin
+     *
+     * @param feature Feature bit(s) to check
+     * @return true if all specified feature bits are supported
+     */
+    boolean hasFeature(int feature)
+    {
+        return (features & feature) == feature;
+    }
+
+    /**
+     * Check if this target delivers identically to another target
+     *
+     * @param other Target to compare with
+     * @return true if component, features and update interval are equal
+     */
+    boolean sameDelivery(DispatchTarget other)
+    {
+        return other != null
+               && className.equals(other.className)
+               && packageName.equals(other.packageName)
+               && features == other.features
+               && updateInterval == other.updateInterval;
+    }
+
+    @Override
+    public String toString()
+    {
+        return className + (subscriptions != null ? Arrays.toString(subscriptions) : "");
+    }
+}
@@ -0,0 +1,135 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.PluginMetrics;
+
+/**
+ * Dispatcher of data updates / control tasks
+ * <p>
+ * Dispatches either via the current asynchronous dispatch engine, or
+ * synchronously within the caller's thread if there is none.
+ * <p>
+ * If the dispatch engine is exchanged, the previous engine processes all
+ * of it's queued tasks before the new engine gets published. Callers which
+ * still post to the previous engine get rejected and wait for the new one,
+ * so no update gets lost and the order of updates per caller is preserved
+ * across the exchange.
+ */
+class Dispatcher
+{
+    /** Executor of data updates */
+    private final DispatchEngine.Target target;
+    /** Metrics to count dropped / conflated updates */
+    private final PluginMetrics metrics;
+    /** Asynchronous dispatch engine (null = synchronous dispatch) */
+    private volatile DispatchEngine engine = null;
+    /** Lock for exchange of dispatch engine */
+    private final Object engineLock = new Object();
+
+    /**
+     * Constructor
+     *
+     * @param target  Executor of data updates
+     * @param metrics Metrics to count dropped / conflated updates
+     */
+    Dispatcher(DispatchEngine.Target target, PluginMetrics metrics)
+    {
+        this.target = target;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Exchange dispatch engine
+     * Returns after all tasks of the previous engine are processed.
+     *
+     * @param capacity Max. number of queued data updates (0 = synchronous dispatch)
+     * @param policy   Overflow policy
+     */
+    void setEngine(int capacity, DispatchEngine.OverflowPolicy policy)
+    {
+        synchronized (engineLock)
+        {
+            // previous engine processes remaining tasks before the new one takes over
+            DispatchEngine previous = engine;
+            if (previous != null)
+            {
+                previous.stop();
+            }
+
+            DispatchEngine next = null;
+            if (capacity > 0)
+            {
+                next = new DispatchEngine(capacity, policy, target, metrics);
+                next.start();
+            }
+            engine = next;
+        }
+    }
+
+    /**
+     * @return current dispatch engine (null = synchronous dispatch)
+     */
+    DispatchEngine getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * Dispatch data update
+     *
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     * @param time   Timestamp [ms] of data change
+     */
+    void post(String key, String text, double number, long time)
+    {
+        DispatchEngine current = engine;
+        while (current != null && !current.post(key, text, number, time))
+        {
+            current = nextEngine(current);
+        }
+        if (current == null)
+        {
+            target.dispatchDataUpdate(key, text, number, time);
+        }
+    }
+
+    /**
+     * Run a control task in order with dispatched data updates
+     *
+     * @param task Task to be executed
+     */
+    void post(Runnable task)
+    {
+        DispatchEngine current = engine;
+        while (current != null && !current.post(task))
+        {
+            current = nextEngine(current);
+        }
+        if (current == null)
+        {
+            task.run();
+        }
+    }
+
+    /**
+     * Get engine to dispatch to after a stopped engine rejected a task
+     *
+     * @param rejected Engine which rejected the task
+     * @return engine to retry with, null to dispatch synchronously
+     */
+    private DispatchEngine nextEngine(DispatchEngine rejected)
+    {
+        // task of the stopping engine itself: the exchange waits for it, so don't wait here
+        if (rejected.isWorker())
+        {
+            return null;
+        }
+        // wait for a running exchange to complete
+        synchronized (engineLock)
+        {
+            DispatchEngine current = engine;
+            return current != rejected ? current : null;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Messenger;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.fr3ts0n.androbd.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lifecycle manager of plugin service connections
+ * <p>
+ * Plugins are bound on first real traffic (see {@link #use}) rather than as soon
+ * as they are enabled. Connections which were not used for the idle timeout are
+ * unbound and the plugin service is stopped, so idle plugins don't keep a resident
+ * process. Connections are tracked per plugin component (class name).
+ * Pinned connections (e.g. of data providers, which only send data to the host)
+ * are never unbound due to inactivity.
+ */
+final class PluginConnections
+{
+    /** Default idle time [ms] before a plugin is unbound and stopped */
+    static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+
+    /**
+     * Listener to connection losses
+     */
+    interface Listener
+    {
+        /**
+         * Bound plugin service has died (i.e. killed by the system)
+         * The plugin is re-created by the system, but it has lost it's state.
+         *
+         * @param className Class name of plugin
+         */
+        void onConnectionLost(String className);
+    }
+
+    /**
+     * Connection to a single plugin component
+     */
+    static final class Connection implements ServiceConnection
+    {
+        /** plugin component */
+        final ComponentName component;
+        /** connection is never unbound due to inactivity */
+        final boolean pinned;
+        /** listener to connection losses */
+        private final Listener listener;
+        /** Messenger of bound plugin (null if no messenger transport is available) */
+        volatile Messenger messenger;
+        /** Plugin is attached to shared memory data ring */
+        volatile boolean ringAttached;
+        /** time [ms, uptime] of last traffic to plugin */
+        volatile long lastUsed;
+
+        Connection(ComponentName component, boolean pinned, Listener listener)
+        {
+            this.component = component;
+            this.pinned = pinned;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service)
+        {
+            Log.i(toString(), "Successful binding to " + component);
+            messenger = new Messenger(service);
+            ringAttached = false;
+        }
+
+        @Override
+        public void onNullBinding(ComponentName name)
+        {
+            Log.i(toString(), "Successful null binding to " + component);
+            messenger = null;
+            ringAttached = false;
+        }
+
+        @Override
+        public void onBindingDied(ComponentName name)
+        {
+            Log.i(toString(), "Binding died to " + component);
+            messenger = null;
+            ringAttached = false;
+            listener.onConnectionLost(component.getClassName());
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name)
+        {
+            Log.i(toString(), "Successful unbinding to " + component);
+            messenger = null;
+            ringAttached = false;
+            listener.onConnectionLost(component.getClassName());
+        }
+    }
+
+    /** context to bind plugins with */
+    private final Context context;
+    /** handler to run idle checks on */
+    private final Handler handler;
+    /** listener to connection losses */
+    private final Listener listener;
+    /** current connections by class name of plugin */
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    /** class names of plugins which were stopped due to inactivity */
+    private final Set<String> idleStopped = new HashSet<>();
+    /** idle time [ms] before a plugin is unbound and stopped (0 = never) */
+    private volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    /** idle check is scheduled */
+    private boolean idleCheckPending = false;
+
+    /**
+     * Periodic check for idle connections
+     */
+    private final Runnable idleCheckTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            synchronized (PluginConnections.this)
+            {
+                idleCheckPending = false;
+            }
+            stopIdle(SystemClock.uptimeMillis());
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param context  Context to bind plugins with
+     * @param handler  Handler to run idle checks on
+     * @param listener Listener to connection losses
+     */
+    PluginConnections(Context context, Handler handler, Listener listener)
+    {
+        this.context = context;
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    /**
+     * Set idle time before a plugin is unbound and stopped
+     *
+     * @param timeout Idle time [ms] (0 = never unbind idle plugins)
+     */
+    void setIdleTimeout(long timeout)
+    {
+        idleTimeout = Math.max(timeout, 0);
+        scheduleIdleCheck();
+    }
+
+    /**
+     * @param className Class name of plugin
+     * @return current connection to plugin, or null if plugin is not bound
+     */
+    Connection get(String className)
+    {
+        return connections.get(className);
+    }
+
+    /**
+     * @return all current connections
+     */
+    Collection<Connection> all()
+    {
+        return connections.values();
+    }
+
+    /**
+     * Use connection to a plugin for traffic
+     * The plugin is bound if not done yet.
+     *
+     * @param packageName Package name of plugin
+     * @param className   Class name of plugin
+     * @return true if the plugin was stopped due to inactivity before
+     *         (and therefore has lost it's state)
+     */
+    boolean use(String packageName, String className)
+    {
+        Connection connection = connections.get(className);
+        if (connection == null)
+        {
+            return bind(packageName, className, false);
+        }
+        connection.lastUsed = SystemClock.uptimeMillis();
+        return false;
+    }
+
+    /**
+     * Bind a plugin
+     *
+     * @param packageName Package name of plugin
+     * @param className   Class name of plugin
+     * @param pinned      Never unbind connection due to inactivity
+     * @return true if the plugin was stopped due to inactivity before
+     */
+    synchronized boolean bind(String packageName, String className, boolean pinned)
+    {
+        Connection connection = connections.get(className);
+        if (connection != null)
+        {
+            connection.lastUsed = SystemClock.uptimeMillis();
+            return false;
+        }
+
+        Intent intent = new Intent(Plugin.IDENTIFY);
+        intent.addCategory(Plugin.REQUEST);
+        ComponentName component = new ComponentName(packageName, className);
+        intent.setComponent(component);
+
+        connection = new Connection(component, pinned, listener);
+        connection.lastUsed = SystemClock.uptimeMillis();
+        context.bindService(intent, connection, Context.BIND_AUTO_CREATE);
+        connections.put(className, connection);
+        scheduleIdleCheck();
+        return idleStopped.remove(className);
+    }
+
+    /**
+     * Unbind a plugin
+     *
+     * @param className Class name of plugin
+     */
+    synchronized void unbind(String className)
+    {
+        idleStopped.remove(className);
+        close(connections.remove(className));
+    }
+
+    /**
+     * Unbind all plugins of a package
+     *
+     * @param packageName Name of package
+     */
+    synchronized void unbindPackage(String packageName)
+    {
+        Iterator<Connection> it = connections.values().iterator();
+        while (it.hasNext())
+        {
+            Connection connection = it.next();
+            if (connection.component.getPackageName().equals(packageName))
+            {
+                it.remove();
+                idleStopped.remove(connection.component.getClassName());
+                close(connection);
+            }
+        }
+    }
+
+    /**
+     * Unbind all plugins
+     */
+    synchronized void unbindAll()
+    {
+        for (Connection connection : connections.values())
+        {
+            close(connection);
+        }
+        connections.clear();
+        idleStopped.clear();
+        handler.removeCallbacks(idleCheckTask);
+        idleCheckPending = false;
+    }
+
+    /**
+     * Unbind and stop all plugins which were idle for the idle timeout
+     *
+     * @param now Current time [ms, uptime]
+     */
+    private void stopIdle(long now)
+    {
+        long timeout = idleTimeout;
+        List<Connection> idle = new ArrayList<>();
+        synchronized (this)
+        {
+            if (timeout > 0)
+            {
+                for (Connection connection : connections.values())
+                {
+                    if (!connection.pinned && now - connection.lastUsed >= timeout)
+                    {
+                        idle.add(connection);
+                    }
+                }
+                for (Connection connection : idle)
+                {
+                    String className = connection.component.getClassName();
+                    connections.remove(className);
+                    idleStopped.add(className);
+                    close(connection);
+                }
+            }
+            scheduleIdleCheck();
+        }
+
+        for (Connection connection : idle)
+        {
+            Intent intent = new Intent();
+            intent.setComponent(connection.component);
+            Log.i(toString(), "Stop idle service: " + intent);
+            context.stopService(intent);
+        }
+    }
+
+    /**
+     * Schedule next idle check if required
+     */
+    private synchronized void scheduleIdleCheck()
+    {
+        long timeout = idleTimeout;
+        if (!idleCheckPending && timeout > 0 && !connections.isEmpty())
+        {
+            idleCheckPending = true;
+            handler.postDelayed(idleCheckTask, Math.max(timeout / 2, 1000));
+        }
+    }
+
+    /**
+     * Close a connection
+     */
+    private void close(Connection connection)
+    {
+        if (connection == null)
+        {
+            return;
+        }
+        connection.messenger = null;
+        connection.ringAttached = false;
+        try
+        {
+            context.unbindService(connection);
+        } catch (Exception e)
+        {
+            // error while disconnecting
+        }
+    }
+}
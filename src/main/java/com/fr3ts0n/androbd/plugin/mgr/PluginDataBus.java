@@ -0,0 +1,397 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import android.util.Log;
+
+import com.fr3ts0n.androbd.plugin.DataBatch;
+import com.fr3ts0n.androbd.plugin.DataItemList;
+import com.fr3ts0n.androbd.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Data bus of plugin data received by the host
+ * <p>
+ * Any number of data receivers may subscribe to the data bus, each with an
+ * optional filter of data keys and an executor to receive the updates on.
+ * Updates are queued per subscriber and delivered in order on the subscriber's
+ * executor, so a slow subscriber does not block the publisher or other subscribers.
+ * If a subscriber falls behind by more than {@link #QUEUE_LIMIT} updates, further
+ * data updates are dropped for this subscriber (data lists are never dropped).
+ * <p>
+ * Subscribers are kept in a copy-on-write list, so publishing never takes a lock
+ * and subscriptions may be changed from any thread at any time.
+ */
+public class PluginDataBus
+{
+    /** Max. number of pending updates of a subscriber before data updates are dropped */
+    public static final int QUEUE_LIMIT = 1024;
+
+    /**
+     * Single published update (shared by all subscribers)
+     */
+    private static final class Event
+    {
+        /** data list (null for data updates) */
+        final DataItemList items;
+        /** CSV of data list as received (null for data updates) */
+        final String csv;
+        /** data key */
+        final String key;
+        /** textual value (null for numeric values) */
+        final String text;
+        /** numeric value */
+        final double value;
+        /** time [ms] of numeric value */
+        final long time;
+
+        Event(DataItemList items, String csv, String key, String text, double value, long time)
+        {
+            this.items = items;
+            this.csv = csv;
+            this.key = key;
+            this.text = text;
+            this.value = value;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Subscription of a data receiver to the data bus
+     */
+    public static final class Subscription
+    {
+        /** subscribed data receiver */
+        private final Plugin.DataReceiver receiver;
+        /** subscribed data keys (null = all data keys) */
+        private final Set<String> keys;
+        /** executor to deliver updates on (null = publishing thread) */
+        private final Executor executor;
+        /** pending updates */
+        private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+        /** number of pending updates */
+        private final AtomicInteger pending = new AtomicInteger();
+        /** delivery task is scheduled on executor */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /** number of dropped data updates */
+        private final AtomicLong dropped = new AtomicLong();
+        /** subscription is active */
+        private volatile boolean active = true;
+
+        /**
+         * Delivery of pending updates on executor
+         */
+        private final Runnable drainTask = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Event event;
+                while (active && (event = queue.poll()) != null)
+                {
+                    pending.decrementAndGet();
+                    deliver(event);
+                }
+                scheduled.set(false);
+                // updates which were queued after the last poll
+                if (active && !queue.isEmpty())
+                {
+                    schedule();
+                }
+            }
+        };
+
+        Subscription(Plugin.DataReceiver receiver, Set<String> keys, Executor executor)
+        {
+            this.receiver = receiver;
+            this.keys = keys;
+            this.executor = executor;
+        }
+
+        /**
+         * @return subscribed data receiver
+         */
+        public Plugin.DataReceiver getReceiver()
+        {
+            return receiver;
+        }
+
+        /**
+         * @return true if subscription is still active
+         */
+        public boolean isActive()
+        {
+            return active;
+        }
+
+        /**
+         * @return number of data updates which were dropped due to a full queue
+         */
+        public long getDroppedCount()
+        {
+            return dropped.get();
+        }
+
+        /**
+         * @param key Data key
+         * @return true if subscriber accepts updates of data key
+         */
+        boolean accepts(String key)
+        {
+            return keys == null || keys.contains(key);
+        }
+
+        /**
+         * Queue update for delivery
+         *
+         * @param event Update to deliver
+         */
+        void post(Event event)
+        {
+            if (executor == null)
+            {
+                deliver(event);
+                return;
+            }
+
+            // drop data updates of slow subscribers, but keep data lists
+            if (event.items == null && pending.get() >= QUEUE_LIMIT)
+            {
+                dropped.incrementAndGet();
+                return;
+            }
+            queue.offer(event);
+            pending.incrementAndGet();
+            schedule();
+        }
+
+        /**
+         * Stop delivery and drop all pending updates
+         */
+        void cancel()
+        {
+            active = false;
+            queue.clear();
+        }
+
+        /**
+         * Schedule delivery task on executor if not done yet
+         */
+        private void schedule()
+        {
+            if (scheduled.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(drainTask);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    Log.w(PluginDataBus.class.getSimpleName(), "Delivery rejected: " + receiver, e);
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Deliver update to the most specific interface of the receiver
+         *
+         * @param event Update to deliver
+         */
+        private void deliver(Event event)
+        {
+            try
+            {
+                if (event.items != null)
+                {
+                    if (receiver instanceof Plugin.DataItemReceiver)
+                    {
+                        ((Plugin.DataItemReceiver) receiver).onDataListUpdate(event.items);
+                    }
+                    else
+                    {
+                        receiver.onDataListUpdate(event.csv);
+                    }
+                }
+                else if (event.text != null)
+                {
+                    receiver.onDataUpdate(event.key, event.text);
+                }
+                else if (receiver instanceof Plugin.NumericDataReceiver)
+                {
+                    ((Plugin.NumericDataReceiver) receiver).onDataUpdate(event.key, event.value, event.time);
+                }
+                else
+                {
+                    receiver.onDataUpdate(event.key, DataBatch.formatNumber(event.value));
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // a failing subscriber must not affect other subscribers
+                Log.e(PluginDataBus.class.getSimpleName(), "Delivery failed: " + receiver, e);
+            }
+        }
+    }
+
+    /** current subscriptions */
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Subscribe a data receiver to all data keys
+     *
+     * @param receiver Data receiver to subscribe
+     * @param executor Executor to deliver updates on
+     *                 (null = deliver on publishing thread, receiver must not block)
+     * @return subscription of receiver
+     */
+    public Subscription subscribe(Plugin.DataReceiver receiver, Executor executor)
+    {
+        return subscribe(receiver, null, executor);
+    }
+
+    /**
+     * Subscribe a data receiver
+     * Data lists are always delivered, data updates only for the subscribed data keys.
+     *
+     * @param receiver Data receiver to subscribe
+     * @param keys     Data keys to subscribe to (null = all data keys)
+     * @param executor Executor to deliver updates on
+     *                 (null = deliver on publishing thread, receiver must not block)
+     * @return subscription of receiver
+     */
+    public Subscription subscribe(Plugin.DataReceiver receiver,
+                                  Collection<String> keys,
+                                  Executor executor)
+    {
+        Set<String> keySet = keys != null
+                             ? Collections.unmodifiableSet(new HashSet<>(keys))
+                             : null;
+        Subscription subscription = new Subscription(receiver, keySet, executor);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Cancel a subscription
+     * Pending updates of the subscription are dropped.
+     *
+     * @param subscription Subscription to cancel
+     */
+    public void unsubscribe(Subscription subscription)
+    {
+        if (subscription != null)
+        {
+            subscription.cancel();
+            subscriptions.remove(subscription);
+        }
+    }
+
+    /**
+     * Cancel all subscriptions of a data receiver
+     *
+     * @param receiver Data receiver to unsubscribe
+     */
+    public void unsubscribe(Plugin.DataReceiver receiver)
+    {
+        for (Subscription subscription : subscriptions)
+        {
+            if (subscription.receiver == receiver)
+            {
+                unsubscribe(subscription);
+            }
+        }
+    }
+
+    /**
+     * @return number of current subscriptions
+     */
+    public int getSubscriberCount()
+    {
+        return subscriptions.size();
+    }
+
+    /**
+     * Publish a data list to all subscribers
+     *
+     * @param items Data list
+     */
+    public void publishDataList(DataItemList items)
+    {
+        publishDataList(items, items.toCsv());
+    }
+
+    /**
+     * Publish a data list to all subscribers
+     * Subscribers which don't support parsed data lists get the CSV unchanged.
+     *
+     * @param items Data list
+     * @param csv   CSV of data list as received
+     */
+    public void publishDataList(DataItemList items, String csv)
+    {
+        Event event = null;
+        for (Subscription subscription : subscriptions)
+        {
+            if (event == null)
+            {
+                event = new Event(items, csv, null, null, 0, 0);
+            }
+            subscription.post(event);
+        }
+    }
+
+    /**
+     * Publish a textual data update to all subscribers of the data key
+     *
+     * @param key   Data key
+     * @param value Data value
+     */
+    public void publishData(String key, String value)
+    {
+        publish(key, value != null ? value : "", 0, 0);
+    }
+
+    /**
+     * Publish a numeric data update to all subscribers of the data key
+     *
+     * @param key   Data key
+     * @param value Numeric data value
+     * @param time  Time [ms] of data value
+     */
+    public void publishData(String key, double value, long time)
+    {
+        publish(key, null, value, time);
+    }
+
+    /**
+     * Publish data update to all subscribers of the data key
+     * (the update is only created if there is any subscriber)
+     */
+    private void publish(String key, String text, double value, long time)
+    {
+        Event event = null;
+        for (Subscription subscription : subscriptions)
+        {
+            if (subscription.accepts(key))
+            {
+                if (event == null)
+                {
+                    event = new Event(null, null, key, text, value, time);
+                }
+                subscription.post(event);
+            }
+        }
+    }
+}
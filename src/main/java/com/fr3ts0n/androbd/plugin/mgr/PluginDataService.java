@@ -2,21 +2,29 @@ package com.fr3ts0n.androbd.plugin.mgr;
 
 import android.content.Context;
 import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
 
+import com.fr3ts0n.androbd.plugin.DataItemList;
+import com.fr3ts0n.androbd.plugin.DataLatencyMonitor;
+import com.fr3ts0n.androbd.plugin.DataList;
 import com.fr3ts0n.androbd.plugin.Plugin;
 import com.fr3ts0n.androbd.plugin.PluginInfo;
+import com.fr3ts0n.androbd.plugin.PluginMetrics;
 
 /**
  * PluginDataService
  * <p>
  * This class implements a host-sided plugin to allow data reception
  * from other plugins.
- * The handling of received data is forwarded to a external data receiver
- * which must be provided by the application side.
+ * Received data is published on the host data bus (see {@link #getDataBus()}),
+ * which any number of data receivers on the application side may subscribe to.
  */
 public class PluginDataService
         extends Plugin
-        implements Plugin.DataReceiver
+        implements Plugin.NumericDataReceiver,
+                   Plugin.DataItemReceiver
 {
     static final PluginInfo myInfo = new PluginInfo("AndrOBD",
                                                     PluginDataService.class,
@@ -25,11 +33,37 @@ public class PluginDataService
                                                     "GPLV3+",
                                                     "https://github.com/fr3ts0n/AndrOBD");
 
+    /**
+     * data bus of received data (shared with plugin handler)
+     */
+    static final PluginDataBus dataBus = new PluginDataBus();
+
     /**
      * external data receiver (i.e. application)
      */
     static Plugin.DataReceiver dataReceiver = null;
 
+    /**
+     * data bus subscription of external data receiver
+     */
+    private static PluginDataBus.Subscription receiverSubscription = null;
+
+    /**
+     * metrics of host communication (shared with plugin handler)
+     */
+    static final PluginMetrics hostMetrics = new PluginMetrics();
+
+    /**
+     * monitor of DATA latency / lost messages received from plugins
+     */
+    static final DataLatencyMonitor hostLatency = new DataLatencyMonitor();
+
+    /**
+     * host context to send requests with
+     * (if used for direct delivery instead of running as service)
+     */
+    private Context hostContext = null;
+
     @Override
     public PluginInfo getPluginInfo()
     {
@@ -46,12 +80,67 @@ public class PluginDataService
 
     /**
      * Register external data receiver
+     * The receiver replaces the previously registered receiver and is subscribed
+     * to all data keys on the delivering thread. Use {@link #getDataBus()} to
+     * subscribe multiple receivers.
      *
      * @param dataReceiver External data receiver to handle data updates
      */
     public void setDataReceiver(Plugin.DataReceiver dataReceiver)
     {
-        PluginDataService.dataReceiver = dataReceiver;
+        synchronized (dataBus)
+        {
+            dataBus.unsubscribe(receiverSubscription);
+            receiverSubscription = dataReceiver != null
+                                   ? dataBus.subscribe(dataReceiver, null)
+                                   : null;
+            PluginDataService.dataReceiver = dataReceiver;
+        }
+    }
+
+    /**
+     * @return data bus of received plugin data
+     */
+    public static PluginDataBus getDataBus()
+    {
+        return dataBus;
+    }
+
+    /**
+     * Use this instance for direct delivery of plugin responses
+     * within the host process (see {@link #deliver})
+     *
+     * @param context Host context to send requests with
+     * @param handler Handler of the thread which delivers the responses
+     */
+    void attachHost(Context context, Handler handler)
+    {
+        hostContext = context;
+        setReceiveHandler(handler);
+    }
+
+    /**
+     * Deliver a DATALIST / DATA response directly, without starting the service
+     * (all responses must be delivered on the thread of the handler passed to
+     * {@link #attachHost})
+     *
+     * @param intent Response intent received from plugin
+     */
+    void deliver(Intent intent)
+    {
+        handleIntent(intent);
+    }
+
+    @Override
+    public PluginMetrics getMetrics()
+    {
+        return hostMetrics;
+    }
+
+    @Override
+    public DataLatencyMonitor getLatencyMonitor()
+    {
+        return hostLatency;
     }
 
     @Override
@@ -61,22 +150,58 @@ public class PluginDataService
     }
 
     @Override
-    public void onDataListUpdate(String csvString)
+    protected void requestResync(Bundle data)
     {
-        // forward update to registered data receiver
-        if (getDataReceiver() != null)
+        // request full data list directly from the providing plugin
+        String packageName = data.getString(PluginInfo.Field.PACKAGE.toString());
+        String className = data.getString(EXTRA_DATA_SOURCE);
+        if (packageName == null || className == null)
         {
-            getDataReceiver().onDataListUpdate(csvString);
+            Log.w(toString(), "RESYNC not possible, unknown source");
+            return;
         }
+        Intent intent = new Intent(RESYNC);
+        intent.addCategory(REQUEST);
+        intent.setClassName(packageName, className);
+        Log.d(toString(), ">RESYNC: " + intent);
+        long start = System.nanoTime();
+        (hostContext != null ? hostContext : this).startService(intent);
+        getMetrics().count(className, PluginMetrics.Action.RESYNC, PluginMetrics.Counter.SENT,
+                           0, System.nanoTime() - start);
+    }
+
+    @Override
+    protected void deliverDataList(String csvString, DataList list)
+    {
+        // publish parsed list, and CSV as received for subscribers which get the CSV
+        dataBus.publishDataList(list.getItems(), csvString);
+    }
+
+    @Override
+    public void onDataListUpdate(String csvString)
+    {
+        // publish update to data bus subscribers
+        dataBus.publishDataList(DataItemList.parse(csvString, DataList.NO_VERSION));
+    }
+
+    @Override
+    public void onDataListUpdate(DataItemList items)
+    {
+        // publish update to data bus subscribers
+        dataBus.publishDataList(items);
     }
 
     @Override
     public void onDataUpdate(String key, String value)
     {
-        // forward update to registered data receiver
-        if (getDataReceiver() != null)
-        {
-            getDataReceiver().onDataUpdate(key, value);
-        }
+        // publish update to data bus subscribers
+        dataBus.publishData(key, value);
+    }
+
+    @Override
+    public void onDataUpdate(String key, double value, long time)
+    {
+        // publish update to data bus subscribers
+        dataBus.publishData(key, value, time);
     }
 }
@@ -5,30 +5,44 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.ServiceConnection;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
-import android.os.IBinder;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
 import android.preference.PreferenceManager;
 import android.util.Log;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
-import android.widget.Button;
-import android.widget.CheckBox;
-import android.widget.Switch;
-import android.widget.TextView;
 
+import com.fr3ts0n.androbd.plugin.BuildConfig;
+import com.fr3ts0n.androbd.plugin.DataBatch;
+import com.fr3ts0n.androbd.plugin.DataCompression;
+import com.fr3ts0n.androbd.plugin.DataDictionary;
+import com.fr3ts0n.androbd.plugin.DataItemList;
+import com.fr3ts0n.androbd.plugin.DataLatencyMonitor;
+import com.fr3ts0n.androbd.plugin.DataList;
+import com.fr3ts0n.androbd.plugin.DataListChunks;
 import com.fr3ts0n.androbd.plugin.Plugin;
 import com.fr3ts0n.androbd.plugin.PluginInfo;
-import com.fr3ts0n.androbd.plugin.R;
+import com.fr3ts0n.androbd.plugin.PluginMetrics;
+import com.fr3ts0n.androbd.plugin.SharedDataRing;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Plugin handler
@@ -36,22 +50,42 @@ import java.util.Set;
  * This class handles a list of detected plugins:
  * - Allow adding / deleting plugin instances
  * - Handle automatic plugin detection
- * - Provide display adapter of current plugin list
+ * - Provide registry of current plugin list (see {@link PluginListAdapter} for display)
  * - Handle sending Intents to individual / all plugins
  */
 public class PluginHandler
-        extends ArrayAdapter<PluginInfo>
-        implements Plugin.DataProvider
+        implements Plugin.NumericDataProvider
 {
+    /** compile time switch for verbose logging of sent requests */
+    private static final boolean LOG_VERBOSE = BuildConfig.DEBUG;
+
     /**
      * Plugin servicefor data reception
      */
     private transient PluginDataService svc = new PluginDataService();
 
     /**
-     * layout inflater
+     * The current context
+     */
+    private final Context mContext;
+
+    /**
+     * Registry of identified plugins
      */
-    private transient LayoutInflater mInflater;
+    private final PluginRegistry registry = new PluginRegistry();
+
+    /**
+     * Listener to keep dispatch targets and registry cache in sync with registry
+     */
+    private final PluginRegistry.Listener registryListener = new PluginRegistry.Listener()
+    {
+        @Override
+        public void onRegistryChanged(PluginRegistry.Change change)
+        {
+            updateDispatchTargets();
+            saveRegistry();
+        }
+    };
 
     /**
      * Application preferences
@@ -66,365 +100,1025 @@ public class PluginHandler
         @Override
         public void onReceive(Context context, Intent intent)
         {
-            Log.v(toString(), "Broadcast received: " + intent);
+            if (LOG_VERBOSE) Log.v(toString(), "Broadcast received: " + intent);
 
             String action = intent.getAction();
             if (Plugin.IDENTIFY.equals(action))
             {
                 PluginInfo plugin = new PluginInfo(intent.getExtras());
                 Log.i(toString(), "Plugin identified: " + plugin.toString());
+                metrics.add(plugin.className, PluginMetrics.Action.IDENTIFY, PluginMetrics.Counter.RECEIVED, 1);
                 // get preferred enable/disable state from settings
                 plugin.enabled = mPrefs.getBoolean(plugin.className, true);
+                // get preferred update rate from settings (default: as requested by plugin)
+                plugin.updateInterval = mPrefs.getLong(plugin.className + PREF_UPDATE_INTERVAL,
+                                                       plugin.updateInterval);
                 // add (or replace) plugin in the list
                 boolean previouslyFound = upsert(plugin);
                 // set current enabled/disabled state (to stop disabled services)
                 if (!previouslyFound)
                 {
-                    setPluginEnabled(getPosition(plugin), plugin.enabled);
+                    setPluginEnabled(plugin.className, plugin.enabled);
                 }
+                else
+                {
+                    // plugin may have restarted, so it needs the complete data list
+                    requireDataList(plugin.className);
+                    // ... and current values of all data items
+                    changeFilter.reset(plugin.className);
+                }
+            }
+
+            if (Plugin.RESYNC.equals(action))
+            {
+                // plugin has lost track of data list version
+                String className = intent.getStringExtra(PluginInfo.Field.CLASS.toString());
+                metrics.add(className != null ? className : PluginMetrics.GLOBAL,
+                            PluginMetrics.Action.RESYNC, PluginMetrics.Counter.RECEIVED, 1);
+                resendDataList(className);
+                return;
+            }
+
+            if (Plugin.SUBSCRIBE.equals(action))
+            {
+                // update data subscriptions of plugin
+                String className = intent.getStringExtra(PluginInfo.Field.CLASS.toString());
+                metrics.add(className != null ? className : PluginMetrics.GLOBAL,
+                            PluginMetrics.Action.SUBSCRIBE, PluginMetrics.Counter.RECEIVED, 1);
+                setSubscriptions(className, intent.getStringArrayExtra(Plugin.EXTRA_DATA_KEYS));
+                return;
+            }
+
+            // decode and dispatch data directly on data worker
+            final Handler handler = dataHandler;
+            if (handler != null
+                && (Plugin.DATA.equals(action) || Plugin.DATALIST.equals(action)))
+            {
+                final Intent response = intent;
+                handler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        svc.deliver(response);
+                    }
+                });
+                return;
             }
 
+            // fallback: deliver via host data service
             intent.setClass(getContext(), PluginDataService.class);
             context.startService(intent);
         }
     };
 
     /**
-     * the listener to receive bindService callbacks
+     * the receiver to receive package changes (installed / updated / removed plugins)
      */
-    private static class BoundServiceConnection implements ServiceConnection
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver()
     {
-        private final String name;
-        public BoundServiceConnection(String name)
-        {
-            this.name = name;
-        }
-
         @Override
-        public void onServiceConnected(ComponentName name, IBinder service)
+        public void onReceive(Context context, Intent intent)
         {
-            Log.i(toString(), "Successful binding to " + this.name);
-        }
+            Uri data = intent.getData();
+            String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName == null)
+            {
+                return;
+            }
 
-        @Override
-        public void onNullBinding(ComponentName name)
-        {
-            Log.i(toString(), "Successful null binding to " + this.name);
+            // an update is reported as REMOVED + ADDED (replacing) followed by REPLACED
+            boolean replacing = intent.getBooleanExtra(Intent.EXTRA_REPLACING, false);
+            String action = intent.getAction();
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(action) && !replacing)
+            {
+                Log.i(toString(), "Package removed: " + packageName);
+                removePackage(packageName);
+            }
+            else if (Intent.ACTION_PACKAGE_ADDED.equals(action) && !replacing
+                     || Intent.ACTION_PACKAGE_REPLACED.equals(action))
+            {
+                Log.i(toString(), "Package changed: " + packageName);
+                identifyPackage(packageName);
+            }
         }
+    };
 
-        @Override
-        public void onBindingDied(ComponentName name)
-        {
-            Log.i(toString(), "Binding died to " + this.name);
-        }
+    /**
+     * Flag if receivers are registered and initial plugin discovery was started
+     */
+    private boolean isSetUp = false;
 
-        @Override
-        public void onServiceDisconnected(ComponentName name)
-        {
-            Log.i(toString(), "Successful unbinding to " + this.name);
-        }
-    }
+    /**
+     * Worker thread for plugin discovery (PackageManager queries)
+     */
+    private HandlerThread discoveryThread = null;
 
     /**
-     * The collection of currently-bound plugin services
+     * Handler to run plugin discovery on worker thread
      */
-    private final Map<String, ServiceConnection> mBoundServices;
+    private volatile Handler discoveryHandler = null;
 
     /**
-     * Constructor
-     *  @param context  The current context.
+     * Worker thread for direct delivery of plugin data to the data receiver
      */
-    PluginHandler(Context context)
-    {
-        this(context, R.layout.plugininfo);
-    }
+    private HandlerThread dataThread = null;
 
     /**
-     * Constructor
-     *  @param context  The current context.
-     *  @param resource The resource ID for a layout file containing a TextView to use when
+     * Handler to deliver plugin data on worker thread
      */
-    PluginHandler(Context context, int resource)
-    {
-        super(context, resource);
-        // create layout inflater
-        mInflater = (LayoutInflater) context
-                .getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+    private volatile Handler dataHandler = null;
 
-        mPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+    /**
+     * Delay [ms] of refreshing plugins which were restored from registry cache
+     */
+    private static final long REGISTRY_REFRESH_DELAY = 10000;
 
-        mBoundServices = new HashMap<>();
-    }
+    /**
+     * Persistent cache of identified plugins
+     */
+    private final PluginRegistryCache registryCache;
 
     /**
-     * Adds or replaces a single item in this ArrayAdapter
-     * @param item The item to insert or replace
-     * @return true if the item was replaced, false if it was added as a new item
+     * Flag if saving of registry cache is already scheduled
      */
-    public boolean upsert(PluginInfo item)
+    private final AtomicBoolean registrySavePending = new AtomicBoolean();
+
+    /**
+     * Scheduled save of registry cache
+     */
+    private final Runnable registrySaveTask = new Runnable()
     {
-        int index = getPosition(item);
-        if (index < 0)
-        {
-            add(item);
-            return false;
-        }
-        else
+        @Override
+        public void run()
         {
-            remove(item);
-            insert(item, index);
-            return true;
+            writeRegistry();
         }
-    }
+    };
 
-    @Override
-    public void clear()
-    {
-        closeAllPlugins();
-        super.clear();
-    }
+    /**
+     * Current snapshot of DATA targets
+     */
+    private volatile SubscriptionIndex subscriptionIndex =
+        new SubscriptionIndex(new ArrayList<PluginInfo>());
 
     /**
-     * Close all identified plugins
+     * Preference key suffix of plugin update interval
      */
-    private void closeAllPlugins()
+    private static final String PREF_UPDATE_INTERVAL = ":updateInterval";
+
+    /**
+     * Rate limiters by plugin class name
+     */
+    private final Map<String, UpdateConflater> conflaters = new ConcurrentHashMap<>();
+
+    /**
+     * Min. update intervals [ms] by data key
+     */
+    private final Map<String, Long> keyUpdateIntervals = new ConcurrentHashMap<>();
+
+    /**
+     * Executor of asynchronously dispatched data updates
+     */
+    private final DispatchEngine.Target dispatchTarget = new DispatchEngine.Target()
     {
-        // loop through all identified plugins
-        for (int i = 0; i < getCount(); i++)
+        @Override
+        public void dispatchDataUpdate(String key, String text, double number, long time)
         {
-            stopPlugin(i);
+            PluginHandler.this.dispatchDataUpdate(key, text, number, time);
         }
-    }
+    };
 
     /**
-     * get external data receiver
+     * Dispatcher of data updates (asynchronously via dispatch engine, or synchronously)
      */
-    Plugin.DataReceiver getDataReceiver()
-    {
-        return svc.getDataReceiver();
-    }
+    private final Dispatcher dispatcher;
 
     /**
-     * Set external data receiver component
-     *
-     * @param dataReceiver external data receiver component
+     * Change-only filter of data updates
      */
-    void setDataReceiver(Plugin.DataReceiver dataReceiver)
-    {
-        svc.setDataReceiver(dataReceiver);
-    }
+    private final ChangeFilter changeFilter = new ChangeFilter();
 
     /**
-     * Set up all components
-     * - register receiver
-     * - initiate plugin identification
+     * Delivery of rate limited data updates
      */
-    void setup()
+    private final UpdateConflater.Sink conflaterSink = new UpdateConflater.Sink()
     {
-        // register this handler as a receive filter
-        IntentFilter flt = new IntentFilter();
-        flt.addCategory(Plugin.RESPONSE);
-        flt.addAction(Plugin.IDENTIFY);
-        flt.addAction(Plugin.DATALIST);
-        flt.addAction(Plugin.DATA);
-        androidx.core.content.ContextCompat.registerReceiver(
-                getContext(),
-                receiver,
-                flt,
-                androidx.core.content.ContextCompat.RECEIVER_EXPORTED);
+        @Override
+        public void deliverBatch(DispatchTarget target, DataBatch batch)
+        {
+            deliverDataBatch(target, batch);
+        }
+    };
 
-        // trigger plugin search
-        identifyPlugins();
-    }
+    /**
+     * Connections to bound plugin services
+     */
+    private final PluginConnections connections;
 
     /**
-     * Clean up all components
-     * - close all plugins
-     * - unregister receiver
+     * Listener to plugins which died while bound
      */
-    void cleanup()
+    private final PluginConnections.Listener connectionListener = new PluginConnections.Listener()
     {
-        // unregister receiver
-        try
-        {
-            getContext().unregisterReceiver(receiver);
-        } catch (Exception e)
+        @Override
+        public void onConnectionLost(String className)
         {
-            Log.e(toString(), e.getMessage());
+            // re-created plugin has lost the data list, so next traffic starts with the complete list
+            sentDataListVersions.remove(className);
+            // ... and it needs current values of all data items
+            changeFilter.reset(className);
         }
+    };
 
-        // Clear all plugins
-        clear();
-    }
+    /**
+     * Metrics of plugin communication
+     * (shared with host data service to include received data)
+     */
+    private final PluginMetrics metrics = PluginDataService.hostMetrics;
 
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent)
-    {
-        PluginInfo info = getItem(position);
+    /**
+     * Sequence numbers of next DATA message by plugin class name
+     */
+    private final Map<String, AtomicLong> dataSequences = new ConcurrentHashMap<>();
 
-        View infoView;
-        if (convertView != null)
-            infoView = convertView;
-        else
-            infoView = mInflater.inflate(R.layout.plugininfo, parent, false);
+    /**
+     * Data list version which was completely sent to a plugin by plugin class name
+     * (only this version may be used as compression dictionary of requests to the plugin)
+     */
+    private final Map<String, Integer> sentDataListVersions = new ConcurrentHashMap<>();
 
-        TextView tv;
-        tv = infoView.findViewById(R.id.edName);
-        tv.setEnabled(info.enabled);
-        tv.setText(info.name);
+    /**
+     * Dictionary of data key IDs which are assigned with DATALIST
+     */
+    private final DataDictionary dataDictionary = new DataDictionary();
 
-        tv = infoView.findViewById(R.id.edClass);
-        tv.setEnabled(info.enabled);
-        tv.setText(info.className);
+    /**
+     * Versioned data list as sent to plugins
+     */
+    private final DataList dataList = new DataList();
 
-        tv = infoView.findViewById(R.id.edDescription);
-        tv.setEnabled(info.enabled);
-        tv.setText(info.description);
+    /**
+     * Most recently sent complete data list
+     * (as provided by the host, so plugins without delta support get it unchanged)
+     */
+    private String lastDataList = null;
 
-        // get feature checkboxes
-        CheckBox[] cb =
-        {
-            infoView.findViewById(R.id.cbConfig),
-            infoView.findViewById(R.id.cbAction),
-            infoView.findViewById(R.id.cbDataList),
-            infoView.findViewById(R.id.cbData),
-        };
+    /**
+     * IDs of data items within most recently sent complete data list
+     */
+    private int[] lastDataIds = null;
 
-        // set checkbox checked state based on supported features
-        for (int bit = 0; bit < 4; bit++)
-        {
-            cb[bit].setChecked((info.features & (1 << bit)) != 0);
-        }
+    /**
+     * Send compressed DATALIST / DATA requests to plugins which support it
+     */
+    private volatile boolean compression = false;
 
-        // enable / disable buttons based on supported features
-        Button btn;
-        btn = infoView.findViewById(R.id.btnConfigure);
-        btn.setEnabled(info.enabled && (info.features & PluginInfo.FEATURE_CONFIGURE) != 0);
+    /**
+     * Max. number of data updates per batch (0 = batching disabled)
+     */
+    private volatile int batchMaxItems = 0;
 
-        btn = infoView.findViewById(R.id.btnAction);
-        btn.setEnabled(info.enabled && (info.features & PluginInfo.FEATURE_ACTION) != 0);
+    /**
+     * Max. time [ms] to collect data updates before a batch gets flushed
+     */
+    private volatile long batchFlushWindow = 0;
 
-        infoView.setActivated(info.enabled);
+    /**
+     * Currently collected data updates
+     */
+    private DataBatch pendingBatch = new DataBatch();
 
-        Switch swEnable = infoView.findViewById(R.id.swEnable);
-        swEnable.setChecked(info.enabled);
+    /**
+     * Batch which is currently being sent (swapped with pending batch on flush)
+     */
+    private DataBatch sendingBatch = new DataBatch();
 
-        return infoView;
-    }
+    /**
+     * Lock to protect collection of pending data updates
+     */
+    private final Object batchLock = new Object();
 
     /**
-     * enable/disable specified plugin
-     *
-     * Enabling triggers a action event to the plugin.
-     * Disabling stops the plugin service
-     *
-     * @param position position of plugin within array
-     * @param enable flag if to enable (@ref true) / disable (@ref false) the plugin
+     * Lock to serialize flushing of data batches
      */
-    void setPluginEnabled(int position, boolean enable)
-    {
-        // set enabled state in plugin info
-        PluginInfo plugin = getItem(position);
-        plugin.enabled = enable;
-        // remember this state in settings
-        mPrefs.edit().putBoolean(plugin.className, enable).apply();
+    private final Object flushLock = new Object();
+
+    /**
+     * Worker thread for timed flushing of data batches / rate limited updates
+     * (keeps plugin fan-out off the UI thread)
+     */
+    private final HandlerThread flushThread;
 
-        // notify about changes to re-trigger display
-        notifyDataSetChanged();
+    /**
+     * Handler to trigger timed flushing of data batches / rate limited updates
+     */
+    private final Handler flushHandler;
 
-        if (enable)
-        {
-            // make sure plugin is running
-            bindPlugin(plugin.packageName, plugin.className);
-            // initiate plugin action
-            triggerAction(position);
-        }
-        else
+    /**
+     * Timed flush of pending data batch
+     */
+    private final Runnable flushTask = new Runnable()
+    {
+        @Override
+        public void run()
         {
-            // actively stop plugin service if switched off
-            stopPlugin(position);
+            flushDataUpdates();
         }
-    }
+    };
 
     /**
-     * Send broadcast message to identify installed plugins
+     * Shared memory ring buffer for numeric data updates (null if disabled)
      */
-    void identifyPlugins()
-    {
-        // send broadcast IDENTIFY
-        Intent intent = new Intent(Plugin.IDENTIFY);
-        intent.addCategory(Plugin.REQUEST);
-        intent.putExtras(svc.getPluginInfo().toBundle());
+    private volatile SharedDataRing dataRing = null;
 
-        /*
-         * Send explicit broadcast message
-         */
-        List<ResolveInfo> receiverPlugins = getContext().getPackageManager().queryBroadcastReceivers(intent, 0);
-        for (ResolveInfo plugin: receiverPlugins)
+    /**
+     * Lock to serialize writing to the data ring (single producer)
+     */
+    private final Object ringLock = new Object();
+
+    /**
+     * Flag if a ring wakeup is already scheduled
+     */
+    private boolean ringWakeupPending = false;
+
+    /**
+     * Timed wakeup of all plugins which are attached to the data ring
+     */
+    private final Runnable ringWakeupTask = new Runnable()
+    {
+        @Override
+        public void run()
         {
-            if (plugin.activityInfo != null)
+            synchronized (ringLock)
             {
-                ComponentName component = new ComponentName(plugin.activityInfo.packageName, plugin.activityInfo.name);
-                Intent explicitIntent = intent.setComponent(component);
-                Log.i(toString(), ">IDENTIFY: " + intent);
-                getContext().sendBroadcast(explicitIntent);
+                ringWakeupPending = false;
+            }
+            for (PluginConnections.Connection connection : connections.all())
+            {
+                Messenger messenger = connection.messenger;
+                if (connection.ringAttached && messenger != null)
+                {
+                    try
+                    {
+                        messenger.send(Message.obtain(null, Plugin.MSG_RING_WAKEUP));
+                    }
+                    catch (RemoteException e)
+                    {
+                        Log.w(toString(), "Ring wakeup failed: " + connection.component, e);
+                        connection.messenger = null;
+                        connection.ringAttached = false;
+                    }
+                }
             }
         }
-    }
+    };
 
     /**
-     * Binds the given plugin service into memory
-     *
-     * @param packageName The package name for the plugin
-     * @param className The class name for the Plugin service in that package
+     * Constructor
+     *  @param context  The current context.
      */
-    private void bindPlugin(String packageName, String className)
+    PluginHandler(Context context)
     {
-        if (!mBoundServices.containsKey(packageName))
-        {
-            Intent intent = new Intent(Plugin.IDENTIFY);
-            intent.addCategory(Plugin.REQUEST);
-            ComponentName component = new ComponentName(packageName, className);
-            intent.setComponent(component);
+        mContext = context;
 
-            ServiceConnection serviceConnection = new BoundServiceConnection(packageName);
-            getContext().bindService(intent, serviceConnection, Context.BIND_AUTO_CREATE);
-            mBoundServices.put(packageName, serviceConnection);
-        }
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        dispatcher = new Dispatcher(dispatchTarget, metrics);
+
+        // flush worker lives as long as this handler (stopped by cleanup)
+        flushThread = new HandlerThread("PluginFlush");
+        flushThread.start();
+        flushHandler = new Handler(flushThread.getLooper());
+
+        connections = new PluginConnections(context, new Handler(context.getMainLooper()),
+                                            connectionListener);
+
+        registryCache = new PluginRegistryCache(new File(context.getFilesDir(),
+                                                         PluginRegistryCache.FILE_NAME));
+
+        registry.addListener(registryListener);
     }
 
     /**
-     * Disconnects the service binding to this plugin
-     *
-     * @param packageName The package name for the plugin
+     * @return The current context
      */
-    private void unbindPlugin(String packageName) {
-        if (mBoundServices.containsKey(packageName))
-        {
-            try
-            {
-                getContext().unbindService(mBoundServices.get(packageName));
-            } catch (Exception e)
-            {
-                // error while disconnecting
-            }
-            mBoundServices.remove(packageName);
-        }
+    Context getContext()
+    {
+        return mContext;
     }
 
     /**
-     * Stop plugin at specified list position
+     * Get registry of identified plugins
      *
-     * @param position List position of plugin
+     * @return plugin registry
      */
-    private void stopPlugin(int position)
+    public PluginRegistry getRegistry()
     {
-        Intent intent = new Intent();
-        PluginInfo plugin = getItem(position);
-        intent.setClassName(plugin.packageName, plugin.className);
-        Log.i(toString(), "Stop service: " + intent);
-        unbindPlugin(plugin.packageName);
-        getContext().stopService(intent);
+        return registry;
+    }
+
+    /**
+     * Adds or replaces a single plugin in the registry
+     * @param item The item to insert or replace
+     * @return true if the item was replaced, false if it was added as a new item
+     */
+    public boolean upsert(PluginInfo item)
+    {
+        return registry.put(item);
+    }
+
+    /**
+     * Re-build index of DATA targets and rate limiters from current plugin list
+     * (called on every registry change, serialized by the registry)
+     */
+    private void updateDispatchTargets()
+    {
+        subscriptionIndex = new SubscriptionIndex(registry.getAll());
+
+        // drop rate limiters of removed / disabled / unlimited / changed plugins
+        Map<String, DispatchTarget> limited = new HashMap<>();
+        for (DispatchTarget target : subscriptionIndex.all)
+        {
+            if (target.updateInterval > 0)
+            {
+                limited.put(target.className, target);
+            }
+        }
+        for (Map.Entry<String, UpdateConflater> entry : conflaters.entrySet())
+        {
+            UpdateConflater conflater = entry.getValue();
+            if (!conflater.getTarget().sameDelivery(limited.get(entry.getKey())))
+            {
+                conflater.cancel();
+                conflaters.remove(entry.getKey());
+            }
+        }
+        // create rate limiters of new plugins
+        for (DispatchTarget target : limited.values())
+        {
+            if (!conflaters.containsKey(target.className))
+            {
+                conflaters.put(target.className,
+                               new UpdateConflater(target,
+                                                   keyUpdateIntervals,
+                                                   metrics,
+                                                   flushHandler,
+                                                   conflaterSink));
+            }
+        }
+    }
+
+    /**
+     * Set max. update rate of a plugin
+     *
+     * Updates to the plugin are conflated per data item (latest value wins)
+     * and delivered at most once per interval.
+     *
+     * @param className Class name of plugin
+     * @param interval  Min. interval [ms] between updates of a data item (0 = unlimited)
+     */
+    void setPluginUpdateInterval(String className, long interval)
+    {
+        PluginInfo plugin = registry.get(className);
+        if (plugin == null)
+        {
+            return;
+        }
+        plugin.updateInterval = Math.max(interval, 0);
+        // remember this setting next to enabled state
+        mPrefs.edit().putLong(plugin.className + PREF_UPDATE_INTERVAL, plugin.updateInterval).apply();
+        registry.changed(plugin);
+    }
+
+    /**
+     * Set idle time before a plugin is unbound and stopped
+     *
+     * Plugins are bound on first traffic (DATALIST / DATA) and unbound and stopped
+     * if they didn't receive any traffic for the idle time. A stopped plugin is
+     * restarted (and gets the complete data list) with the next traffic.
+     * Data providers are never stopped due to inactivity.
+     *
+     * @param timeout Idle time [ms] (0 = never stop idle plugins)
+     */
+    public void setIdleTimeout(long timeout)
+    {
+        connections.setIdleTimeout(timeout);
+    }
+
+    /**
+     * Set max. update rate of a data item for all rate limited plugins
+     *
+     * @param key      Key of data item
+     * @param interval Min. interval [ms] between updates of a data item (0 = plugin interval)
+     */
+    public void setKeyUpdateInterval(String key, long interval)
+    {
+        if (interval > 0)
+            keyUpdateIntervals.put(key, interval);
+        else
+            keyUpdateIntervals.remove(key);
+    }
+
+    /**
+     * Update data subscriptions of a plugin
+     *
+     * @param className Class name of plugin
+     * @param keys      Keys of subscribed data items (null = all data items)
+     */
+    void setSubscriptions(String className, String[] keys)
+    {
+        PluginInfo plugin = registry.get(className);
+        if (plugin != null)
+        {
+            plugin.subscriptions = keys;
+            registry.changed(plugin);
+        }
+    }
+
+    /**
+     * Close and remove all identified plugins
+     */
+    public void clear()
+    {
+        flushDataUpdates();
+        closeAllPlugins();
+        registry.clear();
+    }
+
+    /**
+     * Close all identified plugins
+     */
+    private void closeAllPlugins()
+    {
+        // loop through all identified plugins
+        for (PluginInfo plugin : registry.getAll())
+        {
+            stopPlugin(plugin);
+        }
+    }
+
+    /**
+     * Get metrics of plugin communication
+     * (sent requests per plugin, received data of all plugins)
+     *
+     * @return metrics of plugin communication
+     */
+    public PluginMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Get monitor of latency / lost messages of DATA received from plugins
+     *
+     * @return latency monitor of host data service
+     */
+    public DataLatencyMonitor getLatencyMonitor()
+    {
+        return PluginDataService.hostLatency;
+    }
+
+    /**
+     * get external data receiver
+     */
+    Plugin.DataReceiver getDataReceiver()
+    {
+        return svc.getDataReceiver();
+    }
+
+    /**
+     * Set external data receiver component
+     * Data updates are reported on the plugin data worker thread.
+     *
+     * @param dataReceiver external data receiver component
+     */
+    void setDataReceiver(Plugin.DataReceiver dataReceiver)
+    {
+        svc.setDataReceiver(dataReceiver);
+    }
+
+    /**
+     * Get data bus of received plugin data
+     * Subscribers are called on their executor, or on the plugin data worker thread.
+     *
+     * @return host data bus
+     */
+    public PluginDataBus getDataBus()
+    {
+        return PluginDataService.dataBus;
+    }
+
+    /**
+     * Set up all components
+     * - register receivers
+     * - initiate plugin identification
+     *
+     * Set up is only performed once, afterwards the plugin list is updated
+     * incrementally based on package changes (install / update / removal).
+     */
+    void setup()
+    {
+        if (isSetUp)
+        {
+            return;
+        }
+        isSetUp = true;
+
+        // register this handler as a receive filter
+        IntentFilter flt = new IntentFilter();
+        flt.addCategory(Plugin.RESPONSE);
+        flt.addAction(Plugin.IDENTIFY);
+        flt.addAction(Plugin.DATALIST);
+        flt.addAction(Plugin.DATA);
+        flt.addAction(Plugin.SUBSCRIBE);
+        flt.addAction(Plugin.RESYNC);
+        androidx.core.content.ContextCompat.registerReceiver(
+                getContext(),
+                receiver,
+                flt,
+                androidx.core.content.ContextCompat.RECEIVER_EXPORTED);
+
+        // register for package changes
+        IntentFilter pkgFlt = new IntentFilter();
+        pkgFlt.addAction(Intent.ACTION_PACKAGE_ADDED);
+        pkgFlt.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        pkgFlt.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        pkgFlt.addDataScheme("package");
+        androidx.core.content.ContextCompat.registerReceiver(
+                getContext(),
+                packageReceiver,
+                pkgFlt,
+                androidx.core.content.ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        // start discovery worker
+        discoveryThread = new HandlerThread("PluginDiscovery");
+        discoveryThread.start();
+        discoveryHandler = new Handler(discoveryThread.getLooper());
+
+        // start data delivery worker
+        dataThread = new HandlerThread("PluginData");
+        dataThread.start();
+        dataHandler = new Handler(dataThread.getLooper());
+        svc.attachHost(getContext(), dataHandler);
+
+        // restore cached plugins and trigger plugin search
+        discoverPlugins();
+    }
+
+    /**
+     * Clean up all components
+     * - close all plugins
+     * - unregister receivers
+     * - stop workers
+     *
+     * The handler is released afterwards and must not be set up again.
+     */
+    void cleanup()
+    {
+        if (isSetUp)
+        {
+            isSetUp = false;
+
+            // unregister receivers
+            try
+            {
+                getContext().unregisterReceiver(receiver);
+                getContext().unregisterReceiver(packageReceiver);
+            } catch (Exception e)
+            {
+                Log.e(toString(), e.getMessage());
+            }
+
+            // stop discovery worker
+            discoveryHandler = null;
+            discoveryThread.quit();
+            discoveryThread = null;
+
+            // stop data delivery worker (pending data is delivered)
+            dataHandler = null;
+            dataThread.quitSafely();
+            dataThread = null;
+        }
+
+        // Clear all plugins
+        clear();
+        connections.unbindAll();
+
+        // stop asynchronous dispatch
+        setAsyncDispatch(0, DispatchEngine.OverflowPolicy.BLOCK);
+
+        // release shared memory data ring
+        setDataRing(0);
+
+        // stop flush worker (pending flushes are processed)
+        flushThread.quitSafely();
+    }
+
+    /**
+     * enable/disable specified plugin
+     *
+     * Enabling triggers a action event to the plugin.
+     * Disabling stops the plugin service
+     *
+     * @param className Class name of plugin
+     * @param enable    flag if to enable (@ref true) / disable (@ref false) the plugin
+     */
+    void setPluginEnabled(String className, boolean enable)
+    {
+        // set enabled state in plugin info
+        PluginInfo plugin = registry.get(className);
+        if (plugin == null)
+        {
+            return;
+        }
+        plugin.enabled = enable;
+        // remember this state in settings
+        mPrefs.edit().putBoolean(plugin.className, enable).apply();
+
+        // notify about changes (display, dispatch targets, registry cache)
+        registry.changed(plugin);
+
+        if (enable)
+        {
+            // data providers are kept running, all other plugins are bound on first traffic
+            if ((plugin.features & PluginInfo.FEATURE_DATAPROVISION) != 0)
+            {
+                connections.bind(plugin.packageName, plugin.className, true);
+            }
+            // make sure plugin gets current data list (and data key IDs) with it's first traffic
+            requireDataList(plugin.className);
+            // make sure plugin gets current values of all data items
+            changeFilter.reset(plugin.className);
+            // initiate plugin action
+            triggerAction(plugin.className);
+        }
+        else
+        {
+            // actively stop plugin service if switched off
+            stopPlugin(plugin);
+        }
+    }
+
+    /**
+     * Initial plugin discovery
+     *
+     * Plugins of packages which are unchanged since they were cached are
+     * restored from the registry cache immediately, so data may be dispatched
+     * to them without waiting for their IDENTIFY response.
+     * IDENTIFY is only sent to plugins of new / updated packages, restored
+     * plugins which are enabled (and therefore started anyway) are refreshed
+     * after {@link #REGISTRY_REFRESH_DELAY}.
+     */
+    private void discoverPlugins()
+    {
+        runDiscovery(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                PackageManager pm = getContext().getPackageManager();
+                List<PluginInfo> restored = new ArrayList<>();
+                final Set<String> refresh = new HashSet<>();
+                for (PluginRegistryCache.Entry entry : registryCache.load().values())
+                {
+                    if (entry.versionCode == PluginRegistryCache.getVersionCode(pm, entry.packageName))
+                    {
+                        restored.addAll(entry.plugins);
+                    }
+                }
+                restorePlugins(restored);
+
+                Set<String> cachedPackages = new HashSet<>();
+                for (PluginInfo plugin : restored)
+                {
+                    cachedPackages.add(plugin.packageName);
+                    if (plugin.enabled)
+                    {
+                        refresh.add(plugin.packageName);
+                    }
+                }
+                identify(null, cachedPackages);
+
+                // lazy refresh of restored plugins
+                Handler handler = discoveryHandler;
+                if (handler != null)
+                {
+                    for (final String packageName : refresh)
+                    {
+                        handler.postDelayed(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                identify(packageName, null);
+                            }
+                        }, REGISTRY_REFRESH_DELAY);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Add plugins restored from registry cache to the list
+     * Plugins which were identified in the meantime are kept.
+     *
+     * @param plugins Restored plugins
+     */
+    private void restorePlugins(List<PluginInfo> plugins)
+    {
+        for (PluginInfo plugin : plugins)
+        {
+            // settings take precedence over cached state
+            plugin.enabled = mPrefs.getBoolean(plugin.className, plugin.enabled);
+            plugin.updateInterval = mPrefs.getLong(plugin.className + PREF_UPDATE_INTERVAL,
+                                                   plugin.updateInterval);
+            if (registry.add(plugin))
+            {
+                Log.i(toString(), "Plugin restored: " + plugin.toString());
+                setPluginEnabled(plugin.className, plugin.enabled);
+            }
+        }
+    }
+
+    /**
+     * Save current plugin list to registry cache
+     *
+     * Multiple changes in a row are saved at once.
+     */
+    private void saveRegistry()
+    {
+        // no saving while not set up (e.g. clearing the list on cleanup)
+        Handler handler = discoveryHandler;
+        if (handler != null && registrySavePending.compareAndSet(false, true))
+        {
+            handler.post(registrySaveTask);
+        }
+    }
+
+    /**
+     * Write current plugin list to registry cache
+     *
+     * The list is written on the discovery worker, grouped by package
+     * and version code of the plugin package.
+     */
+    private void writeRegistry()
+    {
+        registrySavePending.set(false);
+        PackageManager pm = getContext().getPackageManager();
+        Map<String, PluginRegistryCache.Entry> entries = new LinkedHashMap<>();
+        for (PluginInfo plugin : registry.getAll())
+        {
+            if (plugin.packageName == null || plugin.className == null)
+            {
+                continue;
+            }
+            PluginRegistryCache.Entry entry = entries.get(plugin.packageName);
+            if (entry == null)
+            {
+                long versionCode = PluginRegistryCache.getVersionCode(pm, plugin.packageName);
+                if (versionCode == PluginRegistryCache.NOT_INSTALLED)
+                {
+                    continue;
+                }
+                entry = new PluginRegistryCache.Entry(plugin.packageName, versionCode);
+                entries.put(plugin.packageName, entry);
+            }
+            entry.plugins.add(plugin);
+        }
+        registryCache.save(entries.values());
+    }
+
+    /**
+     * Send broadcast message to identify installed plugins
+     *
+     * The query of installed plugins is performed on the discovery worker.
+     */
+    void identifyPlugins()
+    {
+        runDiscovery(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                identify(null, null);
+            }
+        });
+    }
+
+    /**
+     * Identify plugins of a single (installed / updated) package
+     *
+     * Plugins of the package are removed from the list if the package
+     * does not contain any plugin (anymore).
+     *
+     * @param packageName Name of package
+     */
+    private void identifyPackage(final String packageName)
+    {
+        runDiscovery(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (identify(packageName, null) == 0)
+                {
+                    removePackage(packageName);
+                }
+            }
+        });
+    }
+
+    /**
+     * Run discovery task on discovery worker
+     * (immediately if no worker is running)
+     *
+     * @param task Discovery task
+     */
+    private void runDiscovery(Runnable task)
+    {
+        Handler handler = discoveryHandler;
+        if (handler != null)
+        {
+            handler.post(task);
+        }
+        else
+        {
+            task.run();
+        }
+    }
+
+    /**
+     * Query installed plugins and send IDENTIFY broadcast to them
+     *
+     * @param packageName  Name of package to identify plugins of (null = all packages)
+     * @param skipPackages Names of packages to skip (may be null)
+     * @return number of plugins IDENTIFY was sent to
+     */
+    private int identify(String packageName, Set<String> skipPackages)
+    {
+        // send broadcast IDENTIFY
+        Intent intent = new Intent(Plugin.IDENTIFY);
+        intent.addCategory(Plugin.REQUEST);
+        intent.putExtras(svc.getPluginInfo().toBundle());
+        if (packageName != null)
+        {
+            intent.setPackage(packageName);
+        }
+
+        /*
+         * Send explicit broadcast message
+         */
+        int result = 0;
+        List<ResolveInfo> receiverPlugins = getContext().getPackageManager().queryBroadcastReceivers(intent, 0);
+        for (ResolveInfo plugin: receiverPlugins)
+        {
+            if (plugin.activityInfo != null
+                && (skipPackages == null || !skipPackages.contains(plugin.activityInfo.packageName)))
+            {
+                ComponentName component = new ComponentName(plugin.activityInfo.packageName, plugin.activityInfo.name);
+                Intent explicitIntent = intent.setComponent(component);
+                Log.i(toString(), ">IDENTIFY: " + intent);
+                getContext().sendBroadcast(explicitIntent);
+                metrics.add(PluginMetrics.GLOBAL, PluginMetrics.Action.IDENTIFY, PluginMetrics.Counter.SENT, 1);
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove all plugins of a (removed) package from the list
+     *
+     * @param packageName Name of package
+     */
+    private void removePackage(String packageName)
+    {
+        List<PluginInfo> removed = registry.removePackage(packageName);
+        for (PluginInfo plugin : removed)
+        {
+            Log.i(toString(), "Plugin removed: " + plugin.toString());
+        }
+        if (!removed.isEmpty())
+        {
+            connections.unbindPackage(packageName);
+        }
+    }
+
+    /**
+     * Stop specified plugin
+     *
+     * @param plugin Plugin to be stopped
+     */
+    private void stopPlugin(PluginInfo plugin)
+    {
+        Intent intent = new Intent();
+        intent.setClassName(plugin.packageName, plugin.className);
+        Log.i(toString(), "Stop service: " + intent);
+        sentDataListVersions.remove(plugin.className);
+        connections.unbind(plugin.className);
+        getContext().stopService(intent);
     }
 
     /**
@@ -432,12 +1126,13 @@ public class PluginHandler
      *
      * This sends a ACTION message to the plugin
      *
-     * @param position List position of plugin
+     * @param className Class name of plugin
      */
-    void triggerAction(int position)
+    void triggerAction(String className)
     {
-        PluginInfo plugin = getItem(position);
-        if (plugin.enabled
+        PluginInfo plugin = registry.get(className);
+        if (plugin != null
+                && plugin.enabled
                 && (plugin.features & PluginInfo.FEATURE_ACTION) != 0)
         {
             Intent intent = new Intent(Plugin.ACTION);
@@ -445,57 +1140,519 @@ public class PluginHandler
             intent.putExtra(PluginInfo.Field.CLASS.toString(), plugin.className);
             Log.d(toString(), ">ACTION: " + intent);
             getContext().startService(intent);
+            metrics.add(plugin.className, PluginMetrics.Action.ACTION, PluginMetrics.Counter.SENT, 1);
+        }
+    }
+
+    /**
+     * Initiate configuration dialog of spcified plugin
+     *
+     * This sends a CONFIGURE message to the plugin
+     *
+     * @param className Class name of plugin
+     */
+    void triggerConfiguration(String className)
+    {
+        PluginInfo plugin = registry.get(className);
+        if (plugin != null
+                && plugin.enabled
+                && (plugin.features & PluginInfo.FEATURE_CONFIGURE) != 0)
+        {
+            Intent intent = new Intent(Plugin.CONFIGURE);
+            intent.setClassName(plugin.packageName, plugin.className);
+            intent.putExtra(PluginInfo.Field.CLASS.toString(), plugin.className);
+            Log.d(toString(), ">CONFIGURE: " + intent);
+            getContext().startService(intent);
+            metrics.add(plugin.className, PluginMetrics.Action.CONFIGURE, PluginMetrics.Counter.SENT, 1);
+        }
+    }
+
+    /**
+     * Send data item list to all enabled plugins which support DATALIST requests
+     *
+     * @param csvData CSV encoded data list
+     *                mnemonic;description;value;units
+     *                ...
+     *                mnemonic;description;value;units
+     */
+    public void sendDataList(final String csvData)
+    {
+        dispatchOrdered(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                dispatchDataList(csvData);
+            }
+        });
+    }
+
+    /**
+     * Re-send complete data item list to a plugin
+     *
+     * @param className Class name of plugin
+     */
+    private void resendDataList(String className)
+    {
+        final DispatchTarget target = className != null
+                                      ? subscriptionIndex.byClass.get(className)
+                                      : null;
+        if (target != null)
+        {
+            dispatchOrdered(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    sendDataList(target);
+                }
+            });
+        }
+    }
+
+    /**
+     * Make sure a plugin gets the complete data list with it's next traffic
+     * <p>
+     * The plugin is not bound for this, the list is sent ahead of the next
+     * DATA request (see {@link #deliver}). This is queued in order with
+     * data lists / updates which are currently dispatched.
+     *
+     * @param className Class name of plugin
+     */
+    private void requireDataList(final String className)
+    {
+        dispatchOrdered(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                sentDataListVersions.remove(className);
+            }
+        });
+    }
+
+    /**
+     * Run a data list dispatch task in order with queued data updates
+     * (asynchronously if dispatch engine is active, otherwise within the caller's thread)
+     *
+     * @param task Task to be executed
+     */
+    private void dispatchOrdered(Runnable task)
+    {
+        dispatcher.post(task);
+    }
+
+    /**
+     * Dispatch data item list to all enabled plugins which support DATALIST requests
+     *
+     * Plugins which support DATALIST deltas only get the changes against the
+     * previous version, all other plugins get the complete list exactly as
+     * provided. An unchanged list is not sent again, a list with unchanged
+     * data items (i.e. changed order) is only sent to plugins without delta support.
+     *
+     * @param csvData CSV encoded data list
+     */
+    private void dispatchDataList(String csvData)
+    {
+        DataList.Delta delta;
+        DataItemList items;
+        byte[] baseDictionary;
+        synchronized (dataDictionary)
+        {
+            if (csvData.equals(lastDataList))
+            {
+                return;
+            }
+            // a delta may be compressed with the previous version as dictionary
+            baseDictionary = compression && dataList.getVersion() != DataList.NO_VERSION
+                             ? dataList.getDictionary()
+                             : null;
+            delta = dataList.update(csvData);
+            // assign stable IDs to all data items
+            lastDataList = csvData;
+            lastDataIds = dataDictionary.registerAll(lastDataList);
+            items = dataList.getItems();
+        }
+
+        if (delta == null)
+        {
+            // data items unchanged, only plugins which get the complete list notice
+            for (DispatchTarget target : subscriptionIndex.all)
+            {
+                if (!target.hasFeature(PluginInfo.FEATURE_DATALIST_DELTA))
+                {
+                    sendDataList(target);
+                }
+            }
+            return;
+        }
+        // derive deadbands from data item ranges
+        changeFilter.setDataList(items);
+
+        // IDs of changed data items (already registered with complete list)
+        int[] deltaIds = delta.changedCsv.isEmpty()
+                         ? new int[0]
+                         : dataDictionary.registerAll(delta.changedCsv);
+
+        // loop through all enabled plugins which support DATALIST requests
+        for (DispatchTarget target : subscriptionIndex.all)
+        {
+            // delta is only applicable if the plugin knows the base version
+            Integer sentVersion = sentDataListVersions.get(target.className);
+            if (delta.baseVersion != DataList.NO_VERSION
+                && target.hasFeature(PluginInfo.FEATURE_DATALIST_DELTA)
+                && sentVersion != null && sentVersion == delta.baseVersion)
+            {
+                sendDataListDelta(target, delta, deltaIds, baseDictionary);
+            }
+            else
+            {
+                sendDataList(target);
+            }
+        }
+    }
+
+    /**
+     * Send most recent data item list to specified plugin
+     *
+     * @param target Plugin to send data list to
+     */
+    private void sendDataList(DispatchTarget target)
+    {
+        String csvData;
+        int[] dataIds;
+        int version;
+        synchronized (dataDictionary)
+        {
+            csvData = lastDataList;
+            dataIds = lastDataIds;
+            version = dataList.getVersion();
+        }
+
+        if (csvData != null)
+        {
+            Intent intent = createDataListIntent(target, csvData, dataIds, version);
+            if (LOG_VERBOSE) Log.v(toString(), ">DATALIST: " + intent);
+            deliverDataList(target, intent,
+                            PluginMetrics.sizeOf(csvData) + (dataIds != null ? 4 * dataIds.length : 0),
+                            null, DataList.NO_VERSION);
+        }
+    }
+
+    /**
+     * Send changes of data item list to specified plugin
+     *
+     * @param target         Plugin to send changes to
+     * @param delta          Changes against previous version of data list
+     * @param deltaIds       IDs of changed data items
+     * @param baseDictionary Compression dictionary of previous version (null if unknown)
+     */
+    private void sendDataListDelta(DispatchTarget target, DataList.Delta delta, int[] deltaIds,
+                                   byte[] baseDictionary)
+    {
+        Intent intent = createDataListIntent(target, delta.changedCsv, deltaIds, delta.version);
+        intent.putExtra(Plugin.EXTRA_DATALIST_BASE_VERSION, delta.baseVersion);
+        intent.putExtra(Plugin.EXTRA_DATALIST_REMOVED, delta.removed);
+        if (LOG_VERBOSE) Log.v(toString(), ">DATALIST: " + intent);
+        int bytes = PluginMetrics.sizeOf(delta.changedCsv) + 4 * deltaIds.length;
+        for (String key : delta.removed)
+        {
+            bytes += PluginMetrics.sizeOf(key);
+        }
+        deliverDataList(target, intent, bytes, baseDictionary, delta.baseVersion);
+    }
+
+    /**
+     * Deliver a DATALIST request intent to a plugin
+     * (in chunks if supported by the plugin and required by the data list size)
+     *
+     * @param target            Plugin to deliver request to
+     * @param intent            DATALIST request intent (with class name of plugin set)
+     * @param bytes             Payload bytes (estimated) of request
+     * @param dictionary        Compression dictionary (null = no dictionary)
+     * @param dictionaryVersion Version of data list the dictionary was created from
+     */
+    private void deliverDataList(DispatchTarget target, Intent intent, int bytes,
+                                 byte[] dictionary, int dictionaryVersion)
+    {
+        // plugin which was stopped while idle lost the base version of a delta
+        if (intent.hasExtra(Plugin.EXTRA_DATALIST_BASE_VERSION)
+            && connections.use(target.packageName, target.className))
+        {
+            changeFilter.reset(target.className);
+            sentDataListVersions.remove(target.className);
+            // ... so it needs the complete data list instead
+            sendDataList(target);
+            return;
+        }
+
+        Intent[] chunks = target.hasFeature(PluginInfo.FEATURE_DATALIST_CHUNKS)
+                          ? DataListChunks.split(intent, DataListChunks.MAX_CHUNK_LENGTH)
+                          : new Intent[] { intent };
+        // IDs / removed items are transferred with first chunk only
+        int headerBytes = bytes - PluginMetrics.sizeOf(intent.getStringExtra(Plugin.EXTRA_DATA));
+        for (int i = 0; i < chunks.length; i++)
+        {
+            Intent chunk = chunks[i];
+            int chunkBytes = chunks.length == 1
+                             ? bytes
+                             : PluginMetrics.sizeOf(chunk.getStringExtra(Plugin.EXTRA_DATA))
+                               + (i == 0 ? headerBytes : 0);
+            if (useCompression(target))
+            {
+                Intent compressed = DataCompression.deflate(chunk, dictionary, dictionaryVersion);
+                if (compressed != null)
+                {
+                    chunkBytes = DataCompression.compressedSize(chunk, compressed, chunkBytes);
+                    chunk = compressed;
+                }
+            }
+            deliver(target, chunk, Plugin.MSG_DATALIST, chunkBytes);
+        }
+        // data list is known to the plugin now
+        sentDataListVersions.put(target.className,
+                                 intent.getIntExtra(Plugin.EXTRA_DATALIST_VERSION, DataList.NO_VERSION));
+    }
+
+    /**
+     * Check if requests to a plugin shall be compressed
+     *
+     * @param target Plugin to be checked
+     * @return true if compression is enabled and supported by the plugin
+     */
+    private boolean useCompression(DispatchTarget target)
+    {
+        return compression && target.hasFeature(PluginInfo.FEATURE_DATA_DEFLATE);
+    }
+
+    /**
+     * Enable / disable compressed DATALIST / DATA requests
+     * <p>
+     * Compression reduces IPC payload of large / repetitive requests at
+     * the cost of CPU time on both sides. It is only used for plugins which
+     * support it, and only for requests where it is beneficial.
+     * DATA requests use the current data list as preset dictionary,
+     * as soon as it was sent to the plugin.
+     *
+     * @param enabled true to send compressed requests
+     */
+    public void setCompression(boolean enabled)
+    {
+        compression = enabled;
+    }
+
+    /**
+     * Create DATALIST request intent for a plugin
+     *
+     * @param target  Plugin to create intent for
+     * @param csvData CSV encoded data items
+     * @param dataIds IDs of data items in order of CSV lines
+     * @param version Version of data list
+     * @return DATALIST request intent
+     */
+    private static Intent createDataListIntent(DispatchTarget target, String csvData, int[] dataIds, int version)
+    {
+        Intent intent = new Intent(Plugin.DATALIST);
+        intent.addCategory(Plugin.REQUEST);
+        // attach data to intent
+        intent.putExtra(Plugin.EXTRA_DATA, csvData);
+        if (target.hasFeature(PluginInfo.FEATURE_DATA_IDS))
+        {
+            intent.putExtra(Plugin.EXTRA_DATA_IDS, dataIds);
         }
+        intent.putExtra(Plugin.EXTRA_DATALIST_VERSION, version);
+        intent.putExtra(Plugin.EXTRA_DATA_SOURCE, PluginDataService.myInfo.className);
+        intent.setClassName(target.packageName, target.className);
+        return intent;
     }
 
     /**
-     * Initiate configuration dialog of spcified plugin
+     * Deliver a DATALIST / DATA request intent to a plugin
      *
-     * This sends a CONFIGURE message to the plugin
+     * If the plugin supports the Messenger transport and is currently bound,
+     * the request is sent via the bound connection. Otherwise the request
+     * is delivered by starting the plugin service.
      *
-     * @param position List position of plugin
+     * @param target Plugin to deliver request to
+     * @param intent Request intent (with class name of plugin set)
+     * @param what   Message code of bound transport
+     * @param bytes  Payload bytes (estimated) of request
      */
-    void triggerConfiguration(int position)
+    private void deliver(DispatchTarget target, Intent intent, int what, int bytes)
     {
-        PluginInfo plugin = getItem(position);
-        if (plugin.enabled
-                && (plugin.features & PluginInfo.FEATURE_CONFIGURE) != 0)
+        if (what == Plugin.MSG_DATA)
         {
-            Intent intent = new Intent(Plugin.CONFIGURE);
-            intent.setClassName(plugin.packageName, plugin.className);
-            intent.putExtra(PluginInfo.Field.CLASS.toString(), plugin.className);
-            Log.d(toString(), ">CONFIGURE: " + intent);
-            getContext().startService(intent);
+            // sequence numbers per plugin allow detection of lost messages
+            AtomicLong sequence = dataSequences.get(target.className);
+            if (sequence == null)
+            {
+                synchronized (dataSequences)
+                {
+                    sequence = dataSequences.get(target.className);
+                    if (sequence == null)
+                    {
+                        sequence = new AtomicLong();
+                        dataSequences.put(target.className, sequence);
+                    }
+                }
+            }
+            intent.putExtra(Plugin.EXTRA_DATA_SOURCE, PluginDataService.myInfo.className);
+            intent.putExtra(Plugin.EXTRA_DATA_SEQUENCE, sequence.getAndIncrement());
+
+            // data key IDs refer to the data list, so a plugin which doesn't know it (anymore) gets it first
+            if (!sentDataListVersions.containsKey(target.className))
+            {
+                sendDataList(target);
+            }
+
+            if (useCompression(target))
+            {
+                // current data list is only used as dictionary if the plugin already got it
+                byte[] dictionary = null;
+                int dictionaryVersion = DataList.NO_VERSION;
+                Integer sentVersion = sentDataListVersions.get(target.className);
+                synchronized (dataList)
+                {
+                    if (sentVersion != null
+                        && sentVersion != DataList.NO_VERSION
+                        && sentVersion == dataList.getVersion())
+                    {
+                        dictionaryVersion = sentVersion;
+                        dictionary = dataList.getDictionary();
+                    }
+                }
+                Intent compressed = DataCompression.deflate(intent, dictionary, dictionaryVersion);
+                if (compressed != null)
+                {
+                    bytes = DataCompression.compressedSize(intent, compressed, bytes);
+                    intent = compressed;
+                }
+            }
         }
+
+        long start = System.nanoTime();
+        transmit(target, intent, what);
+        metrics.count(target.className,
+                      what == Plugin.MSG_DATALIST ? PluginMetrics.Action.DATALIST : PluginMetrics.Action.DATA,
+                      PluginMetrics.Counter.SENT, bytes, System.nanoTime() - start);
     }
 
     /**
-     * Send data item list to all enabled plugins which support DATALIST requests
+     * Transmit a DATALIST / DATA request intent to a plugin
+     * either via bound Messenger, or by starting the plugin service
      *
-     * @param csvData CSV encoded data list
-     *                mnemonic;description;value;units
-     *                ...
-     *                mnemonic;description;value;units
+     * @param target Plugin to deliver request to
+     * @param intent Request intent (with class name of plugin set)
+     * @param what   Message code of bound transport
      */
-    public void sendDataList(String csvData)
+    private void transmit(DispatchTarget target, Intent intent, int what)
     {
-        Intent intent = new Intent(Plugin.DATALIST);
-        intent.addCategory(Plugin.REQUEST);
-        // attach data to intent
-        intent.putExtra(Plugin.EXTRA_DATA, csvData);
-        // loop through all identified plugins
-        for (int i = 0; i < getCount(); i++)
+        // bind plugin on first traffic
+        if (connections.use(target.packageName, target.className))
+        {
+            // plugin was stopped while idle, so it needs current values of all data items
+            changeFilter.reset(target.className);
+            sentDataListVersions.remove(target.className);
+            // (DATALIST deltas are replaced by the complete data list in deliverDataList)
+            if (what != Plugin.MSG_DATALIST)
+            {
+                // ... and the complete data list first
+                sendDataList(target);
+            }
+        }
+
+        if (target.hasFeature(PluginInfo.FEATURE_DATA_MESSENGER))
         {
-            PluginInfo plugin = getItem(i);
-            // If plugin is enabled and feature DATALIST is supported
-            if (plugin.enabled
-                    && (plugin.features & PluginInfo.FEATURE_DATA) != 0)
+            PluginConnections.Connection connection = connections.get(target.className);
+            Messenger messenger = connection != null ? connection.messenger : null;
+            if (messenger != null)
             {
-                intent.setClassName(plugin.packageName, plugin.className);
-                Log.v(toString(), ">DATALIST: " + intent);
-                getContext().startService(intent);
+                Message msg = Message.obtain(null, what);
+                msg.setData(intent.getExtras());
+                try
+                {
+                    messenger.send(msg);
+                    return;
+                }
+                catch (RemoteException e)
+                {
+                    // connection is dead, fall back to service start
+                    Log.w(toString(), "Messenger failed: " + target, e);
+                    connection.messenger = null;
+                }
             }
         }
+        getContext().startService(intent);
+    }
+
+    /**
+     * Configure batching of data updates
+     *
+     * Data updates to plugins which support batched DATA messages are collected
+     * and sent as a single DATA message per plugin as soon as either the max. number
+     * of items is collected, or the flush window expires.
+     * Plugins without batch support still receive one DATA message per update.
+     *
+     * @param maxItems    Max. number of data updates per batch (0 = batching disabled)
+     * @param flushWindow Max. time [ms] to collect data updates before flushing
+     */
+    public void setBatching(int maxItems, long flushWindow)
+    {
+        // send out everything which was collected with previous settings
+        flushDataUpdates();
+
+        synchronized (batchLock)
+        {
+            batchMaxItems = Math.max(maxItems, 0);
+            batchFlushWindow = Math.max(flushWindow, 0);
+        }
+    }
+
+    /**
+     * Configure asynchronous dispatch of data updates / data lists
+     *
+     * If enabled, all data updates and data lists are queued and dispatched
+     * to the plugins by a dedicated worker thread in order of their arrival.
+     * The number of queued data updates is limited to the specified capacity,
+     * the overflow policy defines what happens if the queue is full.
+     * Updates which are queued with the previous configuration are dispatched
+     * before any update of the new configuration.
+     *
+     * @param capacity Max. number of queued data updates (0 = synchronous dispatch)
+     * @param policy   Overflow policy
+     */
+    public void setAsyncDispatch(int capacity, DispatchEngine.OverflowPolicy policy)
+    {
+        dispatcher.setEngine(capacity, policy);
+    }
+
+    /**
+     * Configure change-only delivery of data updates
+     *
+     * If enabled, data updates are only delivered if the value has changed.
+     * Numeric values need to change by more than the deadband of the data item,
+     * which is either set explicitly ({@link #setDeadband}), or derived from the
+     * MIN/MAX range of the data list.
+     * Unchanged values are delivered again after the heartbeat interval.
+     *
+     * @param enabled       Change-only delivery is enabled
+     * @param rangeFraction Deadband as fraction of MIN/MAX range of data items
+     * @param heartbeat     Heartbeat interval [ms] (0 = no heartbeat)
+     */
+    public void setChangeFilter(boolean enabled, double rangeFraction, long heartbeat)
+    {
+        changeFilter.configure(enabled, rangeFraction, heartbeat);
+    }
+
+    /**
+     * Set explicit deadband of a data item for change-only delivery
+     *
+     * @param key      Key of data item
+     * @param deadband Deadband of numeric values (negative = derive from MIN/MAX range)
+     */
+    public void setDeadband(String key, double deadband)
+    {
+        changeFilter.setDeadband(key, deadband);
     }
 
     /**
@@ -505,23 +1662,472 @@ public class PluginHandler
      * @param value New value of data change
      */
     public void sendDataUpdate(String key, String value)
+    {
+        postDataUpdate(key, value, Double.NaN);
+    }
+
+    /**
+     * Send numeric data update to all enabled plugins which support DATA requests
+     *
+     * @param key   Key of data change
+     * @param value New value of data change
+     */
+    public void sendDataUpdate(String key, double value)
+    {
+        postDataUpdate(key, null, value);
+    }
+
+    /**
+     * Dispatch data update either asynchronously (if dispatch engine is active)
+     * or synchronously within the caller's thread
+     *
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     */
+    private void postDataUpdate(String key, String text, double number)
+    {
+        dispatcher.post(key, text, number, System.currentTimeMillis());
+    }
+
+    /**
+     * Dispatch data update to all enabled plugins which support DATA requests
+     *
+     * Plugins with typed data support get the value unformatted (either immediately,
+     * or with the next batch flush), legacy plugins get a formatted key=value string.
+     *
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     * @param time   Timestamp [ms] of data change
+     */
+    private void dispatchDataUpdate(String key, String text, double number, long time)
+    {
+        // suppress unchanged values (except for plugins which wait for a snapshot)
+        boolean changed = changeFilter.accept(key, text, number, time);
+        if (!changed)
+        {
+            metrics.add(PluginMetrics.GLOBAL, PluginMetrics.Action.DATA, PluginMetrics.Counter.SUPPRESSED, 1);
+            if (!changeFilter.isSnapshotPending())
+            {
+                return;
+            }
+        }
+
+        int id = dataDictionary.getId(key);
+        DataBatch single = null;
+        int singleBytes = 0;
+        boolean ringRequired = false;
+        Intent legacyIntent = null;
+        int legacyBytes = 0;
+        Intent typedIntent = null;
+        Intent indexedIntent = null;
+        boolean batchRequired = false;
+
+        // loop through all enabled plugins which subscribed to this data item
+        for (DispatchTarget target : subscriptionIndex.getTargets(key))
+        {
+            // unchanged value only goes to plugins which still miss it within their snapshot
+            if (!changed && !changeFilter.acceptSnapshot(target.className, key))
+            {
+                continue;
+            }
+
+            // rate limited plugins get latest value with next tick
+            UpdateConflater conflater = conflaters.get(target.className);
+            if (conflater != null)
+            {
+                conflater.offer(id, key, text, number, time);
+                continue;
+            }
+
+            // numeric updates of known items go via data ring (if attached),
+            // snapshot updates are sent to the single plugin only
+            if (changed
+                && text == null
+                && id != DataDictionary.NO_ID
+                && useDataRing(target))
+            {
+                ringRequired = true;
+                continue;
+            }
+
+            Intent intent;
+            if (target.hasFeature(PluginInfo.FEATURE_DATA_BATCH))
+            {
+                // batch capable plugins will get the update with next flush
+                if (changed && batchMaxItems > 0)
+                {
+                    batchRequired = true;
+                    continue;
+                }
+
+                if (single == null)
+                {
+                    single = new DataBatch(1);
+                    addToBatch(single, id, key, text, number, time);
+                    singleBytes = PluginMetrics.sizeOf(single);
+                }
+                if (target.hasFeature(PluginInfo.FEATURE_DATA_IDS))
+                {
+                    if (indexedIntent == null)
+                        indexedIntent = createDataIntent(single, true);
+                    intent = indexedIntent;
+                }
+                else
+                {
+                    if (typedIntent == null)
+                        typedIntent = createDataIntent(single, false);
+                    intent = typedIntent;
+                }
+            }
+            else
+            {
+                if (legacyIntent == null)
+                {
+                    legacyIntent = new Intent(Plugin.DATA);
+                    legacyIntent.addCategory(Plugin.REQUEST);
+                    // attach data to intent
+                    String dataStr = key + "=" + (text != null ? text : DataBatch.formatNumber(number));
+                    legacyIntent.putExtra(Plugin.EXTRA_DATA, dataStr);
+                    legacyIntent.putExtra(Plugin.EXTRA_DATA_TIMES, new long[] { time });
+                    legacyBytes = PluginMetrics.sizeOf(dataStr);
+                }
+                intent = legacyIntent;
+            }
+            intent.setClassName(target.packageName, target.className);
+            if (LOG_VERBOSE) Log.v(toString(), ">DATA: " + intent);
+            deliver(target, intent, Plugin.MSG_DATA, intent == legacyIntent ? legacyBytes : singleBytes);
+        }
+
+        if (ringRequired)
+        {
+            writeDataRing(id, number, time);
+        }
+
+        if (batchRequired)
+        {
+            queueDataUpdate(id, key, text, number, time);
+        }
+    }
+
+    /**
+     * Add a textual or numeric data update to a batch
+     *
+     * @param batch  Batch to add update to
+     * @param id     ID of data item
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     * @param time   Timestamp [ms] of data change
+     */
+    private static void addToBatch(DataBatch batch, int id, String key, String text, double number, long time)
+    {
+        if (text != null)
+            batch.add(id, key, text, time);
+        else
+            batch.add(id, key, number, time);
+    }
+
+    /**
+     * Create DATA request intent with attached batch of data updates
+     *
+     * @param batch   Batch of data updates
+     * @param withIds Transfer IDs instead of keys for updates with known ID
+     * @return DATA request intent
+     */
+    private static Intent createDataIntent(DataBatch batch, boolean withIds)
     {
         Intent intent = new Intent(Plugin.DATA);
         intent.addCategory(Plugin.REQUEST);
         // attach data to intent
-        intent.putExtra(Plugin.EXTRA_DATA, String.format("%s=%s", key, value));
+        batch.writeTo(intent, withIds);
+        return intent;
+    }
 
-        // loop through all identified plugins
-        for (int i = 0; i < getCount(); i++)
+    /**
+     * Add data update to pending batch
+     * and flush the batch if the max. number of items is reached
+     *
+     * @param id     ID of data item
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     * @param time   Timestamp [ms] of data change
+     */
+    private void queueDataUpdate(int id, String key, String text, double number, long time)
+    {
+        boolean flushRequired;
+        synchronized (batchLock)
+        {
+            // start flush window with first update of a batch
+            if (pendingBatch.isEmpty())
+            {
+                flushHandler.postDelayed(flushTask, batchFlushWindow);
+            }
+            addToBatch(pendingBatch, id, key, text, number, time);
+            flushRequired = pendingBatch.size() >= batchMaxItems;
+        }
+
+        if (flushRequired)
+        {
+            flushDataUpdates();
+        }
+    }
+
+    /**
+     * Send all pending batched data updates to all enabled plugins
+     * which support batched DATA requests
+     */
+    public void flushDataUpdates()
+    {
+        synchronized (flushLock)
+        {
+            // swap pending and sending batch to continue collection while sending
+            synchronized (batchLock)
+            {
+                flushHandler.removeCallbacks(flushTask);
+                if (pendingBatch.isEmpty())
+                {
+                    return;
+                }
+                DataBatch batch = sendingBatch;
+                sendingBatch = pendingBatch;
+                pendingBatch = batch;
+            }
+
+            Intent typedIntent = null;
+            Intent indexedIntent = null;
+            Intent ringIntent = null;
+            // filtered batches are estimated with size of complete batch
+            int bytes = PluginMetrics.sizeOf(sendingBatch);
+
+            // loop through all enabled plugins which support batched DATA requests
+            SubscriptionIndex index = subscriptionIndex;
+            for (DispatchTarget target : index.all)
+            {
+                if (!target.hasFeature(PluginInfo.FEATURE_DATA_BATCH)
+                    || conflaters.containsKey(target.className))
+                {
+                    continue;
+                }
+
+                Intent intent;
+                boolean ring = useDataRing(target);
+                if (target.subscriptions != null)
+                {
+                    // individual batch of subscribed data items
+                    intent = createFilteredIntent(sendingBatch, index, target, ring);
+                    if (intent == null)
+                        continue;
+                }
+                else if (ring)
+                {
+                    // numeric updates of known items were sent via data ring already
+                    if (ringIntent == null)
+                        ringIntent = createFilteredIntent(sendingBatch, index, target, true);
+                    if (ringIntent == null)
+                        continue;
+                    intent = ringIntent;
+                }
+                else if (target.hasFeature(PluginInfo.FEATURE_DATA_IDS))
+                {
+                    if (indexedIntent == null)
+                        indexedIntent = createDataIntent(sendingBatch, true);
+                    intent = indexedIntent;
+                }
+                else
+                {
+                    if (typedIntent == null)
+                        typedIntent = createDataIntent(sendingBatch, false);
+                    intent = typedIntent;
+                }
+                intent.setClassName(target.packageName, target.className);
+                if (LOG_VERBOSE) Log.v(toString(), ">DATA: " + intent);
+                deliver(target, intent, Plugin.MSG_DATA, bytes);
+            }
+            sendingBatch.clear();
+        }
+    }
+
+    /**
+     * Deliver a batch of data updates to a single plugin
+     *
+     * @param target Plugin to deliver updates to
+     * @param batch  Batch of data updates
+     */
+    private void deliverDataBatch(DispatchTarget target, DataBatch batch)
+    {
+        if (target.hasFeature(PluginInfo.FEATURE_DATA_BATCH))
+        {
+            Intent intent = createDataIntent(batch, target.hasFeature(PluginInfo.FEATURE_DATA_IDS));
+            intent.setClassName(target.packageName, target.className);
+            if (LOG_VERBOSE) Log.v(toString(), ">DATA: " + intent);
+            deliver(target, intent, Plugin.MSG_DATA, PluginMetrics.sizeOf(batch));
+        }
+        else
+        {
+            // legacy plugins get one update per intent
+            for (int i = 0; i < batch.size(); i++)
+            {
+                Intent intent = new Intent(Plugin.DATA);
+                intent.addCategory(Plugin.REQUEST);
+                String dataStr = batch.getKey(i) + "=" + batch.getValue(i);
+                intent.putExtra(Plugin.EXTRA_DATA, dataStr);
+                intent.putExtra(Plugin.EXTRA_DATA_TIMES, new long[] { batch.getTime(i) });
+                intent.setClassName(target.packageName, target.className);
+                if (LOG_VERBOSE) Log.v(toString(), ">DATA: " + intent);
+                deliver(target, intent, Plugin.MSG_DATA, PluginMetrics.sizeOf(dataStr));
+            }
+        }
+    }
+
+    /**
+     * Create DATA request intent with all updates of a batch which
+     * are relevant for a specific plugin
+     *
+     * @param batch       Batch of data updates
+     * @param index       Subscription index to check subscribed data items
+     * @param target      Plugin to create intent for
+     * @param excludeRing Exclude updates which are transferred via data ring
+     *                    (numeric updates of known items)
+     * @return DATA request intent, or null if there are no relevant updates
+     */
+    private static Intent createFilteredIntent(DataBatch batch,
+                                               SubscriptionIndex index,
+                                               DispatchTarget target,
+                                               boolean excludeRing)
+    {
+        DataBatch filtered = new DataBatch(batch.size());
+        for (int i = 0; i < batch.size(); i++)
+        {
+            if (!index.isSubscribed(target, batch.getKey(i)))
+                continue;
+
+            if (!batch.isNumeric(i))
+                filtered.add(batch.getId(i), batch.getKey(i), batch.getValue(i), batch.getTime(i));
+            else if (!excludeRing || batch.getId(i) == DataDictionary.NO_ID)
+                filtered.add(batch.getId(i), batch.getKey(i), batch.getNumber(i), batch.getTime(i));
+        }
+        return filtered.isEmpty()
+               ? null
+               : createDataIntent(filtered, target.hasFeature(PluginInfo.FEATURE_DATA_IDS));
+    }
+
+    /**
+     * Enable / disable shared memory ring buffer for numeric data updates
+     *
+     * If enabled, numeric updates of data items with known ID are written to a
+     * shared memory ring buffer for all bound plugins which support it.
+     * Those plugins only get a wakeup message per flush window (see {@link #setBatching}).
+     * Requires Android 8.1 (API 27) or later.
+     *
+     * @param capacity Number of records within ring (0 = disable ring)
+     * @return true if data ring is active, false otherwise
+     */
+    public boolean setDataRing(int capacity)
+    {
+        synchronized (ringLock)
+        {
+            if (dataRing != null)
+            {
+                // detach all plugins
+                for (PluginConnections.Connection connection : connections.all())
+                {
+                    connection.ringAttached = false;
+                }
+                dataRing.close();
+                dataRing = null;
+            }
+
+            if (capacity > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1)
+            {
+                dataRing = SharedDataRing.create(getClass().getSimpleName(), capacity);
+            }
+            return dataRing != null;
+        }
+    }
+
+    /**
+     * Check if a plugin shall receive numeric data updates via data ring,
+     * and attach it to the ring if not done yet
+     *
+     * @param target Plugin to be checked
+     * @return true if plugin is attached to the data ring
+     */
+    private boolean useDataRing(DispatchTarget target)
+    {
+        SharedDataRing ring = dataRing;
+        if (ring == null
+            || !target.hasFeature(PluginInfo.FEATURE_DATA_RINGBUFFER))
+        {
+            return false;
+        }
+
+        if (connections.use(target.packageName, target.className))
+        {
+            // plugin was stopped while idle, so it needs the complete data list first
+            sentDataListVersions.remove(target.className);
+            // ... and current values of all data items
+            changeFilter.reset(target.className);
+        }
+        // data ring records refer to data key IDs, so the plugin needs to know the data list
+        if (!sentDataListVersions.containsKey(target.className))
+        {
+            sendDataList(target);
+        }
+        PluginConnections.Connection connection = connections.get(target.className);
+        Messenger messenger = connection != null ? connection.messenger : null;
+        if (messenger == null)
+        {
+            return false;
+        }
+
+        if (!connection.ringAttached)
         {
-            PluginInfo plugin = getItem(i);
-            // If plugin is enabled and feature DATA is supported
-            if (plugin.enabled
-                    && (plugin.features & PluginInfo.FEATURE_DATA) != 0)
+            // shared memory is protected, so plugins can only map it read only
+            Bundle data = new Bundle();
+            data.putParcelable(Plugin.EXTRA_RING_BUFFER, ring.getMemory());
+            Message msg = Message.obtain(null, Plugin.MSG_RING_ATTACH);
+            msg.setData(data);
+            try
+            {
+                messenger.send(msg);
+                connection.ringAttached = true;
+                if (LOG_VERBOSE) Log.v(toString(), ">RING_ATTACH: " + target);
+            }
+            catch (RemoteException e)
+            {
+                Log.w(toString(), "Ring attach failed: " + target, e);
+                connection.messenger = null;
+            }
+        }
+        return connection.ringAttached;
+    }
+
+    /**
+     * Write numeric data update to data ring
+     * and schedule wakeup of attached plugins
+     *
+     * @param id     ID of data item
+     * @param number New numeric value of data change
+     * @param time   Timestamp [ms] of data change
+     */
+    private void writeDataRing(int id, double number, long time)
+    {
+        synchronized (ringLock)
+        {
+            if (dataRing == null)
+            {
+                return;
+            }
+            dataRing.getRing().write(id, time, number);
+
+            // one wakeup per flush window
+            if (!ringWakeupPending)
             {
-                intent.setClassName(plugin.packageName, plugin.className);
-                Log.v(toString(), ">DATA: " + intent);
-                getContext().startService(intent);
+                ringWakeupPending = true;
+                flushHandler.postDelayed(ringWakeupTask, batchFlushWindow);
             }
         }
     }
@@ -0,0 +1,189 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import android.content.Context;
+import android.os.Handler;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.Switch;
+import android.widget.TextView;
+
+import com.fr3ts0n.androbd.plugin.PluginInfo;
+import com.fr3ts0n.androbd.plugin.R;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Display adapter of plugin list
+ * <p>
+ * View of a {@link PluginRegistry}. Changes of the registry are applied
+ * incrementally on the UI thread, the registry may be changed from any thread.
+ */
+public class PluginListAdapter
+        extends ArrayAdapter<PluginInfo>
+        implements PluginRegistry.Listener
+{
+    /** registry to be displayed */
+    private final PluginRegistry registry;
+    /** handler to apply changes on UI thread */
+    private final Handler uiHandler;
+    /** layout inflater */
+    private final LayoutInflater mInflater;
+    /** displayed plugins by class name */
+    private final Map<String, PluginInfo> items = new HashMap<>();
+    /** registry version of last applied change */
+    private long version = 0;
+
+    /**
+     * Constructor
+     * Must be called on the UI thread.
+     *
+     * @param context  The current context.
+     * @param registry Registry to be displayed
+     */
+    public PluginListAdapter(Context context, PluginRegistry registry)
+    {
+        super(context, R.layout.plugininfo);
+        this.registry = registry;
+        uiHandler = new Handler(context.getMainLooper());
+        mInflater = (LayoutInflater) context
+                .getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+
+        for (PluginInfo plugin : registry.addListener(this))
+        {
+            items.put(plugin.className, plugin);
+            add(plugin);
+        }
+    }
+
+    /**
+     * Stop following registry changes
+     */
+    public void detach()
+    {
+        registry.removeListener(this);
+    }
+
+    @Override
+    public void onRegistryChanged(final PluginRegistry.Change change)
+    {
+        uiHandler.post(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                apply(change);
+            }
+        });
+    }
+
+    /**
+     * Apply registry change to displayed list
+     *
+     * @param change Registry change
+     */
+    private void apply(PluginRegistry.Change change)
+    {
+        if (change.version <= version)
+        {
+            return;
+        }
+        version = change.version;
+
+        PluginInfo plugin = change.plugin;
+        PluginInfo current = items.get(plugin.className);
+        switch (change.type)
+        {
+            case ADDED:
+            case UPDATED:
+                if (current == null)
+                {
+                    items.put(plugin.className, plugin);
+                    add(plugin);
+                }
+                else if (current != plugin)
+                {
+                    // replace at same position
+                    setNotifyOnChange(false);
+                    int position = getPosition(current);
+                    remove(current);
+                    insert(plugin, position);
+                    items.put(plugin.className, plugin);
+                    notifyDataSetChanged();
+                }
+                else
+                {
+                    // state of displayed plugin has changed
+                    notifyDataSetChanged();
+                }
+                break;
+
+            case REMOVED:
+                if (current != null)
+                {
+                    items.remove(plugin.className);
+                    remove(current);
+                }
+                break;
+        }
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent)
+    {
+        PluginInfo info = getItem(position);
+
+        View infoView;
+        if (convertView != null)
+            infoView = convertView;
+        else
+            infoView = mInflater.inflate(R.layout.plugininfo, parent, false);
+
+        TextView tv;
+        tv = infoView.findViewById(R.id.edName);
+        tv.setEnabled(info.enabled);
+        tv.setText(info.name);
+
+        tv = infoView.findViewById(R.id.edClass);
+        tv.setEnabled(info.enabled);
+        tv.setText(info.className);
+
+        tv = infoView.findViewById(R.id.edDescription);
+        tv.setEnabled(info.enabled);
+        tv.setText(info.description);
+
+        // get feature checkboxes
+        CheckBox[] cb =
+        {
+            infoView.findViewById(R.id.cbConfig),
+            infoView.findViewById(R.id.cbAction),
+            infoView.findViewById(R.id.cbDataList),
+            infoView.findViewById(R.id.cbData),
+        };
+
+        // set checkbox checked state based on supported features
+        for (int bit = 0; bit < 4; bit++)
+        {
+            cb[bit].setChecked((info.features & (1 << bit)) != 0);
+        }
+
+        // enable / disable buttons based on supported features
+        Button btn;
+        btn = infoView.findViewById(R.id.btnConfigure);
+        btn.setEnabled(info.enabled && (info.features & PluginInfo.FEATURE_CONFIGURE) != 0);
+
+        btn = infoView.findViewById(R.id.btnAction);
+        btn.setEnabled(info.enabled && (info.features & PluginInfo.FEATURE_ACTION) != 0);
+
+        infoView.setActivated(info.enabled);
+
+        Switch swEnable = infoView.findViewById(R.id.swEnable);
+        swEnable.setChecked(info.enabled);
+
+        return infoView;
+    }
+}
@@ -24,6 +24,11 @@ public class PluginManager
 {
     public static PluginHandler pluginHandler = null;
 
+    /**
+     * Display adapter of plugin list (null if manager view is not shown)
+     */
+    private PluginListAdapter pluginAdapter = null;
+
     @Override
     protected void onCreate(Bundle savedInstanceState)
     {
@@ -44,6 +49,7 @@ public class PluginManager
 
         // discover plugins after showing the activity
         // before onResume completes, the app is still in the background and can't start services
+        // (discovery is only done once, later changes are tracked by package events)
         new Handler().post(new Runnable()
         {
             @Override
@@ -57,6 +63,11 @@ public class PluginManager
     @Override
     protected void onDestroy()
     {
+        if (pluginAdapter != null)
+        {
+            pluginAdapter.detach();
+            pluginAdapter = null;
+        }
         pluginHandler.cleanup();
         pluginHandler = null;
         super.onDestroy();
@@ -68,7 +79,20 @@ public class PluginManager
     protected void setManagerView()
     {
         setContentView(R.layout.content_main);
-        setListAdapter(pluginHandler);
+        pluginAdapter = new PluginListAdapter(this, pluginHandler.getRegistry());
+        setListAdapter(pluginAdapter);
+    }
+
+    /**
+     * Get class name of plugin which is displayed in a list item
+     *
+     * @param view view within list item
+     * @return class name of displayed plugin
+     */
+    private String getPluginClass(View view)
+    {
+        int pos = getListView().getPositionForView(view);
+        return pluginAdapter.getItem(pos).className;
     }
 
     /**
@@ -89,8 +113,7 @@ public class PluginManager
      */
     public void sendConfigure(View view)
     {
-        int pos = getListView().getPositionForView(view);
-        pluginHandler.triggerConfiguration(pos);
+        pluginHandler.triggerConfiguration(getPluginClass(view));
     }
 
     /**
@@ -100,8 +123,7 @@ public class PluginManager
      */
     public void sendPerformAction(View view)
     {
-        int pos = getListView().getPositionForView(view);
-        pluginHandler.triggerAction(pos);
+        pluginHandler.triggerAction(getPluginClass(view));
     }
 
     /**
@@ -111,8 +133,7 @@ public class PluginManager
      */
     public void setPluginEnabled(View view)
     {
-        int pos = getListView().getPositionForView(view);
-        pluginHandler.setPluginEnabled(pos, ((Switch) view).isChecked());
+        pluginHandler.setPluginEnabled(getPluginClass(view), ((Switch) view).isChecked());
     }
 
     @Override
@@ -0,0 +1,291 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.PluginInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of identified plugins
+ * <p>
+ * Thread safe model of all known plugins, indexed by class name and by package.
+ * Every change increments the registry version and is reported to all
+ * listeners as a {@link Change}, so views may apply the changes incrementally.
+ * Changes are reported in order of their version on the thread which
+ * performed the change, listeners therefore must not block.
+ */
+public class PluginRegistry
+{
+    /**
+     * Type of registry change
+     */
+    public enum ChangeType
+    {
+        /** Plugin was added */
+        ADDED,
+        /** Plugin was replaced / plugin state was changed */
+        UPDATED,
+        /** Plugin was removed */
+        REMOVED,
+    }
+
+    /**
+     * Single change of the registry
+     */
+    public static final class Change
+    {
+        /** Registry version after the change */
+        public final long version;
+        /** Type of change */
+        public final ChangeType type;
+        /** Affected plugin (new state for ADDED / UPDATED) */
+        public final PluginInfo plugin;
+
+        Change(long version, ChangeType type, PluginInfo plugin)
+        {
+            this.version = version;
+            this.type = type;
+            this.plugin = plugin;
+        }
+    }
+
+    /**
+     * Listener to registry changes
+     */
+    public interface Listener
+    {
+        /**
+         * Handle a registry change
+         *
+         * @param change Registry change
+         */
+        void onRegistryChanged(Change change);
+    }
+
+    /** plugins by class name, in order of registration */
+    private final Map<String, PluginInfo> byClass = new LinkedHashMap<>();
+    /** class names of plugins by package name */
+    private final Map<String, Set<String>> byPackage = new HashMap<>();
+    /** registered listeners */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    /** current version of registry */
+    private long version = 0;
+
+    /**
+     * Add listener and get current registry content
+     * Changes after the returned snapshot are reported to the listener.
+     *
+     * @param listener Listener to add
+     * @return all currently registered plugins
+     */
+    public synchronized List<PluginInfo> addListener(Listener listener)
+    {
+        listeners.add(listener);
+        return getAll();
+    }
+
+    /**
+     * @param listener Listener to remove
+     */
+    public void removeListener(Listener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return current version of registry
+     */
+    public synchronized long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return number of registered plugins
+     */
+    public synchronized int size()
+    {
+        return byClass.size();
+    }
+
+    /**
+     * @return snapshot of all registered plugins in order of registration
+     */
+    public synchronized List<PluginInfo> getAll()
+    {
+        return new ArrayList<>(byClass.values());
+    }
+
+    /**
+     * @param className Class name of plugin
+     * @return Registered plugin, or null if unknown
+     */
+    public synchronized PluginInfo get(String className)
+    {
+        return className != null ? byClass.get(className) : null;
+    }
+
+    /**
+     * @param packageName Name of package
+     * @return All registered plugins of the package
+     */
+    public synchronized List<PluginInfo> getByPackage(String packageName)
+    {
+        List<PluginInfo> result = new ArrayList<>();
+        Set<String> classNames = byPackage.get(packageName);
+        if (classNames != null)
+        {
+            for (String className : classNames)
+            {
+                result.add(byClass.get(className));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add or replace a plugin
+     *
+     * @param plugin Plugin to add / replace
+     * @return true if the plugin was replaced, false if it was added as a new plugin
+     */
+    public synchronized boolean put(PluginInfo plugin)
+    {
+        PluginInfo previous = byClass.put(plugin.className, plugin);
+        if (previous != null)
+        {
+            unindex(previous);
+        }
+        index(plugin);
+        notifyChange(previous != null ? ChangeType.UPDATED : ChangeType.ADDED, plugin);
+        return previous != null;
+    }
+
+    /**
+     * Add a plugin if it is not registered yet
+     *
+     * @param plugin Plugin to add
+     * @return true if the plugin was added, false if it was already registered
+     */
+    public synchronized boolean add(PluginInfo plugin)
+    {
+        if (byClass.containsKey(plugin.className))
+        {
+            return false;
+        }
+        byClass.put(plugin.className, plugin);
+        index(plugin);
+        notifyChange(ChangeType.ADDED, plugin);
+        return true;
+    }
+
+    /**
+     * Report a changed state (enabled, update interval, subscriptions ...)
+     * of a registered plugin
+     *
+     * @param plugin Changed plugin
+     */
+    public synchronized void changed(PluginInfo plugin)
+    {
+        if (byClass.get(plugin.className) == plugin)
+        {
+            notifyChange(ChangeType.UPDATED, plugin);
+        }
+    }
+
+    /**
+     * Remove a plugin
+     *
+     * @param className Class name of plugin
+     * @return Removed plugin, or null if unknown
+     */
+    public synchronized PluginInfo remove(String className)
+    {
+        PluginInfo plugin = byClass.remove(className);
+        if (plugin != null)
+        {
+            unindex(plugin);
+            notifyChange(ChangeType.REMOVED, plugin);
+        }
+        return plugin;
+    }
+
+    /**
+     * Remove all plugins of a package
+     *
+     * @param packageName Name of package
+     * @return Removed plugins
+     */
+    public synchronized List<PluginInfo> removePackage(String packageName)
+    {
+        List<PluginInfo> result = getByPackage(packageName);
+        for (PluginInfo plugin : result)
+        {
+            remove(plugin.className);
+        }
+        return result;
+    }
+
+    /**
+     * Remove all plugins
+     *
+     * @return Removed plugins
+     */
+    public synchronized List<PluginInfo> clear()
+    {
+        List<PluginInfo> result = getAll();
+        for (PluginInfo plugin : result)
+        {
+            remove(plugin.className);
+        }
+        return result;
+    }
+
+    /**
+     * Add plugin to package index
+     */
+    private void index(PluginInfo plugin)
+    {
+        Set<String> classNames = byPackage.get(plugin.packageName);
+        if (classNames == null)
+        {
+            classNames = new LinkedHashSet<>();
+            byPackage.put(plugin.packageName, classNames);
+        }
+        classNames.add(plugin.className);
+    }
+
+    /**
+     * Remove plugin from package index
+     */
+    private void unindex(PluginInfo plugin)
+    {
+        Set<String> classNames = byPackage.get(plugin.packageName);
+        if (classNames != null)
+        {
+            classNames.remove(plugin.className);
+            if (classNames.isEmpty())
+            {
+                byPackage.remove(plugin.packageName);
+            }
+        }
+    }
+
+    /**
+     * Increment version and report change to all listeners
+     */
+    private void notifyChange(ChangeType type, PluginInfo plugin)
+    {
+        Change change = new Change(++version, type, plugin);
+        for (Listener listener : listeners)
+        {
+            listener.onRegistryChanged(change);
+        }
+    }
+}
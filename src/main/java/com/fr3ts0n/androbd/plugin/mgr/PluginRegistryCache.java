@@ -0,0 +1,287 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.fr3ts0n.androbd.plugin.PluginInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of identified plugins
+ * <p>
+ * Stores the plugin information (incl. enabled state and update interval)
+ * of all identified plugins, grouped by package name and version code of the
+ * plugin package. Entries of a package are valid as long as the installed
+ * version of the package is unchanged, so the host may use them on startup
+ * without waiting for the IDENTIFY responses of the plugins.
+ */
+final class PluginRegistryCache
+{
+    /** Name of registry file */
+    static final String FILE_NAME = "plugin_registry.bin";
+    /** Version code of a package which is not installed */
+    static final long NOT_INSTALLED = -1;
+
+    /** format identification of registry file */
+    private static final int MAGIC = 0x504c5247;
+    /** format version of registry file */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Cached plugins of a single package
+     */
+    static final class Entry
+    {
+        /** Name of plugin package */
+        final String packageName;
+        /** Version code of package the plugins were identified with */
+        final long versionCode;
+        /** Plugins of package */
+        final List<PluginInfo> plugins = new ArrayList<>();
+
+        Entry(String packageName, long versionCode)
+        {
+            this.packageName = packageName;
+            this.versionCode = versionCode;
+        }
+    }
+
+    /** registry file */
+    private final File file;
+
+    /**
+     * Constructor
+     *
+     * @param file Registry file
+     */
+    PluginRegistryCache(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Get installed version code of a package
+     *
+     * @param pm          Package manager
+     * @param packageName Name of package
+     * @return version code of package, {@link #NOT_INSTALLED} if package is not installed
+     */
+    @SuppressWarnings("deprecation")
+    static long getVersionCode(PackageManager pm, String packageName)
+    {
+        try
+        {
+            PackageInfo info = pm.getPackageInfo(packageName, 0);
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                   ? info.getLongVersionCode()
+                   : info.versionCode;
+        }
+        catch (PackageManager.NameNotFoundException e)
+        {
+            return NOT_INSTALLED;
+        }
+    }
+
+    /**
+     * Load cached plugins
+     * A missing or invalid registry file results in an empty registry.
+     *
+     * @return cached plugins by package name
+     */
+    synchronized Map<String, Entry> load()
+    {
+        Map<String, Entry> result = new HashMap<>();
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+            {
+                return result;
+            }
+            int packages = in.readInt();
+            for (int i = 0; i < packages; i++)
+            {
+                Entry entry = new Entry(in.readUTF(), in.readLong());
+                int plugins = in.readInt();
+                for (int j = 0; j < plugins; j++)
+                {
+                    entry.plugins.add(readPlugin(in, entry.packageName));
+                }
+                result.put(entry.packageName, entry);
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            // nothing cached yet
+        }
+        catch (IOException e)
+        {
+            Log.w(PluginRegistryCache.class.getSimpleName(), "Invalid registry dropped", e);
+            result.clear();
+        }
+        finally
+        {
+            close(in);
+        }
+        return result;
+    }
+
+    /**
+     * Save cached plugins
+     * The registry file is replaced atomically.
+     *
+     * @param entries Plugins by package
+     */
+    synchronized void save(Collection<Entry> entries)
+    {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries)
+            {
+                out.writeUTF(entry.packageName);
+                out.writeLong(entry.versionCode);
+                out.writeInt(entry.plugins.size());
+                for (PluginInfo plugin : entry.plugins)
+                {
+                    writePlugin(out, plugin);
+                }
+            }
+            out.close();
+            out = null;
+            if (!tmpFile.renameTo(file))
+            {
+                throw new IOException("Rename failed: " + tmpFile);
+            }
+        }
+        catch (IOException e)
+        {
+            Log.w(PluginRegistryCache.class.getSimpleName(), "Registry not saved", e);
+            close(out);
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Write a single plugin record
+     */
+    private static void writePlugin(DataOutputStream out, PluginInfo plugin) throws IOException
+    {
+        writeString(out, plugin.className);
+        writeString(out, plugin.name);
+        out.writeInt(plugin.features);
+        writeString(out, plugin.description);
+        writeString(out, plugin.copyright);
+        writeString(out, plugin.license);
+        writeString(out, plugin.url);
+        out.writeBoolean(plugin.enabled);
+        out.writeLong(plugin.updateInterval);
+        if (plugin.subscriptions == null)
+        {
+            out.writeInt(-1);
+        }
+        else
+        {
+            out.writeInt(plugin.subscriptions.length);
+            for (String key : plugin.subscriptions)
+            {
+                writeString(out, key);
+            }
+        }
+    }
+
+    /**
+     * Read a single plugin record as written by {@link #writePlugin}
+     */
+    private static PluginInfo readPlugin(DataInputStream in, String packageName) throws IOException
+    {
+        PluginInfo plugin = new PluginInfo(new Bundle());
+        plugin.packageName = packageName;
+        plugin.className = readString(in);
+        plugin.name = readString(in);
+        plugin.features = in.readInt();
+        plugin.description = readString(in);
+        plugin.copyright = readString(in);
+        plugin.license = readString(in);
+        plugin.url = readString(in);
+        plugin.enabled = in.readBoolean();
+        plugin.updateInterval = in.readLong();
+        int subscriptions = in.readInt();
+        if (subscriptions >= 0)
+        {
+            plugin.subscriptions = new String[subscriptions];
+            for (int i = 0; i < subscriptions; i++)
+            {
+                plugin.subscriptions[i] = readString(in);
+            }
+        }
+        if (plugin.className == null)
+        {
+            throw new IOException("Plugin without class name");
+        }
+        return plugin;
+    }
+
+    /**
+     * Write a string (null allowed)
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Read a string as written by {@link #writeString}
+     */
+    private static String readString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Close a stream, ignoring errors
+     */
+    private static void close(Closeable stream)
+    {
+        if (stream != null)
+        {
+            try
+            {
+                stream.close();
+            }
+            catch (IOException e)
+            {
+                // nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import com.fr3ts0n.androbd.plugin.PluginInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copy-on-write snapshot of DATA targets, indexed by subscribed data keys
+ * (immutable, re-built on every change of plugins / subscriptions,
+ *  may be read from any thread without locking)
+ */
+final class SubscriptionIndex
+{
+    /** all enabled plugins which support DATA requests */
+    final DispatchTarget[] all;
+    /** plugins which are subscribed to all data items */
+    final DispatchTarget[] unfiltered;
+    /** plugins by subscribed data key (incl. unfiltered plugins) */
+    final Map<String, DispatchTarget[]> byKey = new HashMap<>();
+    /** plugins by class name */
+    final Map<String, DispatchTarget> byClass = new HashMap<>();
+
+    SubscriptionIndex(List<PluginInfo> plugins)
+    {
+        List<DispatchTarget> allTargets = new ArrayList<>();
+        List<DispatchTarget> unfilteredTargets = new ArrayList<>();
+        Map<String, List<DispatchTarget>> keyTargets = new HashMap<>();
+        for (PluginInfo plugin : plugins)
+        {
+            // If plugin is enabled and feature DATA is supported
+            if (plugin.enabled
+                    && (plugin.features & PluginInfo.FEATURE_DATA) != 0)
+            {
+                DispatchTarget target = new DispatchTarget(plugin);
+                allTargets.add(target);
+                byClass.put(target.className, target);
+                if (target.subscriptions == null)
+                {
+                    unfilteredTargets.add(target);
+                    continue;
+                }
+                for (String key : target.subscriptions)
+                {
+                    List<DispatchTarget> targets = keyTargets.get(key);
+                    if (targets == null)
+                    {
+                        targets = new ArrayList<>();
+                        keyTargets.put(key, targets);
+                    }
+                    if (!targets.contains(target))
+                    {
+                        targets.add(target);
+                    }
+                }
+            }
+        }
+
+        all = allTargets.toArray(new DispatchTarget[0]);
+        unfiltered = unfilteredTargets.toArray(new DispatchTarget[0]);
+        for (Map.Entry<String, List<DispatchTarget>> entry : keyTargets.entrySet())
+        {
+            List<DispatchTarget> targets = entry.getValue();
+            targets.addAll(unfilteredTargets);
+            byKey.put(entry.getKey(), targets.toArray(new DispatchTarget[0]));
+        }
+    }
+
+    /**
+     * @param key Key of data item
+     * @return all plugins which are subscribed to the data item
+     */
+    DispatchTarget[] getTargets(String key)
+    {
+        DispatchTarget[] targets = byKey.get(key);
+        return targets != null ? targets : unfiltered;
+    }
+
+    /**
+     * @param target Plugin to check
+     * @param key    Key of data item
+     * @return true if plugin is subscribed to the data item
+     */
+    boolean isSubscribed(DispatchTarget target, String key)
+    {
+        if (target.subscriptions == null)
+        {
+            return true;
+        }
+        for (DispatchTarget subscriber : getTargets(key))
+        {
+            if (subscriber == target)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,236 @@
+package com.fr3ts0n.androbd.plugin.mgr;
+
+import android.os.Handler;
+
+import com.fr3ts0n.androbd.plugin.DataBatch;
+import com.fr3ts0n.androbd.plugin.PluginMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate limiter of data updates to a single plugin
+ * <p>
+ * Pending updates are conflated per data key (latest value wins).
+ * With every tick, all data items which are due are delivered as one batch.
+ * A data item is due if it's update interval has elapsed since it was
+ * delivered last time. The update interval of a data item is the max. of
+ * plugin specific interval and the (host wide) interval of the data key.
+ */
+class UpdateConflater
+{
+    /**
+     * Receiver of due data updates
+     */
+    interface Sink
+    {
+        /**
+         * Deliver batch of due data updates to plugin
+         *
+         * @param target Plugin to deliver updates to
+         * @param batch  Batch of due data updates
+         */
+        void deliverBatch(DispatchTarget target, DataBatch batch);
+    }
+
+    /**
+     * Pending update of a single data item
+     */
+    private static class Entry
+    {
+        int id;
+        String key;
+        String text;
+        double number;
+        long time;
+        /** time [ms] of last delivery of this data item */
+        long lastSent;
+        /** update is pending for delivery */
+        boolean pending;
+    }
+
+    /** Plugin to deliver updates to */
+    private final DispatchTarget target;
+    /** Handler to schedule ticks */
+    private final Handler handler;
+    /** Receiver of due updates */
+    private final Sink sink;
+    /** Min. update interval [ms] for all data items */
+    private final long interval;
+    /** Individual min. update intervals [ms] by data key (shared, thread safe) */
+    private final Map<String, Long> keyIntervals;
+    /** Metrics to count conflated updates */
+    private final PluginMetrics metrics;
+    /** Entries by data key */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    /** Batch of due updates (re-used with every tick) */
+    private final DataBatch dueBatch = new DataBatch();
+    /** Number of updates which were replaced by a newer value */
+    private long conflatedCount = 0;
+    /** Tick is scheduled */
+    private boolean tickScheduled = false;
+
+    /** Timed delivery of due updates */
+    private final Runnable tickTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            tick();
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param target   Plugin to deliver updates to
+     * @param keyIntervals Individual min. update intervals [ms] by data key
+     * @param metrics  Metrics to count conflated updates
+     * @param handler  Handler to schedule ticks
+     * @param sink     Receiver of due updates
+     */
+    UpdateConflater(DispatchTarget target,
+                    Map<String, Long> keyIntervals,
+                    PluginMetrics metrics,
+                    Handler handler,
+                    Sink sink)
+    {
+        this.target = target;
+        this.interval = target.updateInterval;
+        this.keyIntervals = keyIntervals;
+        this.metrics = metrics;
+        this.handler = handler;
+        this.sink = sink;
+    }
+
+    /**
+     * @return Plugin to deliver updates to
+     */
+    DispatchTarget getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * @return Min. update interval [ms] for all data items
+     */
+    long getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * @return Number of updates which were replaced by a newer value
+     */
+    synchronized long getConflatedCount()
+    {
+        return conflatedCount;
+    }
+
+    /**
+     * Offer a data update for rate limited delivery
+     *
+     * @param id     ID of data item
+     * @param key    Key of data change
+     * @param text   New textual value of data change (null for numeric update)
+     * @param number New numeric value of data change (if text is null)
+     * @param time   Timestamp [ms] of data change
+     */
+    synchronized void offer(int id, String key, String text, double number, long time)
+    {
+        Entry entry = entries.get(key);
+        if (entry == null)
+        {
+            entry = new Entry();
+            entry.key = key;
+            entries.put(key, entry);
+        }
+        else if (entry.pending)
+        {
+            // newer value replaces pending one
+            conflatedCount++;
+            metrics.add(target.className, PluginMetrics.Action.DATA, PluginMetrics.Counter.CONFLATED, 1);
+        }
+        entry.id = id;
+        entry.text = text;
+        entry.number = number;
+        entry.time = time;
+        entry.pending = true;
+
+        if (!tickScheduled)
+        {
+            tickScheduled = true;
+            handler.postDelayed(tickTask, Math.max(0, getKeyInterval(key) - (time - entry.lastSent)));
+        }
+    }
+
+    /**
+     * Deliver all due updates and schedule next tick if updates are still pending
+     */
+    void tick()
+    {
+        synchronized (this)
+        {
+            tickScheduled = false;
+            long now = System.currentTimeMillis();
+            long nextDue = Long.MAX_VALUE;
+
+            dueBatch.clear();
+            for (Entry entry : entries.values())
+            {
+                if (!entry.pending)
+                {
+                    continue;
+                }
+
+                long due = entry.lastSent + getKeyInterval(entry.key);
+                if (due <= now)
+                {
+                    if (entry.text != null)
+                        dueBatch.add(entry.id, entry.key, entry.text, entry.time);
+                    else
+                        dueBatch.add(entry.id, entry.key, entry.number, entry.time);
+                    entry.text = null;
+                    entry.pending = false;
+                    entry.lastSent = now;
+                }
+                else
+                {
+                    nextDue = Math.min(nextDue, due);
+                }
+            }
+
+            if (nextDue != Long.MAX_VALUE)
+            {
+                tickScheduled = true;
+                handler.postDelayed(tickTask, nextDue - now);
+            }
+        }
+
+        // deliver outside of lock, batch is only used by ticks on handler thread
+        if (!dueBatch.isEmpty())
+        {
+            sink.deliverBatch(target, dueBatch);
+        }
+    }
+
+    /**
+     * Stop ticks and drop all pending updates
+     */
+    synchronized void cancel()
+    {
+        handler.removeCallbacks(tickTask);
+        tickScheduled = false;
+        entries.clear();
+    }
+
+    /**
+     * @param key Key of data item
+     * @return Min. update interval [ms] of data item
+     */
+    private long getKeyInterval(String key)
+    {
+        Long keyInterval = keyIntervals.get(key);
+        return keyInterval != null ? Math.max(keyInterval, interval) : interval;
+    }
+}